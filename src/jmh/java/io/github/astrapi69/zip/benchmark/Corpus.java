@@ -0,0 +1,214 @@
+/**
+ * The MIT License
+ *
+ * Copyright (C) 2015 Asterios Raptis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.astrapi69.zip.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The class {@link Corpus} generates a deterministic set of files for the benchmarks. The same
+ * shape, content, tree and seed always generate the same files, so the results of two versions
+ * can be compared.
+ */
+public final class Corpus
+{
+
+	/** The name of the directory that contains the generated files */
+	public static final String DIRECTORY_NAME = "corpus";
+
+	/** The words for generated text */
+	private static final String[] WORDS = { "zip", "worker", "archive", "entry", "deflate",
+			"inflate", "central", "directory", "header", "stream", "buffer", "channel", "block",
+			"level", "method", "crc", "size", "offset", "local", "file" };
+
+	/** The root directory of the generated files */
+	private final File directory;
+
+	/** The names of the generated files relative to the parent of the root directory */
+	private final List<String> names;
+
+	private Corpus(final File directory, final List<String> names)
+	{
+		this.directory = directory;
+		this.names = Collections.unmodifiableList(names);
+	}
+
+	/**
+	 * Generates a new corpus in the given directory
+	 *
+	 * @param parent
+	 *            the directory to generate the corpus in
+	 * @param shape
+	 *            the number and size of the files
+	 * @param content
+	 *            the content of the files
+	 * @param tree
+	 *            the layout of the directories
+	 * @param seed
+	 *            the seed for the random generator
+	 * @return the generated corpus
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public static Corpus generate(final File parent, final Shape shape, final Content content,
+		final Tree tree, final long seed) throws IOException
+	{
+		final Random random = new Random(seed);
+		final File directory = new File(parent, DIRECTORY_NAME);
+		final List<String> names = new ArrayList<>(shape.files);
+		for (int i = 0; i < shape.files; i++)
+		{
+			final String relativePath = tree.relativePath(i);
+			final File file = new File(directory, relativePath);
+			file.getParentFile().mkdirs();
+			Files.write(file.toPath(), content.generate(random, shape.fileSize));
+			names.add(DIRECTORY_NAME + File.separator + relativePath);
+		}
+		return new Corpus(directory, names);
+	}
+
+	/**
+	 * Gets the root directory of the generated files
+	 *
+	 * @return the root directory of the generated files
+	 */
+	public File getDirectory()
+	{
+		return this.directory;
+	}
+
+	/**
+	 * Gets the names of the generated files relative to the parent of the root directory
+	 *
+	 * @return the names of the generated files
+	 */
+	public List<String> getNames()
+	{
+		return this.names;
+	}
+
+	/**
+	 * The number and size of the generated files
+	 */
+	public enum Shape
+	{
+
+		/** Many tiny files */
+		MANY_TINY(4000, 512),
+
+		/** A few huge files */
+		FEW_HUGE(4, 32 * 1024 * 1024);
+
+		private final int files;
+		private final int fileSize;
+
+		Shape(final int files, final int fileSize)
+		{
+			this.files = files;
+			this.fileSize = fileSize;
+		}
+	}
+
+	/**
+	 * The content of the generated files
+	 */
+	public enum Content
+	{
+
+		/** Text that compresses well */
+		TEXT
+		{
+			@Override
+			byte[] generate(final Random random, final int size)
+			{
+				final StringBuilder text = new StringBuilder(size + 16);
+				while (text.length() < size)
+				{
+					text.append(WORDS[random.nextInt(WORDS.length)])
+						.append(random.nextInt(16) == 0 ? '\n' : ' ');
+				}
+				text.setLength(size);
+				return text.toString().getBytes(StandardCharsets.US_ASCII);
+			}
+		},
+
+		/** Random bytes that can not be compressed */
+		INCOMPRESSIBLE
+		{
+			@Override
+			byte[] generate(final Random random, final int size)
+			{
+				final byte[] bytes = new byte[size];
+				random.nextBytes(bytes);
+				return bytes;
+			}
+		};
+
+		abstract byte[] generate(Random random, int size);
+	}
+
+	/**
+	 * The layout of the directories of the generated files
+	 */
+	public enum Tree
+	{
+
+		/** All files in one directory */
+		FLAT
+		{
+			@Override
+			String relativePath(final int index)
+			{
+				return "file" + index + ".dat";
+			}
+		},
+
+		/** The files are distributed over a tree of eight levels */
+		DEEP
+		{
+			@Override
+			String relativePath(final int index)
+			{
+				final StringBuilder path = new StringBuilder();
+				int rest = index;
+				for (int level = 0; level < 8; level++)
+				{
+					path.append("level").append(level).append('-').append(rest % 3)
+						.append(File.separatorChar);
+					rest /= 3;
+				}
+				return path.append("file").append(index).append(".dat").toString();
+			}
+		};
+
+		abstract String relativePath(int index);
+	}
+}
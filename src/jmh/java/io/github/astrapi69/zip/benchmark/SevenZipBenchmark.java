@@ -0,0 +1,180 @@
+/**
+ * The MIT License
+ *
+ * Copyright (C) 2015 Asterios Raptis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.astrapi69.zip.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.compress.archivers.sevenz.SevenZArchiveEntry;
+import org.apache.commons.compress.archivers.sevenz.SevenZFile;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import io.github.astrapi69.zip.sevenz.SevenZFileExtensions;
+import io.github.astrapi69.zip.sevenz.SevenZOutputFileExtensions;
+
+/**
+ * Benchmarks for compress, extract, list and single entry lookup of 7z archives with
+ * {@link SevenZFileExtensions} and {@link SevenZOutputFileExtensions}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SevenZipBenchmark
+{
+
+	/** The seed of the generated corpus */
+	private static final long SEED = 42;
+
+	@Param({ "MANY_TINY", "FEW_HUGE" })
+	public Corpus.Shape shape;
+
+	@Param({ "TEXT", "INCOMPRESSIBLE" })
+	public Corpus.Content content;
+
+	@Param({ "FLAT", "DEEP" })
+	public Corpus.Tree tree;
+
+	private File archive;
+	private Corpus corpus;
+	private File extractDirectory;
+	private String lookupName;
+	private File target;
+	private File workspace;
+
+	/**
+	 * Generates the corpus and the 7z archive for the extract, list and lookup benchmarks
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	@Setup(Level.Trial)
+	public void setUp() throws IOException
+	{
+		this.workspace = Files.createTempDirectory("zip-worker-jmh").toFile();
+		this.corpus = Corpus.generate(this.workspace, this.shape, this.content, this.tree, SEED);
+		this.archive = new File(this.workspace, "archive.7z");
+		this.target = new File(this.workspace, "target.7z");
+		this.extractDirectory = new File(this.workspace, "extract");
+		this.lookupName = this.corpus.getNames().get(this.corpus.getNames().size() / 2);
+		SevenZFileExtensions.zipFiles(this.archive, this.corpus.getDirectory());
+	}
+
+	/**
+	 * Deletes the corpus and all archives
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException
+	{
+		ZipBenchmark.delete(this.workspace);
+	}
+
+	/**
+	 * Compresses the corpus with {@link SevenZOutputFileExtensions}
+	 *
+	 * @return the length of the 7z archive
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	@Benchmark
+	public long compress() throws IOException
+	{
+		SevenZFileExtensions.zipFiles(this.target, this.corpus.getDirectory());
+		return this.target.length();
+	}
+
+	/**
+	 * Extracts the 7z archive with {@link SevenZFileExtensions#extract(File, File)}
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	@Benchmark
+	public void extract() throws IOException
+	{
+		SevenZFileExtensions.extract(this.archive, this.extractDirectory);
+	}
+
+	/**
+	 * Lists all entries of the 7z archive
+	 *
+	 * @return the number of entries
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	@Benchmark
+	public int list() throws IOException
+	{
+		int count = 0;
+		try (SevenZFile sevenZFile = SevenZFile.builder().setFile(this.archive).get())
+		{
+			for (final SevenZArchiveEntry ignored : sevenZFile.getEntries())
+			{
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Looks up and reads a single entry of the 7z archive
+	 *
+	 * @return the content of the entry
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	@Benchmark
+	public byte[] lookup() throws IOException
+	{
+		try (SevenZFile sevenZFile = SevenZFile.builder().setFile(this.archive).get())
+		{
+			for (final SevenZArchiveEntry entry : sevenZFile.getEntries())
+			{
+				if (this.lookupName.equals(entry.getName()))
+				{
+					try (InputStream inputStream = sevenZFile.getInputStream(entry))
+					{
+						return inputStream.readAllBytes();
+					}
+				}
+			}
+		}
+		throw new IOException("The entry " + this.lookupName + " was not found");
+	}
+}
@@ -0,0 +1,228 @@
+/**
+ * The MIT License
+ *
+ * Copyright (C) 2015 Asterios Raptis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.astrapi69.zip.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import io.github.astrapi69.zip.UnZipper;
+import io.github.astrapi69.zip.ZipExtensions;
+import io.github.astrapi69.zip.Zipper;
+
+/**
+ * Benchmarks for compress, extract, list and single entry lookup of zip archives with
+ * {@link Zipper}, {@link UnZipper} and {@link ZipExtensions}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ZipBenchmark
+{
+
+	/** The seed of the generated corpus */
+	private static final long SEED = 42;
+
+	@Param({ "MANY_TINY", "FEW_HUGE" })
+	public Corpus.Shape shape;
+
+	@Param({ "TEXT", "INCOMPRESSIBLE" })
+	public Corpus.Content content;
+
+	@Param({ "FLAT", "DEEP" })
+	public Corpus.Tree tree;
+
+	private File archive;
+	private Corpus corpus;
+	private File extractDirectory;
+	private String lookupName;
+	private File target;
+	private File workspace;
+
+	/**
+	 * Deletes the given directory recursively
+	 *
+	 * @param directory
+	 *            the directory to delete
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	static void delete(final File directory) throws IOException
+	{
+		if (!directory.exists())
+		{
+			return;
+		}
+		try (Stream<java.nio.file.Path> paths = Files.walk(directory.toPath()))
+		{
+			paths.sorted(Comparator.reverseOrder()).map(java.nio.file.Path::toFile)
+				.forEach(File::delete);
+		}
+	}
+
+	/**
+	 * Generates the corpus and the zip archive for the extract, list and lookup benchmarks
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	@Setup(Level.Trial)
+	public void setUp() throws IOException
+	{
+		this.workspace = Files.createTempDirectory("zip-worker-jmh").toFile();
+		this.corpus = Corpus.generate(this.workspace, this.shape, this.content, this.tree, SEED);
+		this.archive = new File(this.workspace, "archive.zip");
+		this.target = new File(this.workspace, "target.zip");
+		this.extractDirectory = new File(this.workspace, "extract");
+		this.lookupName = this.corpus.getNames().get(this.corpus.getNames().size() / 2);
+		Zipper.builder().directoryToZip(this.corpus.getDirectory()).zipFile(this.archive).build()
+			.zip();
+	}
+
+	/**
+	 * Deletes the corpus and all archives
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException
+	{
+		delete(this.workspace);
+	}
+
+	/**
+	 * Compresses the corpus with {@link Zipper#zip()}
+	 *
+	 * @return the length of the zip archive
+	 */
+	@Benchmark
+	public long compress()
+	{
+		Zipper.builder().directoryToZip(this.corpus.getDirectory()).zipFile(this.target).build()
+			.zip();
+		return this.target.length();
+	}
+
+	/**
+	 * Compresses the corpus with {@link Zipper#zip()} on all available processors
+	 *
+	 * @return the length of the zip archive
+	 */
+	@Benchmark
+	public long compressParallel()
+	{
+		Zipper.builder().directoryToZip(this.corpus.getDirectory()).zipFile(this.target)
+			.parallelism(Runtime.getRuntime().availableProcessors()).build().zip();
+		return this.target.length();
+	}
+
+	/**
+	 * Extracts the zip archive with {@link ZipExtensions#unzip(ZipFile, File)}
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	@Benchmark
+	public void extract() throws IOException
+	{
+		ZipExtensions.unzip(new ZipFile(this.archive), this.extractDirectory);
+	}
+
+	/**
+	 * Extracts the zip archive with {@link UnZipper#unzip()} on all available processors
+	 *
+	 * @return the number of extracted bytes
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	@Benchmark
+	public long extractParallel() throws IOException
+	{
+		final UnZipper unZipper = UnZipper.builder().zipFile(new ZipFile(this.archive))
+			.toDir(this.extractDirectory)
+			.parallelism(Runtime.getRuntime().availableProcessors()).build();
+		unZipper.unzip();
+		return unZipper.getExtractedLength();
+	}
+
+	/**
+	 * Lists all entries of the zip archive
+	 *
+	 * @return the number of entries
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	@Benchmark
+	public int list() throws IOException
+	{
+		int count = 0;
+		try (ZipFile zipFile = new ZipFile(this.archive))
+		{
+			for (final Enumeration<? extends ZipEntry> e = zipFile.entries(); e
+				.hasMoreElements();)
+			{
+				e.nextElement();
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Looks up and reads a single entry of the zip archive
+	 *
+	 * @return the content of the entry
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	@Benchmark
+	public byte[] lookup() throws IOException
+	{
+		try (ZipFile zipFile = new ZipFile(this.archive);
+			InputStream inputStream = zipFile.getInputStream(zipFile.getEntry(this.lookupName)))
+		{
+			return inputStream.readAllBytes();
+		}
+	}
+}
@@ -0,0 +1,141 @@
+/**
+ * The MIT License
+ *
+ * Copyright (C) 2015 Asterios Raptis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.astrapi69.zip;
+
+import java.io.File;
+import java.util.zip.Deflater;
+
+/**
+ * The class {@link AdaptiveCompressionPolicy} estimates the compressibility of a file with a trial
+ * deflate of the sample at the fastest level. Files that do not shrink enough are stored, files
+ * with a mediocre ratio are compressed at a fast level and only files that compress well are
+ * compressed at the best level.
+ *
+ * @version 1.0
+ * @author Asterios Raptis
+ */
+public final class AdaptiveCompressionPolicy implements CompressionPolicy
+{
+
+	/** The default ratio of compressed to uncompressed size above that a file is stored */
+	public static final double DEFAULT_STORE_RATIO = 0.95;
+
+	/** The default ratio of compressed to uncompressed size above that the fast level is used */
+	public static final double DEFAULT_FAST_RATIO = 0.6;
+
+	/** The level for files with a mediocre compression ratio */
+	private final int fastLevel;
+
+	/** The ratio above that the fast level is used */
+	private final double fastRatio;
+
+	/** The level for files that compress well */
+	private final int level;
+
+	/** The ratio above that a file is stored */
+	private final double storeRatio;
+
+	/**
+	 * Instantiates a new {@link AdaptiveCompressionPolicy} with the default ratios, the fastest
+	 * and the best compression level
+	 */
+	public AdaptiveCompressionPolicy()
+	{
+		this(DEFAULT_STORE_RATIO, DEFAULT_FAST_RATIO, Deflater.BEST_SPEED,
+			Deflater.BEST_COMPRESSION);
+	}
+
+	/**
+	 * Instantiates a new {@link AdaptiveCompressionPolicy}
+	 *
+	 * @param storeRatio
+	 *            the ratio of compressed to uncompressed size of the sample above that a file is
+	 *            stored
+	 * @param fastRatio
+	 *            the ratio of compressed to uncompressed size of the sample above that the fast
+	 *            level is used
+	 * @param fastLevel
+	 *            the level for files with a mediocre compression ratio
+	 * @param level
+	 *            the level for files that compress well
+	 */
+	public AdaptiveCompressionPolicy(final double storeRatio, final double fastRatio,
+		final int fastLevel, final int level)
+	{
+		this.storeRatio = storeRatio;
+		this.fastRatio = fastRatio;
+		this.fastLevel = fastLevel;
+		this.level = level;
+	}
+
+	/**
+	 * Gets the ratio of compressed to uncompressed size of the given sample with the fastest
+	 * level
+	 *
+	 * @param sample
+	 *            the array with the sample
+	 * @param length
+	 *            the number of bytes in the sample
+	 * @return the compression ratio of the sample
+	 */
+	static double getCompressionRatio(final byte[] sample, final int length)
+	{
+		final Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+		try
+		{
+			deflater.setInput(sample, 0, length);
+			deflater.finish();
+			final byte[] buffer = new byte[Math.min(length, 8 * 1024) + 64];
+			long compressedSize = 0;
+			while (!deflater.finished())
+			{
+				compressedSize += deflater.deflate(buffer);
+			}
+			return (double)compressedSize / length;
+		}
+		finally
+		{
+			deflater.end();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getLevel(final File file, final byte[] sample, final int length)
+	{
+		if (length == 0)
+		{
+			return STORED_LEVEL;
+		}
+		final double ratio = getCompressionRatio(sample, length);
+		if (this.storeRatio < ratio)
+		{
+			return STORED_LEVEL;
+		}
+		return this.fastRatio < ratio ? this.fastLevel : this.level;
+	}
+}
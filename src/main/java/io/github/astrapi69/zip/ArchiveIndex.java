@@ -0,0 +1,493 @@
+/**
+ * The MIT License
+ *
+ * Copyright (C) 2015 Asterios Raptis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.astrapi69.zip;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.zip.ZipException;
+
+/**
+ * The class {@link ArchiveIndex} is a random access index over the entries of a zip archive. The
+ * index is built once from the {@link CentralDirectory} and keeps the names, offsets, sizes,
+ * checksums and compression methods in primitive arrays, so that even an archive with millions of
+ * entries needs only a few objects. An entry is found with a hash lookup of its name and its
+ * content is read with positioned reads, so an index can be shared between threads and reused for
+ * many requests.
+ *
+ * @version 1.0
+ * @author Asterios Raptis
+ */
+public final class ArchiveIndex implements Closeable
+{
+
+	/** The channel of the zip archive */
+	private final FileChannel channel;
+
+	/** The compressed sizes of the entries */
+	private final long[] compressedSizes;
+
+	/** The crc-32 checksums of the entries */
+	private final int[] crcs;
+
+	/** The ms-dos dates and times of the entries */
+	private final int[] dosTimes;
+
+	/** The zip archive */
+	private final File file;
+
+	/** The hash codes of the names of the entries */
+	private final int[] hashes;
+
+	/** The compression methods of the entries */
+	private final short[] methods;
+
+	/** The start positions of the names in the name pool, one more than entries */
+	private final int[] nameOffsets;
+
+	/** The utf-8 encoded names of all entries one after another */
+	private final byte[] names;
+
+	/** The positions of the local headers of the entries */
+	private final long[] offsets;
+
+	/** The number of entries */
+	private final int size;
+
+	/** The sizes of the entries */
+	private final long[] sizes;
+
+	/** The open addressing hash table with the index of an entry plus one or zero if empty */
+	private final int[] table;
+
+	private ArchiveIndex(final File file, final FileChannel channel, final int size,
+		final byte[] names, final int[] nameOffsets, final int[] hashes, final long[] offsets,
+		final long[] compressedSizes, final long[] sizes, final int[] crcs, final int[] dosTimes,
+		final short[] methods)
+	{
+		this.file = file;
+		this.channel = channel;
+		this.size = size;
+		this.names = names;
+		this.nameOffsets = nameOffsets;
+		this.hashes = hashes;
+		this.offsets = offsets;
+		this.compressedSizes = compressedSizes;
+		this.sizes = sizes;
+		this.crcs = crcs;
+		this.dosTimes = dosTimes;
+		this.methods = methods;
+		// a load factor of at most one half keeps the probe sequences short
+		this.table = new int[Math.max(Integer.highestOneBit(Math.max(size, 1)) << 2, 4)];
+		for (int i = 0; i < size; i++)
+		{
+			insert(i);
+		}
+	}
+
+	/**
+	 * Opens the given zip archive and builds the index from its central directory
+	 *
+	 * @param file
+	 *            the zip archive
+	 * @return the index of the zip archive
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public static ArchiveIndex open(final File file) throws IOException
+	{
+		final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try
+		{
+			return build(file, channel);
+		}
+		catch (IOException | RuntimeException e)
+		{
+			channel.close();
+			throw e;
+		}
+	}
+
+	private static ArchiveIndex build(final File file, final FileChannel channel)
+		throws IOException
+	{
+		final CentralDirectory directory = new CentralDirectory(file, channel);
+		final int size = directory.size();
+		final int[] nameOffsets = new int[size + 1];
+		final int[] hashes = new int[size];
+		final long[] offsets = new long[size];
+		final long[] compressedSizes = new long[size];
+		final long[] sizes = new long[size];
+		final int[] crcs = new int[size];
+		final int[] dosTimes = new int[size];
+		final short[] methods = new short[size];
+		byte[] names = new byte[Math.max(size * 32, 64)];
+		int namesLength = 0;
+		final CentralDirectory.Entry entry = directory.entries();
+		while (entry.next())
+		{
+			final int i = entry.getIndex();
+			final int nameLength = entry.getNameLength();
+			if (names.length - namesLength < nameLength)
+			{
+				names = Arrays.copyOf(names,
+					(int)Math.min(Math.max(names.length * 2L, namesLength + (long)nameLength),
+						Integer.MAX_VALUE - 8));
+			}
+			entry.getNameBytes(names, namesLength);
+			nameOffsets[i] = namesLength;
+			hashes[i] = hash(names, namesLength, nameLength);
+			namesLength += nameLength;
+			nameOffsets[i + 1] = namesLength;
+			offsets[i] = entry.getOffset();
+			compressedSizes[i] = entry.getCompressedSize();
+			sizes[i] = entry.getSize();
+			crcs[i] = (int)entry.getCrc();
+			dosTimes[i] = entry.getDosTime();
+			methods[i] = (short)entry.getMethod();
+		}
+		return new ArchiveIndex(file, channel, size, Arrays.copyOf(names, namesLength),
+			nameOffsets, hashes, offsets, compressedSizes, sizes, crcs, dosTimes, methods);
+	}
+
+	private static int hash(final byte[] bytes, final int offset, final int length)
+	{
+		int hash = 0;
+		for (int i = offset; i < offset + length; i++)
+		{
+			hash = 31 * hash + bytes[i];
+		}
+		return hash ^ (hash >>> 16);
+	}
+
+	private void insert(final int index)
+	{
+		final int mask = this.table.length - 1;
+		for (int slot = this.hashes[index] & mask;; slot = (slot + 1) & mask)
+		{
+			final int entry = this.table[slot] - 1;
+			if (entry < 0)
+			{
+				this.table[slot] = index + 1;
+				return;
+			}
+			if (nameEquals(entry, this.names, this.nameOffsets[index], getNameLength(index)))
+			{
+				// the first entry with a name wins
+				return;
+			}
+		}
+	}
+
+	private int getNameLength(final int index)
+	{
+		return this.nameOffsets[index + 1] - this.nameOffsets[index];
+	}
+
+	private boolean nameEquals(final int index, final byte[] name, final int offset,
+		final int length)
+	{
+		return Arrays.equals(this.names, this.nameOffsets[index], this.nameOffsets[index + 1],
+			name, offset, offset + length);
+	}
+
+	private boolean nameStartsWith(final int index, final byte[] prefix)
+	{
+		return prefix.length <= getNameLength(index)
+			&& Arrays.equals(this.names, this.nameOffsets[index],
+				this.nameOffsets[index] + prefix.length, prefix, 0, prefix.length);
+	}
+
+	/**
+	 * Gets the number of entries
+	 *
+	 * @return the number of entries
+	 */
+	public int size()
+	{
+		return this.size;
+	}
+
+	/**
+	 * Gets the zip archive of this index
+	 *
+	 * @return the zip archive
+	 */
+	public File getFile()
+	{
+		return this.file;
+	}
+
+	/**
+	 * Gets the index of the entry with the given name
+	 *
+	 * @param name
+	 *            the name of the entry
+	 * @return the index of the entry or -1 if the zip archive has no entry with the given name
+	 */
+	public int indexOf(final String name)
+	{
+		final byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+		final int hash = hash(bytes, 0, bytes.length);
+		final int mask = this.table.length - 1;
+		for (int slot = hash & mask;; slot = (slot + 1) & mask)
+		{
+			final int index = this.table[slot] - 1;
+			if (index < 0)
+			{
+				return -1;
+			}
+			if (this.hashes[index] == hash && nameEquals(index, bytes, 0, bytes.length))
+			{
+				return index;
+			}
+		}
+	}
+
+	/**
+	 * Finds the indexes of all entries whose name starts with the given prefix
+	 *
+	 * @param prefix
+	 *            the prefix of the names
+	 * @return the indexes of the found entries in the order of the central directory
+	 */
+	public int[] findByPrefix(final String prefix)
+	{
+		final byte[] bytes = prefix.getBytes(StandardCharsets.UTF_8);
+		int[] found = new int[16];
+		int count = 0;
+		for (int i = 0; i < this.size; i++)
+		{
+			if (nameStartsWith(i, bytes))
+			{
+				if (count == found.length)
+				{
+					found = Arrays.copyOf(found, count * 2);
+				}
+				found[count++] = i;
+			}
+		}
+		return Arrays.copyOf(found, count);
+	}
+
+	/**
+	 * Finds the indexes of all entries whose name matches the given glob pattern. A {@code *}
+	 * matches within a directory, a {@code **} matches across directories, a {@code ?} matches one
+	 * character and {@code {a,b}} matches one of the alternatives.
+	 *
+	 * @param glob
+	 *            the glob pattern
+	 * @return the indexes of the found entries in the order of the central directory
+	 */
+	public int[] findByGlob(final String glob)
+	{
+		final Matcher matcher = GlobPattern.compile(glob).matcher("");
+		final int[] candidates = findByPrefix(GlobPattern.getLiteralPrefix(glob));
+		int count = 0;
+		for (final int candidate : candidates)
+		{
+			if (matcher.reset(getName(candidate)).matches())
+			{
+				candidates[count++] = candidate;
+			}
+		}
+		return Arrays.copyOf(candidates, count);
+	}
+
+	/**
+	 * Gets the name of the entry with the given index
+	 *
+	 * @param index
+	 *            the index of the entry
+	 * @return the name of the entry
+	 */
+	public String getName(final int index)
+	{
+		return new String(this.names, this.nameOffsets[index], getNameLength(index),
+			StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Gets the size of the entry with the given index
+	 *
+	 * @param index
+	 *            the index of the entry
+	 * @return the uncompressed size of the entry
+	 */
+	public long getSize(final int index)
+	{
+		return this.sizes[index];
+	}
+
+	/**
+	 * Gets the compressed size of the entry with the given index
+	 *
+	 * @param index
+	 *            the index of the entry
+	 * @return the compressed size of the entry
+	 */
+	public long getCompressedSize(final int index)
+	{
+		return this.compressedSizes[index];
+	}
+
+	/**
+	 * Gets the crc-32 checksum of the entry with the given index
+	 *
+	 * @param index
+	 *            the index of the entry
+	 * @return the crc-32 checksum of the uncompressed content of the entry
+	 */
+	public long getCrc(final int index)
+	{
+		return this.crcs[index] & ZipChannelWriter.ZIP32_MAX;
+	}
+
+	/**
+	 * Gets the compression method of the entry with the given index
+	 *
+	 * @param index
+	 *            the index of the entry
+	 * @return the compression method of the entry
+	 */
+	public int getMethod(final int index)
+	{
+		return this.methods[index] & 0xffff;
+	}
+
+	/**
+	 * Gets the last modification time of the entry with the given index
+	 *
+	 * @param index
+	 *            the index of the entry
+	 * @return the last modification time in milliseconds since the epoch
+	 */
+	public long getTime(final int index)
+	{
+		return ZipChannelWriter.toJavaTime(this.dosTimes[index] & ZipChannelWriter.ZIP32_MAX);
+	}
+
+	/**
+	 * Gets the position of the local header of the entry with the given index
+	 *
+	 * @param index
+	 *            the index of the entry
+	 * @return the position of the local header in the zip archive
+	 */
+	public long getOffset(final int index)
+	{
+		return this.offsets[index];
+	}
+
+	/**
+	 * Checks if the entry with the given index is a directory
+	 *
+	 * @param index
+	 *            the index of the entry
+	 * @return true if the entry is a directory otherwise false
+	 */
+	public boolean isDirectory(final int index)
+	{
+		final int length = getNameLength(index);
+		return 0 < length && this.names[this.nameOffsets[index] + length - 1] == '/';
+	}
+
+	/**
+	 * Opens an input stream over the uncompressed content of the entry with the given index
+	 *
+	 * @param index
+	 *            the index of the entry
+	 * @return the input stream that has to be closed after use
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public InputStream getInputStream(final int index) throws IOException
+	{
+		return CentralDirectory.getInputStream(this.channel, this.offsets[index],
+			this.compressedSizes[index], getMethod(index));
+	}
+
+	/**
+	 * Opens an input stream over the uncompressed content of the entry with the given name
+	 *
+	 * @param name
+	 *            the name of the entry
+	 * @return the input stream that has to be closed after use
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred or the entry does not exist
+	 */
+	public InputStream getInputStream(final String name) throws IOException
+	{
+		final int index = indexOf(name);
+		if (index < 0)
+		{
+			throw new ZipException("The entry " + name + " does not exist in " + this.file);
+		}
+		return getInputStream(index);
+	}
+
+	/**
+	 * Extracts the entry with the given index to the given file
+	 *
+	 * @param index
+	 *            the index of the entry
+	 * @param file
+	 *            the file to write the content of the entry to
+	 * @return the number of extracted bytes
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public long extract(final int index, final File file) throws IOException
+	{
+		final File parent = file.getParentFile();
+		if (parent != null)
+		{
+			parent.mkdirs();
+		}
+		try (InputStream inputStream = getInputStream(index);
+			OutputStream outputStream = new FileOutputStream(file))
+		{
+			return ZipExtensions.copy(inputStream, outputStream,
+				new byte[ZipExtensions.DEFAULT_BUFFER_SIZE]);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		this.channel.close();
+	}
+}
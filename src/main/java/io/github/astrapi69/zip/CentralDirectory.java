@@ -0,0 +1,716 @@
+/**
+ * The MIT License
+ *
+ * Copyright (C) 2015 Asterios Raptis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.astrapi69.zip;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+/**
+ * The class {@link CentralDirectory} reads the central directory of a zip archive from a memory
+ * mapping of the file. In difference to {@link java.util.zip.ZipFile} no object is created per
+ * entry, the entries are read through an {@link Entry} cursor that is a view over the mapped
+ * bytes and decodes the name only on request. The mapped pages live in the page cache of the
+ * operating system and not in the java heap, so they are shared with other processes that read
+ * the same archive.
+ *
+ * @version 1.0
+ * @author Asterios Raptis
+ */
+public final class CentralDirectory implements Closeable
+{
+
+	/** The length of the fixed part of the local file header */
+	static final int LOCAL_HEADER_LENGTH = 30;
+
+	/** The length of the fixed part of the central directory file header */
+	static final int CENTRAL_HEADER_LENGTH = 46;
+
+	/** The length of the end of central directory record without the comment */
+	private static final int END_LENGTH = 22;
+
+	/** The length of the zip64 end of central directory locator */
+	private static final int ZIP64_LOCATOR_LENGTH = 20;
+
+	/** The length of the zip64 end of central directory record without extensible data */
+	private static final int ZIP64_END_LENGTH = 56;
+
+	/** The channel of the zip archive */
+	private final FileChannel channel;
+
+	/** The comment of the zip archive */
+	private final String comment;
+
+	/** The mapped central directory */
+	private final ByteBuffer directory;
+
+	/** The zip archive */
+	private final File file;
+
+	/** The position of the central directory in the zip archive */
+	private final long offset;
+
+	/** The number of entries */
+	private final int size;
+
+	/**
+	 * Instantiates a new {@link CentralDirectory} over the given channel. The channel is closed
+	 * with {@link #close()}.
+	 *
+	 * @param file
+	 *            the zip archive
+	 * @param channel
+	 *            the channel of the zip archive
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	CentralDirectory(final File file, final FileChannel channel) throws IOException
+	{
+		this.file = file;
+		this.channel = channel;
+		final long fileSize = channel.size();
+		final int tailLength = (int)Math.min(fileSize, END_LENGTH + ZipChannelWriter.ZIP16_MAX);
+		final long tailPosition = fileSize - tailLength;
+		final ByteBuffer tail = channel.map(FileChannel.MapMode.READ_ONLY, tailPosition, tailLength)
+			.order(ByteOrder.LITTLE_ENDIAN);
+		int end = tailLength - END_LENGTH;
+		while (0 <= end && (tail.getInt(end) != ZipChannelWriter.END_OF_CENTRAL_DIRECTORY_SIGNATURE
+			|| end + END_LENGTH + (tail.getShort(end + 20) & 0xffff) != tailLength))
+		{
+			end--;
+		}
+		if (end < 0)
+		{
+			throw new ZipException("The end of central directory record is not found in " + file);
+		}
+		final byte[] commentBytes = new byte[tail.getShort(end + 20) & 0xffff];
+		tail.get(end + END_LENGTH, commentBytes);
+		this.comment = new String(commentBytes, StandardCharsets.UTF_8);
+		long entryCount = tail.getShort(end + 10) & 0xffff;
+		long directorySize = tail.getInt(end + 12) & ZipChannelWriter.ZIP32_MAX;
+		long directoryOffset = tail.getInt(end + 16) & ZipChannelWriter.ZIP32_MAX;
+		final long endPosition = tailPosition + end;
+		if ((entryCount == ZipChannelWriter.ZIP16_MAX || directorySize == ZipChannelWriter.ZIP32_MAX
+			|| directoryOffset == ZipChannelWriter.ZIP32_MAX)
+			&& ZIP64_LOCATOR_LENGTH <= endPosition)
+		{
+			final ByteBuffer locator = read(channel, endPosition - ZIP64_LOCATOR_LENGTH,
+				ZIP64_LOCATOR_LENGTH);
+			if (locator.getInt(0) == ZipChannelWriter.ZIP64_LOCATOR_SIGNATURE)
+			{
+				final ByteBuffer zip64End = read(channel, locator.getLong(8), ZIP64_END_LENGTH);
+				if (zip64End.getInt(0) != ZipChannelWriter.ZIP64_END_OF_CENTRAL_DIRECTORY_SIGNATURE)
+				{
+					throw new ZipException("The zip64 end of central directory record is invalid");
+				}
+				entryCount = zip64End.getLong(32);
+				directorySize = zip64End.getLong(40);
+				directoryOffset = zip64End.getLong(48);
+			}
+		}
+		if (Integer.MAX_VALUE - 8 < entryCount || Integer.MAX_VALUE < directorySize
+			|| fileSize < directoryOffset + directorySize)
+		{
+			throw new ZipException("The central directory of " + file + " is invalid or too large");
+		}
+		this.size = (int)entryCount;
+		this.offset = directoryOffset;
+		this.directory = channel
+			.map(FileChannel.MapMode.READ_ONLY, directoryOffset, directorySize)
+			.order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/**
+	 * Opens the given zip archive and maps its central directory
+	 *
+	 * @param file
+	 *            the zip archive
+	 * @return the central directory of the zip archive
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public static CentralDirectory open(final File file) throws IOException
+	{
+		final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try
+		{
+			return new CentralDirectory(file, channel);
+		}
+		catch (IOException | RuntimeException e)
+		{
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Reads the given range of the given channel into a new little endian buffer
+	 *
+	 * @param channel
+	 *            the channel to read from
+	 * @param position
+	 *            the position of the range
+	 * @param length
+	 *            the length of the range
+	 * @return the buffer with the read bytes
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	static ByteBuffer read(final FileChannel channel, final long position, final int length)
+		throws IOException
+	{
+		final ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+		while (buffer.hasRemaining())
+		{
+			if (channel.read(buffer, position + buffer.position()) < 0)
+			{
+				throw new EOFException("Unexpected end of zip archive at position "
+					+ (position + buffer.position()));
+			}
+		}
+		return buffer.clear();
+	}
+
+	/**
+	 * Gets the position of the content of an entry from its local header
+	 *
+	 * @param channel
+	 *            the channel of the zip archive
+	 * @param offset
+	 *            the position of the local header of the entry
+	 * @return the position of the content of the entry
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	static long getDataOffset(final FileChannel channel, final long offset) throws IOException
+	{
+		final ByteBuffer header = read(channel, offset, LOCAL_HEADER_LENGTH);
+		if (header.getInt(0) != ZipChannelWriter.LOCAL_HEADER_SIGNATURE)
+		{
+			throw new ZipException("Invalid local header at position " + offset);
+		}
+		return offset + LOCAL_HEADER_LENGTH + (header.getShort(26) & 0xffff)
+			+ (header.getShort(28) & 0xffff);
+	}
+
+	/**
+	 * Opens an input stream over the uncompressed content of an entry
+	 *
+	 * @param channel
+	 *            the channel of the zip archive
+	 * @param offset
+	 *            the position of the local header of the entry
+	 * @param compressedSize
+	 *            the compressed size of the entry
+	 * @param method
+	 *            the compression method of the entry
+	 * @return the input stream that has to be closed after use
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	static InputStream getInputStream(final FileChannel channel, final long offset,
+		final long compressedSize, final int method) throws IOException
+	{
+		final InputStream rawInputStream = new ChannelInputStream(channel,
+			getDataOffset(channel, offset), compressedSize);
+		switch (method)
+		{
+			case ZipEntry.STORED :
+				return rawInputStream;
+			case ZipEntry.DEFLATED :
+				final Inflater inflater = new Inflater(true);
+				return new InflaterInputStream(rawInputStream, inflater,
+					ZipExtensions.DEFAULT_BUFFER_SIZE)
+				{
+					@Override
+					public void close() throws IOException
+					{
+						super.close();
+						inflater.end();
+					}
+				};
+			default :
+				throw new ZipException("The compression method " + method
+					+ " of the entry at position " + offset + " is not supported");
+		}
+	}
+
+	/**
+	 * Gets the number of entries
+	 *
+	 * @return the number of entries
+	 */
+	public int size()
+	{
+		return this.size;
+	}
+
+	/**
+	 * Gets the zip archive
+	 *
+	 * @return the zip archive
+	 */
+	public File getFile()
+	{
+		return this.file;
+	}
+
+	/**
+	 * Gets the comment of the zip archive
+	 *
+	 * @return the comment of the zip archive
+	 */
+	public String getComment()
+	{
+		return this.comment;
+	}
+
+	/**
+	 * Gets the position of the central directory in the zip archive, all entries are in front of
+	 * this position
+	 *
+	 * @return the position of the central directory
+	 */
+	long getOffset()
+	{
+		return this.offset;
+	}
+
+	/**
+	 * Gets the channel of the zip archive
+	 *
+	 * @return the channel of the zip archive
+	 */
+	FileChannel getChannel()
+	{
+		return this.channel;
+	}
+
+	/**
+	 * Creates a new cursor that is positioned before the first entry, the cursor is moved with
+	 * {@link Entry#next()}
+	 *
+	 * @return the new cursor
+	 */
+	public Entry entries()
+	{
+		return new Entry();
+	}
+
+	/**
+	 * Finds the first entry with the given name
+	 *
+	 * @param name
+	 *            the name of the entry
+	 * @return the cursor positioned at the found entry or null if no entry has the given name
+	 * @throws ZipException
+	 *             if the central directory is invalid
+	 */
+	public Entry find(final String name) throws ZipException
+	{
+		final byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+		final Entry entry = entries();
+		while (entry.next())
+		{
+			if (entry.nameEquals(bytes, 0, bytes.length))
+			{
+				return entry;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Opens an input stream over the uncompressed content of the entry at the given cursor
+	 *
+	 * @param entry
+	 *            the cursor positioned at the entry
+	 * @return the input stream that has to be closed after use
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public InputStream getInputStream(final Entry entry) throws IOException
+	{
+		return getInputStream(this.channel, entry.getOffset(), entry.getCompressedSize(),
+			entry.getMethod());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		this.channel.close();
+	}
+
+	/**
+	 * A cursor over the entries of the central directory. All values are read from the mapped
+	 * bytes of the current entry, so the values change if the cursor is moved.
+	 */
+	public final class Entry
+	{
+
+		/** The decoder for names that are not ascii */
+		private CharsetDecoder decoder;
+
+		/** The index of the current entry or -1 before the first entry */
+		private int index = -1;
+
+		/** The reusable buffer of the decoded name */
+		private CharBuffer nameChars = CharBuffer.allocate(256);
+
+		/** The flag if the name of the current entry is decoded into the name buffer */
+		private boolean nameDecoded;
+
+		/** The position of the next entry in the central directory */
+		private int nextPosition;
+
+		/** The position of the current entry in the central directory */
+		private int position;
+
+		private Entry()
+		{
+		}
+
+		/**
+		 * Moves this cursor to the next entry
+		 *
+		 * @return true if the cursor is at an entry or false if there are no more entries
+		 * @throws ZipException
+		 *             if the central directory is invalid
+		 */
+		public boolean next() throws ZipException
+		{
+			if (size <= this.index + 1)
+			{
+				this.index = size;
+				return false;
+			}
+			final int next = this.nextPosition;
+			if (directory.limit() < next + CENTRAL_HEADER_LENGTH
+				|| directory.getInt(next) != ZipChannelWriter.CENTRAL_HEADER_SIGNATURE)
+			{
+				throw new ZipException("The central directory of " + file
+					+ " is invalid at entry " + (this.index + 1));
+			}
+			this.index++;
+			this.position = next;
+			this.nextPosition = next + CENTRAL_HEADER_LENGTH + getNameLength()
+				+ (directory.getShort(next + 30) & 0xffff)
+				+ (directory.getShort(next + 32) & 0xffff);
+			this.nameDecoded = false;
+			return true;
+		}
+
+		/**
+		 * Gets the index of the current entry in the central directory
+		 *
+		 * @return the index of the current entry
+		 */
+		public int getIndex()
+		{
+			return this.index;
+		}
+
+		/**
+		 * Gets the name of the current entry as a new string
+		 *
+		 * @return the name of the current entry
+		 */
+		public String getName()
+		{
+			return getNameChars().toString();
+		}
+
+		/**
+		 * Gets the name of the current entry as a character sequence without creating a new
+		 * object. The returned sequence is reused and changes if the cursor is moved.
+		 *
+		 * @return the name of the current entry
+		 */
+		public CharSequence getNameChars()
+		{
+			if (!this.nameDecoded)
+			{
+				decodeName();
+				this.nameDecoded = true;
+			}
+			return this.nameChars;
+		}
+
+		private void decodeName()
+		{
+			final int start = getNameStart();
+			final int length = getNameLength();
+			if (this.nameChars.capacity() < length)
+			{
+				this.nameChars = CharBuffer
+					.allocate(Math.max(length, this.nameChars.capacity() * 2));
+			}
+			this.nameChars.clear();
+			for (int i = start; i < start + length; i++)
+			{
+				final byte b = directory.get(i);
+				if (b < 0)
+				{
+					// not ascii, decode the whole name as utf-8
+					if (this.decoder == null)
+					{
+						this.decoder = StandardCharsets.UTF_8.newDecoder()
+							.onMalformedInput(CodingErrorAction.REPLACE)
+							.onUnmappableCharacter(CodingErrorAction.REPLACE);
+					}
+					this.nameChars.clear();
+					this.decoder.reset();
+					this.decoder.decode(directory.slice(start, length), this.nameChars, true);
+					this.decoder.flush(this.nameChars);
+					break;
+				}
+				this.nameChars.put((char)b);
+			}
+			this.nameChars.flip();
+		}
+
+		/**
+		 * Gets the position of the encoded name in the central directory
+		 *
+		 * @return the position of the encoded name
+		 */
+		int getNameStart()
+		{
+			return this.position + CENTRAL_HEADER_LENGTH;
+		}
+
+		/**
+		 * Gets the length of the encoded name
+		 *
+		 * @return the length of the encoded name
+		 */
+		int getNameLength()
+		{
+			return directory.getShort(this.position + 28) & 0xffff;
+		}
+
+		/**
+		 * Copies the encoded name of the current entry to the given array
+		 *
+		 * @param destination
+		 *            the array to copy to
+		 * @param offset
+		 *            the position in the array
+		 */
+		void getNameBytes(final byte[] destination, final int offset)
+		{
+			directory.get(getNameStart(), destination, offset, getNameLength());
+		}
+
+		/**
+		 * Checks if the encoded name of the current entry equals the given bytes
+		 *
+		 * @param bytes
+		 *            the array with the utf-8 encoded name
+		 * @param offset
+		 *            the position of the name in the array
+		 * @param length
+		 *            the length of the encoded name
+		 * @return true if the names are equal otherwise false
+		 */
+		boolean nameEquals(final byte[] bytes, final int offset, final int length)
+		{
+			return length == getNameLength() && nameRegionEquals(bytes, offset, length);
+		}
+
+		/**
+		 * Checks if the encoded name of the current entry starts with the given bytes
+		 *
+		 * @param prefix
+		 *            the utf-8 encoded prefix
+		 * @return true if the name starts with the prefix otherwise false
+		 */
+		boolean nameStartsWith(final byte[] prefix)
+		{
+			return prefix.length <= getNameLength()
+				&& nameRegionEquals(prefix, 0, prefix.length);
+		}
+
+		private boolean nameRegionEquals(final byte[] bytes, final int offset, final int length)
+		{
+			final int start = getNameStart();
+			for (int i = 0; i < length; i++)
+			{
+				if (directory.get(start + i) != bytes[offset + i])
+				{
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Checks if the current entry is a directory
+		 *
+		 * @return true if the current entry is a directory otherwise false
+		 */
+		public boolean isDirectory()
+		{
+			final int length = getNameLength();
+			return 0 < length && directory.get(getNameStart() + length - 1) == '/';
+		}
+
+		/**
+		 * Gets the general purpose flags of the current entry
+		 *
+		 * @return the general purpose flags
+		 */
+		int getFlags()
+		{
+			return directory.getShort(this.position + 8) & 0xffff;
+		}
+
+		/**
+		 * Gets the compression method of the current entry
+		 *
+		 * @return the compression method
+		 */
+		public int getMethod()
+		{
+			return directory.getShort(this.position + 10) & 0xffff;
+		}
+
+		/**
+		 * Gets the ms-dos date and time of the current entry
+		 *
+		 * @return the ms-dos date in the high and the ms-dos time in the low 16 bits
+		 */
+		int getDosTime()
+		{
+			return directory.getInt(this.position + 12);
+		}
+
+		/**
+		 * Gets the last modification time of the current entry
+		 *
+		 * @return the last modification time in milliseconds since the epoch
+		 */
+		public long getTime()
+		{
+			return ZipChannelWriter.toJavaTime(getDosTime() & ZipChannelWriter.ZIP32_MAX);
+		}
+
+		/**
+		 * Gets the crc-32 checksum of the current entry
+		 *
+		 * @return the crc-32 checksum of the uncompressed content
+		 */
+		public long getCrc()
+		{
+			return directory.getInt(this.position + 16) & ZipChannelWriter.ZIP32_MAX;
+		}
+
+		/**
+		 * Gets the compressed size of the current entry
+		 *
+		 * @return the compressed size
+		 */
+		public long getCompressedSize()
+		{
+			final long compressedSize = directory.getInt(this.position + 20)
+				& ZipChannelWriter.ZIP32_MAX;
+			return compressedSize == ZipChannelWriter.ZIP32_MAX
+				? getZip64Value(isZip64(24) ? 1 : 0)
+				: compressedSize;
+		}
+
+		/**
+		 * Gets the uncompressed size of the current entry
+		 *
+		 * @return the uncompressed size
+		 */
+		public long getSize()
+		{
+			final long entrySize = directory.getInt(this.position + 24)
+				& ZipChannelWriter.ZIP32_MAX;
+			return entrySize == ZipChannelWriter.ZIP32_MAX ? getZip64Value(0) : entrySize;
+		}
+
+		/**
+		 * Gets the position of the local header of the current entry
+		 *
+		 * @return the position of the local header in the zip archive
+		 */
+		public long getOffset()
+		{
+			final long offset = directory.getInt(this.position + 42) & ZipChannelWriter.ZIP32_MAX;
+			return offset == ZipChannelWriter.ZIP32_MAX
+				? getZip64Value((isZip64(24) ? 1 : 0) + (isZip64(20) ? 1 : 0))
+				: offset;
+		}
+
+		private boolean isZip64(final int field)
+		{
+			return (directory.getInt(this.position + field)
+				& ZipChannelWriter.ZIP32_MAX) == ZipChannelWriter.ZIP32_MAX;
+		}
+
+		/**
+		 * Gets a value of the zip64 extended information extra field of the current entry
+		 *
+		 * @param ordinal
+		 *            the number of values in front of the value
+		 * @return the value
+		 */
+		private long getZip64Value(final int ordinal)
+		{
+			final int extraStart = getNameStart() + getNameLength();
+			final int extraEnd = extraStart + (directory.getShort(this.position + 30) & 0xffff);
+			for (int extra = extraStart; extra + 4 <= extraEnd;)
+			{
+				final int length = directory.getShort(extra + 2) & 0xffff;
+				if ((directory.getShort(extra) & 0xffff) == ZipChannelWriter.ZIP64_EXTRA_ID
+					&& 8 * (ordinal + 1) <= length)
+				{
+					return directory.getLong(extra + 4 + 8 * ordinal);
+				}
+				extra += 4 + length;
+			}
+			return ZipChannelWriter.ZIP32_MAX;
+		}
+	}
+}
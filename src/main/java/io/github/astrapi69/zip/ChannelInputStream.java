@@ -0,0 +1,116 @@
+/**
+ * The MIT License
+ *
+ * Copyright (C) 2015 Asterios Raptis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.astrapi69.zip;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * An input stream over a range of a file channel that reads with positioned reads, so many
+ * streams can read concurrently from the same channel
+ */
+final class ChannelInputStream extends InputStream
+{
+
+	/** The channel to read from */
+	private final FileChannel channel;
+
+	/** The position after the last byte of the range */
+	private final long end;
+
+	/** The position of the next byte to read */
+	private long position;
+
+	/**
+	 * Instantiates a new {@link ChannelInputStream}
+	 *
+	 * @param channel
+	 *            the channel to read from
+	 * @param position
+	 *            the position of the first byte of the range
+	 * @param length
+	 *            the length of the range
+	 */
+	ChannelInputStream(final FileChannel channel, final long position, final long length)
+	{
+		this.channel = channel;
+		this.position = position;
+		this.end = position + length;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int read() throws IOException
+	{
+		final byte[] single = new byte[1];
+		return read(single, 0, 1) < 0 ? -1 : single[0] & 0xff;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int read(final byte[] bytes, final int offset, final int length) throws IOException
+	{
+		if (this.end <= this.position)
+		{
+			return -1;
+		}
+		final int count = this.channel.read(
+			ByteBuffer.wrap(bytes, offset, (int)Math.min(length, this.end - this.position)),
+			this.position);
+		if (count < 0)
+		{
+			throw new EOFException("Unexpected end of zip archive at position " + this.position);
+		}
+		this.position += count;
+		return count;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long skip(final long count)
+	{
+		final long skipped = Math.max(0, Math.min(count, this.end - this.position));
+		this.position += skipped;
+		return skipped;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int available()
+	{
+		return (int)Math.min(this.end - this.position, Integer.MAX_VALUE);
+	}
+}
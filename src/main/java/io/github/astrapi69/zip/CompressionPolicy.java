@@ -0,0 +1,61 @@
+/**
+ * The MIT License
+ *
+ * Copyright (C) 2015 Asterios Raptis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.astrapi69.zip;
+
+import java.io.File;
+
+/**
+ * The {@code CompressionPolicy} interface decides the compression level of every entry that a
+ * {@link Zipper} writes. The decision is based on the file and a sample of its first bytes, a
+ * level of {@link #STORED_LEVEL} stores the entry without compression.
+ *
+ * @version 1.0
+ * @author Asterios Raptis
+ */
+@FunctionalInterface
+public interface CompressionPolicy
+{
+
+	/** The maximum number of bytes of the sample that is given to the policy */
+	int SAMPLE_SIZE = 64 * 1024;
+
+	/** The level that stores an entry without compression */
+	int STORED_LEVEL = 0;
+
+	/**
+	 * Gets the compression level of the given file
+	 *
+	 * @param file
+	 *            the file to zip
+	 * @param sample
+	 *            the array with the first bytes of the file
+	 * @param length
+	 *            the number of bytes in the sample, less than {@link #SAMPLE_SIZE} only if the
+	 *            file is smaller
+	 * @return the compression level from 1 to 9, -1 for the default level of the deflater or
+	 *         {@link #STORED_LEVEL} for no compression, the zipping fails with any other level
+	 */
+	int getLevel(File file, byte[] sample, int length);
+}
@@ -0,0 +1,249 @@
+/**
+ * The MIT License
+ *
+ * Copyright (C) 2015 Asterios Raptis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.astrapi69.zip;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The class {@link EntryFilter} selects the entries of a zip archive by include and exclude
+ * patterns of the entry name and by a predicate over the entry metadata. An entry is selected if
+ * it matches one of the include patterns or no include pattern is added, matches none of the
+ * exclude patterns and fulfils the predicate. The patterns are compiled once and the entries are
+ * checked on the cursor of the central directory, so a glob or regular expression pattern does
+ * not create an object per entry. A glob pattern rejects an entry by the literal prefix of the
+ * pattern before the name is decoded.
+ * <p>
+ * The matchers of the patterns are reused, so a filter must not be used by several threads at the
+ * same time.
+ *
+ * @version 1.0
+ * @author Asterios Raptis
+ */
+public final class EntryFilter
+{
+
+	/** The patterns of the entries that are excluded */
+	private final List<NamePattern> excludes = new ArrayList<>();
+
+	/** The patterns of the entries that are included */
+	private final List<NamePattern> includes = new ArrayList<>();
+
+	/** The predicate over the entry metadata */
+	private Predicate<CentralDirectory.Entry> predicate = entry -> true;
+
+	/**
+	 * Instantiates a new {@link EntryFilter} that selects all entries
+	 */
+	public EntryFilter()
+	{
+	}
+
+	/**
+	 * Adds the given glob pattern to the include patterns. The pattern is matched against the
+	 * whole entry name, the wildcard <code>*</code> does not match a slash and the wildcard
+	 * <code>**</code> matches any number of directories.
+	 *
+	 * @param glob
+	 *            the glob pattern, for instance <code>config/**&#47;*.xml</code>
+	 * @return this filter for method chaining
+	 */
+	public EntryFilter include(final String glob)
+	{
+		this.includes.add(NamePattern.ofGlob(glob));
+		return this;
+	}
+
+	/**
+	 * Adds the given regular expression to the include patterns. The regular expression is
+	 * matched against the whole entry name.
+	 *
+	 * @param regex
+	 *            the regular expression
+	 * @return this filter for method chaining
+	 */
+	public EntryFilter includeRegex(final String regex)
+	{
+		this.includes.add(NamePattern.of(Pattern.compile(regex), ""));
+		return this;
+	}
+
+	/**
+	 * Adds the given path matcher to the include patterns. Note that the path matcher needs a new
+	 * path object for every entry.
+	 *
+	 * @param matcher
+	 *            the path matcher
+	 * @return this filter for method chaining
+	 */
+	public EntryFilter include(final PathMatcher matcher)
+	{
+		this.includes.add(NamePattern.of(matcher));
+		return this;
+	}
+
+	/**
+	 * Adds the given glob pattern to the exclude patterns
+	 *
+	 * @param glob
+	 *            the glob pattern
+	 * @return this filter for method chaining
+	 * @see #include(String)
+	 */
+	public EntryFilter exclude(final String glob)
+	{
+		this.excludes.add(NamePattern.ofGlob(glob));
+		return this;
+	}
+
+	/**
+	 * Adds the given regular expression to the exclude patterns
+	 *
+	 * @param regex
+	 *            the regular expression
+	 * @return this filter for method chaining
+	 * @see #includeRegex(String)
+	 */
+	public EntryFilter excludeRegex(final String regex)
+	{
+		this.excludes.add(NamePattern.of(Pattern.compile(regex), ""));
+		return this;
+	}
+
+	/**
+	 * Adds the given path matcher to the exclude patterns
+	 *
+	 * @param matcher
+	 *            the path matcher
+	 * @return this filter for method chaining
+	 * @see #include(PathMatcher)
+	 */
+	public EntryFilter exclude(final PathMatcher matcher)
+	{
+		this.excludes.add(NamePattern.of(matcher));
+		return this;
+	}
+
+	/**
+	 * Adds the given predicate over the entry metadata like the size, the time or the compression
+	 * method. An entry is only selected if it fulfils all added predicates. The given cursor is
+	 * moved after the check, so the predicate must not keep a reference to it.
+	 *
+	 * @param predicate
+	 *            the predicate over the entry metadata
+	 * @return this filter for method chaining
+	 */
+	public EntryFilter where(final Predicate<CentralDirectory.Entry> predicate)
+	{
+		this.predicate = this.predicate.and(Objects.requireNonNull(predicate));
+		return this;
+	}
+
+	/**
+	 * Checks if the entry at the given cursor is selected by this filter
+	 *
+	 * @param entry
+	 *            the cursor positioned at the entry
+	 * @return true if the entry is selected otherwise false
+	 */
+	public boolean accept(final CentralDirectory.Entry entry)
+	{
+		return (this.includes.isEmpty() || matchesAny(this.includes, entry))
+			&& !matchesAny(this.excludes, entry) && this.predicate.test(entry);
+	}
+
+	private static boolean matchesAny(final List<NamePattern> patterns,
+		final CentralDirectory.Entry entry)
+	{
+		for (final NamePattern pattern : patterns)
+		{
+			if (pattern.matches(entry))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * A compiled pattern of the entry name with the reused matcher
+	 */
+	private static final class NamePattern
+	{
+
+		/** The matcher of the regular expression or null for a path matcher */
+		private final Matcher matcher;
+
+		/** The path matcher or null for a regular expression */
+		private final PathMatcher pathMatcher;
+
+		/** The utf-8 encoded prefix of all matching names */
+		private final byte[] prefix;
+
+		private NamePattern(final Matcher matcher, final PathMatcher pathMatcher,
+			final byte[] prefix)
+		{
+			this.matcher = matcher;
+			this.pathMatcher = pathMatcher;
+			this.prefix = prefix;
+		}
+
+		static NamePattern of(final Pattern pattern, final String prefix)
+		{
+			return new NamePattern(pattern.matcher(""), null,
+				prefix.getBytes(StandardCharsets.UTF_8));
+		}
+
+		static NamePattern of(final PathMatcher pathMatcher)
+		{
+			return new NamePattern(null, Objects.requireNonNull(pathMatcher), new byte[0]);
+		}
+
+		static NamePattern ofGlob(final String glob)
+		{
+			return of(GlobPattern.compile(glob), GlobPattern.getLiteralPrefix(glob));
+		}
+
+		boolean matches(final CentralDirectory.Entry entry)
+		{
+			if (this.prefix.length != 0 && !entry.nameStartsWith(this.prefix))
+			{
+				return false;
+			}
+			if (this.pathMatcher != null)
+			{
+				return this.pathMatcher.matches(Paths.get(entry.getName()));
+			}
+			return this.matcher.reset(entry.getNameChars()).matches();
+		}
+	}
+}
@@ -0,0 +1,321 @@
+/**
+ * The MIT License
+ *
+ * Copyright (C) 2015 Asterios Raptis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.astrapi69.zip;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * The class {@link FileWalker} discovers the files of a directory tree on background threads and
+ * hands them out through a bounded queue, so the discovery overlaps with the compression of the
+ * files that are already found. Every directory is read once with a directory stream and the
+ * subdirectories are listed concurrently ahead of the walk, while the files are handed out in the
+ * same depth first order as a serial walk, so the content of a zip archive does not depend on the
+ * timing of the threads. Only a window of as many subdirectories as there are lister threads is
+ * listed ahead on every level, so the retained listings grow with the depth of the tree and not
+ * with its width.
+ */
+final class FileWalker implements Closeable
+{
+
+	/** The default number of threads that list directories */
+	static final int DEFAULT_PARALLELISM = 4;
+
+	/** The default number of found files that wait for the consumer */
+	static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+	/** The marker for the end of the walk */
+	private static final FoundFile END = new FoundFile(null, 0, false);
+
+	/** The file filter or null for all files */
+	private final FilenameFilter fileFilter;
+
+	/** The threads that list the directories */
+	private final ExecutorService listers;
+
+	/** The number of subdirectories of a directory that are listed ahead of the walk */
+	private final int lookahead;
+
+	/** The thread that walks the directory tree */
+	private final Thread walker;
+
+	/** The found files in the order of the walk */
+	private final BlockingQueue<FoundFile> queue;
+
+	/** The exception that stopped the walk */
+	private volatile IOException failure;
+
+	/**
+	 * Instantiates a new {@link FileWalker} and starts the walk
+	 *
+	 * @param start
+	 *            the directory or file to walk
+	 * @param fileFilter
+	 *            the file filter or null for all files, directories are always walked
+	 * @param parallelism
+	 *            the number of threads that list directories
+	 * @param capacity
+	 *            the number of found files that wait for the consumer
+	 */
+	FileWalker(final File start, final FilenameFilter fileFilter, final int parallelism,
+		final int capacity)
+	{
+		this.fileFilter = fileFilter;
+		this.lookahead = Math.max(parallelism, 1);
+		this.queue = new ArrayBlockingQueue<>(Math.max(capacity, 1));
+		this.listers = Executors.newFixedThreadPool(Math.max(parallelism, 1), runnable -> {
+			final Thread thread = new Thread(runnable, "zip-worker-lister");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.walker = new Thread(() -> walk(start), "zip-worker-walker");
+		this.walker.setDaemon(true);
+		this.walker.start();
+	}
+
+	/**
+	 * Waits for the next found file
+	 *
+	 * @return the next found file or null if all files are found
+	 * @throws IOException
+	 *             if a directory can not be read
+	 */
+	FoundFile next() throws IOException
+	{
+		final FoundFile foundFile;
+		try
+		{
+			foundFile = this.queue.take();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			final InterruptedIOException exception = new InterruptedIOException(
+				"Interrupted while waiting for the next file");
+			exception.initCause(e);
+			throw exception;
+		}
+		if (foundFile == END)
+		{
+			this.queue.offer(END);
+			if (this.failure != null)
+			{
+				throw this.failure;
+			}
+			return null;
+		}
+		return foundFile;
+	}
+
+	/**
+	 * Walks the given directory or file and puts the end marker at the end
+	 *
+	 * @param start
+	 *            the directory or file to walk
+	 */
+	private void walk(final File start)
+	{
+		try
+		{
+			try
+			{
+				if (start.isDirectory())
+				{
+					walk(list(start.toPath()));
+				}
+				else
+				{
+					this.queue.put(new FoundFile(start, start.length(), false));
+				}
+			}
+			catch (IOException e)
+			{
+				this.failure = e;
+			}
+			catch (RuntimeException e)
+			{
+				this.failure = new IOException(e);
+			}
+			this.queue.put(END);
+		}
+		catch (InterruptedException e)
+		{
+			// the walker is closed
+		}
+	}
+
+	/**
+	 * Walks the given entries of a directory in order. The listing of the first subdirectories is
+	 * started before the first entry is handed out, and whenever the walk enters a subdirectory
+	 * the listing of the next subdirectory after the window is started.
+	 *
+	 * @param entries
+	 *            the entries of a directory
+	 * @throws IOException
+	 *             if a directory can not be read
+	 * @throws InterruptedException
+	 *             if the walker is closed
+	 */
+	private void walk(final List<FoundFile> entries) throws IOException, InterruptedException
+	{
+		final List<FoundFile> directories = new ArrayList<>();
+		for (final FoundFile entry : entries)
+		{
+			if (entry.directory)
+			{
+				directories.add(entry);
+			}
+		}
+		final Queue<Future<List<FoundFile>>> listings = new ArrayDeque<>(this.lookahead);
+		int submitted = 0;
+		for (; submitted < directories.size() && submitted < this.lookahead; submitted++)
+		{
+			listings.add(this.submit(directories.get(submitted)));
+		}
+		for (final FoundFile entry : entries)
+		{
+			if (entry.directory)
+			{
+				final List<FoundFile> listing = ZipExtensions.await(listings.remove());
+				if (submitted < directories.size())
+				{
+					listings.add(this.submit(directories.get(submitted++)));
+				}
+				walk(listing);
+			}
+			else
+			{
+				this.queue.put(entry);
+			}
+		}
+	}
+
+	/**
+	 * Starts the listing of the given directory on a lister thread
+	 *
+	 * @param directory
+	 *            the directory to list
+	 * @return the future of the entries of the directory
+	 */
+	private Future<List<FoundFile>> submit(final FoundFile directory)
+	{
+		return this.listers.submit(() -> list(directory.file.toPath()));
+	}
+
+	/**
+	 * Lists the given directory with one directory stream. Without a file filter the entries are
+	 * in the order of the directory stream, with a file filter all subdirectories come first and
+	 * then the accepted files.
+	 *
+	 * @param directory
+	 *            the directory to list
+	 * @return the entries of the directory
+	 * @throws IOException
+	 *             if the directory can not be read
+	 */
+	private List<FoundFile> list(final Path directory) throws IOException
+	{
+		final List<FoundFile> entries = new ArrayList<>();
+		final List<FoundFile> files = new ArrayList<>();
+		final File parent = directory.toFile();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory))
+		{
+			for (final Path path : stream)
+			{
+				final File file = path.toFile();
+				BasicFileAttributes attributes;
+				try
+				{
+					attributes = Files.readAttributes(path, BasicFileAttributes.class);
+				}
+				catch (IOException e)
+				{
+					// a broken link is handed out as file and fails when it is read
+					attributes = null;
+				}
+				if (attributes != null && attributes.isDirectory())
+				{
+					entries.add(new FoundFile(file, 0, true));
+				}
+				else if (this.fileFilter == null)
+				{
+					entries.add(new FoundFile(file, attributes != null ? attributes.size() : 0,
+						false));
+				}
+				else if (this.fileFilter.accept(parent, file.getName()))
+				{
+					files.add(new FoundFile(file, attributes != null ? attributes.size() : 0,
+						false));
+				}
+			}
+		}
+		entries.addAll(files);
+		return entries;
+	}
+
+	/**
+	 * Stops the walk and the threads that list the directories
+	 */
+	@Override
+	public void close()
+	{
+		this.walker.interrupt();
+		this.listers.shutdownNow();
+		this.queue.clear();
+	}
+
+	/**
+	 * A file or directory that is found from the walker
+	 */
+	static final class FoundFile
+	{
+		final boolean directory;
+		final File file;
+		final long size;
+
+		FoundFile(final File file, final long size, final boolean directory)
+		{
+			this.file = file;
+			this.size = size;
+			this.directory = directory;
+		}
+	}
+}
@@ -0,0 +1,155 @@
+/**
+ * The MIT License
+ *
+ * Copyright (C) 2015 Asterios Raptis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.astrapi69.zip;
+
+import java.util.regex.Pattern;
+
+/**
+ * The class {@link GlobPattern} converts glob patterns for the names of zip entries to regular
+ * expressions. A {@code *} matches any characters except the separator {@code /}, a {@code **}
+ * matches any characters including the separator, a {@code ?} matches one character except the
+ * separator, {@code [abc]} and {@code [!abc]} match a character of a class and {@code {a,b}}
+ * matches one of the alternatives.
+ */
+final class GlobPattern
+{
+
+	/** The characters that have a special meaning in a regular expression */
+	private static final String REGEX_META_CHARACTERS = ".^$+()|\\{}[]*?";
+
+	private GlobPattern()
+	{
+	}
+
+	/**
+	 * Compiles the given glob pattern to a regular expression
+	 *
+	 * @param glob
+	 *            the glob pattern
+	 * @return the compiled regular expression
+	 */
+	static Pattern compile(final String glob)
+	{
+		final StringBuilder regex = new StringBuilder(glob.length() * 2);
+		boolean inGroup = false;
+		for (int i = 0; i < glob.length(); i++)
+		{
+			final char c = glob.charAt(i);
+			switch (c)
+			{
+				case '*' :
+					if (i + 1 < glob.length() && glob.charAt(i + 1) == '*')
+					{
+						regex.append(".*");
+						i++;
+					}
+					else
+					{
+						regex.append("[^/]*");
+					}
+					break;
+				case '?' :
+					regex.append("[^/]");
+					break;
+				case '[' :
+					final int end = glob.indexOf(']', i + 1);
+					if (end < 0)
+					{
+						regex.append("\\[");
+						break;
+					}
+					regex.append('[');
+					int start = i + 1;
+					if (start < end && glob.charAt(start) == '!')
+					{
+						regex.append('^');
+						start++;
+					}
+					for (int j = start; j < end; j++)
+					{
+						final char classCharacter = glob.charAt(j);
+						if (classCharacter == '\\' || classCharacter == '[' || classCharacter == '^'
+							|| classCharacter == '&')
+						{
+							regex.append('\\');
+						}
+						regex.append(classCharacter);
+					}
+					regex.append(']');
+					i = end;
+					break;
+				case '{' :
+					regex.append("(?:");
+					inGroup = true;
+					break;
+				case '}' :
+					regex.append(inGroup ? ")" : "\\}");
+					inGroup = false;
+					break;
+				case ',' :
+					regex.append(inGroup ? "|" : ",");
+					break;
+				case '\\' :
+					if (i + 1 < glob.length())
+					{
+						appendLiteral(regex, glob.charAt(++i));
+					}
+					break;
+				default :
+					appendLiteral(regex, c);
+			}
+		}
+		return Pattern.compile(regex.toString());
+	}
+
+	/**
+	 * Gets the part of the given glob pattern before the first special character. All names that
+	 * match the glob pattern start with this prefix.
+	 *
+	 * @param glob
+	 *            the glob pattern
+	 * @return the literal prefix of the glob pattern
+	 */
+	static String getLiteralPrefix(final String glob)
+	{
+		for (int i = 0; i < glob.length(); i++)
+		{
+			if ("*?[{\\".indexOf(glob.charAt(i)) != -1)
+			{
+				return glob.substring(0, i);
+			}
+		}
+		return glob;
+	}
+
+	private static void appendLiteral(final StringBuilder regex, final char c)
+	{
+		if (REGEX_META_CHARACTERS.indexOf(c) != -1)
+		{
+			regex.append('\\');
+		}
+		regex.append(c);
+	}
+}
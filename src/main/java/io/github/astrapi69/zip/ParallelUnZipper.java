@@ -0,0 +1,286 @@
+/**
+ * The MIT License
+ *
+ * Copyright (C) 2015 Asterios Raptis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.astrapi69.zip;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import io.github.astrapi69.zip.jfr.ArchiveFinishedEvent;
+
+/**
+ * The class {@link ParallelUnZipper} extracts the entries of a zip file on several threads. The
+ * entries are partitioned by their compressed size, so every thread gets about the same amount of
+ * work, and all directories are created once before the extraction starts.
+ */
+final class ParallelUnZipper
+{
+
+	private ParallelUnZipper()
+	{
+	}
+
+	/**
+	 * Partitions the given entries in the given number of partitions with about the same
+	 * compressed size. The biggest entries are distributed first, every entry goes to the
+	 * partition with the least compressed size so far.
+	 *
+	 * @param entries
+	 *            the entries to partition
+	 * @param parallelism
+	 *            the number of partitions
+	 * @return the partitions
+	 */
+	static List<List<ZipEntry>> partition(final List<? extends ZipEntry> entries,
+		final int parallelism)
+	{
+		final List<ZipEntry> sorted = new ArrayList<>(entries);
+		sorted.sort(Comparator.comparingLong(ParallelUnZipper::getWeight).reversed());
+		final List<List<ZipEntry>> partitions = new ArrayList<>(parallelism);
+		final long[] weights = new long[parallelism];
+		for (int i = 0; i < parallelism; i++)
+		{
+			partitions.add(new ArrayList<>());
+		}
+		for (final ZipEntry entry : sorted)
+		{
+			int lightest = 0;
+			for (int i = 1; i < parallelism; i++)
+			{
+				if (weights[i] < weights[lightest])
+				{
+					lightest = i;
+				}
+			}
+			partitions.get(lightest).add(entry);
+			weights[lightest] += getWeight(entry);
+		}
+		return partitions;
+	}
+
+	/**
+	 * Gets the weight of the given entry for the partitioning, the compressed size if it is known
+	 * or else the size
+	 *
+	 * @param entry
+	 *            the entry
+	 * @return the weight of the entry
+	 */
+	private static long getWeight(final ZipEntry entry)
+	{
+		final long compressedSize = entry.getCompressedSize();
+		return Math.max(0 <= compressedSize ? compressedSize : entry.getSize(), 0) + 1;
+	}
+
+	/**
+	 * Extracts the given entries from the given zip file to the given directory and closes the
+	 * zip file.
+	 *
+	 * @param zipFile
+	 *            the zip file to extract entries from
+	 * @param entries
+	 *            the entries to extract
+	 * @param toDir
+	 *            the directory to extract entries to
+	 * @param parallelism
+	 *            the number of threads that extract the entries
+	 * @param executor
+	 *            the executor that runs the extraction or null for an own thread pool with the
+	 *            given parallelism
+	 * @param cancelled
+	 *            the flag if the extraction is cancelled
+	 * @return the number of extracted bytes
+	 * @throws IOException
+	 *             if an I/O error occurs during extraction, the first failure of a worker after
+	 *             all workers have stopped
+	 * @throws CancellationException
+	 *             if the extraction is cancelled
+	 */
+	static long unzip(final ZipFile zipFile, final List<? extends ZipEntry> entries,
+		final File toDir, final int parallelism, final ExecutorService executor,
+		final BooleanSupplier cancelled) throws IOException
+	{
+		final ArchiveFinishedEvent event = ArchiveFinishedEvent
+			.archiveStarted(ArchiveFinishedEvent.UNZIP, zipFile.getName(), -1, -1);
+		try (zipFile)
+		{
+			mkdirs(entries, toDir);
+			final List<ZipEntry> files = entries.stream().filter(entry -> !entry.isDirectory())
+				.collect(Collectors.toList());
+			final int partitions = Math.max(1, Math.min(parallelism, files.size()));
+			final ExecutorService workers = executor != null
+				? executor
+				: Executors.newFixedThreadPool(partitions);
+			final List<Future<Long>> futures = new ArrayList<>(partitions);
+			// the first failure stops the other workers, which are awaited before the zip file
+			// is closed
+			final AtomicReference<Exception> failure = new AtomicReference<>();
+			final BooleanSupplier stopped = () -> failure.get() != null
+				|| cancelled.getAsBoolean();
+			long extractedLength = 0;
+			try
+			{
+				for (final List<ZipEntry> partition : partition(files, partitions))
+				{
+					futures.add(workers.submit(() -> {
+						try
+						{
+							return extract(zipFile, partition, toDir, stopped);
+						}
+						catch (IOException | RuntimeException e)
+						{
+							failure.compareAndSet(null, e);
+							throw e;
+						}
+					}));
+				}
+				for (final Future<Long> future : futures)
+				{
+					extractedLength += ZipExtensions.await(future);
+				}
+			}
+			catch (IOException | RuntimeException e)
+			{
+				failure.compareAndSet(null, e);
+			}
+			finally
+			{
+				for (final Future<Long> future : futures)
+				{
+					awaitQuietly(future);
+				}
+				if (executor == null)
+				{
+					workers.shutdown();
+				}
+			}
+			final Exception first = failure.get();
+			if (first instanceof IOException)
+			{
+				throw (IOException)first;
+			}
+			if (first != null)
+			{
+				throw (RuntimeException)first;
+			}
+			event.archiveFinished(entries.size(), extractedLength);
+			return extractedLength;
+		}
+	}
+
+	/**
+	 * Waits until the given future is done and ignores its result or failure
+	 *
+	 * @param future
+	 *            the future to wait for
+	 */
+	private static void awaitQuietly(final Future<?> future)
+	{
+		boolean interrupted = false;
+		while (!future.isDone())
+		{
+			try
+			{
+				future.get();
+			}
+			catch (InterruptedException e)
+			{
+				interrupted = true;
+			}
+			catch (ExecutionException | CancellationException e)
+			{
+				break;
+			}
+		}
+		if (interrupted)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Creates all directories that are needed for the extraction of the given entries
+	 *
+	 * @param entries
+	 *            the entries to extract
+	 * @param toDir
+	 *            the directory to extract entries to
+	 */
+	private static void mkdirs(final List<? extends ZipEntry> entries, final File toDir)
+	{
+		final Set<File> directories = new LinkedHashSet<>();
+		for (final ZipEntry entry : entries)
+		{
+			final File file = new File(toDir, entry.getName());
+			directories.add(entry.isDirectory() ? file : file.getParentFile());
+		}
+		for (final File directory : directories)
+		{
+			directory.mkdirs();
+		}
+	}
+
+	/**
+	 * Extracts the given entries, the directories of the entries have to exist
+	 *
+	 * @param zipFile
+	 *            the zip file to extract entries from
+	 * @param entries
+	 *            the entries to extract
+	 * @param toDir
+	 *            the directory to extract entries to
+	 * @param cancelled
+	 *            the flag if the extraction is cancelled
+	 * @return the number of extracted bytes
+	 * @throws IOException
+	 *             if an I/O error occurs during extraction
+	 */
+	private static long extract(final ZipFile zipFile, final List<ZipEntry> entries,
+		final File toDir, final BooleanSupplier cancelled) throws IOException
+	{
+		final byte[] buffer = new byte[ZipExtensions.DEFAULT_BUFFER_SIZE];
+		long extractedLength = 0;
+		for (final ZipEntry entry : entries)
+		{
+			extractedLength += ZipExtensions.extractFile(zipFile, entry,
+				new File(toDir, entry.getName()), buffer, cancelled);
+		}
+		return extractedLength;
+	}
+}
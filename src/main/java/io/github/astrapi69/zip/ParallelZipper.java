@@ -0,0 +1,738 @@
+/**
+ * The MIT License
+ *
+ * Copyright (C) 2015 Asterios Raptis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.astrapi69.zip;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BooleanSupplier;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+
+import io.github.astrapi69.zip.jfr.EntryCompressedEvent;
+
+/**
+ * The class {@link ParallelZipper} writes the entries of a zip archive in a pipeline of three
+ * stages. A pool of reader threads reads the blocks of the files, a pool of compressor threads
+ * deflates them and the thread that adds the files writes them in order to the archive, so the
+ * latency of reading one file is hidden behind the compression of another. Every file is split in
+ * blocks that are deflated independently and concatenated with sync flushes, so even a single
+ * large file is compressed on all workers. Every block is primed with the last 32 KiB of the
+ * previous block as dictionary, so the compression ratio stays close to a serial deflate. The
+ * number of blocks in the pipeline is bounded by the queue depth and by the memory budget. The
+ * blocks are written in the order they were added, so the archive is the same for every number of
+ * threads, queue depth and memory budget.
+ */
+final class ParallelZipper implements Closeable
+{
+
+	/** The default size of the blocks a file is split into */
+	static final int DEFAULT_BLOCK_SIZE = 1024 * 1024;
+
+	/** The size of the deflate window that is used as dictionary for the next block */
+	private static final int DICTIONARY_SIZE = 32 * 1024;
+
+	/** The path of the zip archive */
+	private final String archive;
+
+	/** The size of the blocks a file is split into */
+	private final int blockSize;
+
+	/** The flag if the zipping is cancelled */
+	private final BooleanSupplier cancelled;
+
+	/** The compression level */
+	private final int level;
+
+	/** The listener that is notified after every written entry */
+	private final EntryListener listener;
+
+	/** The compressor threads */
+	private final ExecutorService compressors;
+
+	/** The number of bytes that are reserved from the blocks in the pipeline */
+	private long pendingBytes;
+
+	/** The maximum number of blocks that are read, compressed or wait for writing */
+	private final int maxPendingBlocks;
+
+	/** The maximum number of bytes the blocks in the pipeline can reserve */
+	private final long memoryBudget;
+
+	/** The compression method */
+	private final int method;
+
+	/** The blocks in the order they have to be written */
+	private final Deque<CompletableFuture<Block>> pendingBlocks;
+
+	/** The reader threads */
+	private final ExecutorService readers;
+
+	/** The writer of the zip archive */
+	private final ZipChannelWriter writer;
+
+	/**
+	 * Instantiates a new {@link ParallelZipper}
+	 *
+	 * @param writer
+	 *            the writer of the zip archive
+	 * @param archive
+	 *            the path of the zip archive
+	 * @param readerParallelism
+	 *            the number of reader threads
+	 * @param parallelism
+	 *            the number of compressor threads
+	 * @param method
+	 *            the compression method, {@link ZipEntry#STORED} or {@link ZipEntry#DEFLATED}
+	 * @param level
+	 *            the compression level
+	 * @param blockSize
+	 *            the size of the blocks a file is split into
+	 * @param queueDepth
+	 *            the maximum number of blocks in the pipeline or a value less than one for
+	 *            twice the number of threads
+	 * @param memoryBudget
+	 *            the maximum number of bytes the blocks in the pipeline can reserve or a value
+	 *            less than one for no limit
+	 * @param listener
+	 *            the listener that is notified after every written entry
+	 * @param cancelled
+	 *            the flag if the zipping is cancelled
+	 */
+	ParallelZipper(final ZipChannelWriter writer, final String archive,
+		final int readerParallelism, final int parallelism, final int method, final int level,
+		final int blockSize, final int queueDepth, final long memoryBudget,
+		final EntryListener listener, final BooleanSupplier cancelled)
+	{
+		this.cancelled = cancelled;
+		this.writer = writer;
+		this.archive = archive;
+		this.listener = listener;
+		this.method = method;
+		this.level = level;
+		this.blockSize = Math.max(blockSize, DICTIONARY_SIZE);
+		final int readerThreads = Math.max(readerParallelism, 1);
+		final int compressorThreads = Math.max(parallelism, 1);
+		this.maxPendingBlocks = 0 < queueDepth
+			? queueDepth
+			: 2 * (readerThreads + compressorThreads);
+		this.memoryBudget = 0 < memoryBudget ? memoryBudget : Long.MAX_VALUE;
+		this.pendingBlocks = new ArrayDeque<>(this.maxPendingBlocks);
+		this.readers = newThreadPool(readerThreads, "zip-worker-reader");
+		this.compressors = newThreadPool(compressorThreads, "zip-worker-deflater");
+	}
+
+	/**
+	 * Creates a thread pool with the given number of daemon threads
+	 *
+	 * @param threads
+	 *            the number of threads
+	 * @param name
+	 *            the name of the threads
+	 * @return the thread pool
+	 */
+	private static ExecutorService newThreadPool(final int threads, final String name)
+	{
+		return Executors.newFixedThreadPool(threads, runnable -> {
+			final Thread thread = new Thread(runnable, name);
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Gets the number of bytes a block reserves from the memory budget, the read data, the
+	 * dictionary and the compressed data
+	 *
+	 * @param length
+	 *            the length of the block
+	 * @return the number of reserved bytes
+	 */
+	private static long getReservedBytes(final int length)
+	{
+		return 2L * length + DICTIONARY_SIZE;
+	}
+
+	/**
+	 * Combines the crc-32 checksums of two consecutive sequences of bytes like the function
+	 * crc32_combine of zlib does
+	 *
+	 * @param crc1
+	 *            the checksum of the first sequence
+	 * @param crc2
+	 *            the checksum of the second sequence
+	 * @param length2
+	 *            the length of the second sequence
+	 * @return the checksum of the concatenated sequences
+	 */
+	static long combineCrc(long crc1, final long crc2, long length2)
+	{
+		if (length2 <= 0)
+		{
+			return crc1;
+		}
+		final long[] even = new long[32];
+		final long[] odd = new long[32];
+		odd[0] = 0xEDB88320L;
+		long row = 1;
+		for (int n = 1; n < 32; n++)
+		{
+			odd[n] = row;
+			row <<= 1;
+		}
+		gf2MatrixSquare(even, odd);
+		gf2MatrixSquare(odd, even);
+		do
+		{
+			gf2MatrixSquare(even, odd);
+			if ((length2 & 1) != 0)
+			{
+				crc1 = gf2MatrixTimes(even, crc1);
+			}
+			length2 >>= 1;
+			if (length2 == 0)
+			{
+				break;
+			}
+			gf2MatrixSquare(odd, even);
+			if ((length2 & 1) != 0)
+			{
+				crc1 = gf2MatrixTimes(odd, crc1);
+			}
+			length2 >>= 1;
+		}
+		while (length2 != 0);
+		return crc1 ^ crc2;
+	}
+
+	private static long gf2MatrixTimes(final long[] matrix, long vector)
+	{
+		long sum = 0;
+		for (int i = 0; vector != 0; i++, vector >>>= 1)
+		{
+			if ((vector & 1) != 0)
+			{
+				sum ^= matrix[i];
+			}
+		}
+		return sum;
+	}
+
+	private static void gf2MatrixSquare(final long[] square, final long[] matrix)
+	{
+		for (int n = 0; n < 32; n++)
+		{
+			square[n] = gf2MatrixTimes(matrix, matrix[n]);
+		}
+	}
+
+	/**
+	 * Reads the given number of bytes from the given position of the given channel
+	 *
+	 * @param channel
+	 *            the channel to read from
+	 * @param position
+	 *            the position to start to read
+	 * @param bytes
+	 *            the array to read into
+	 * @param length
+	 *            the number of bytes to read
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	static void readFully(final FileChannel channel, final long position, final byte[] bytes,
+		final int length) throws IOException
+	{
+		final ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, length);
+		while (buffer.hasRemaining())
+		{
+			if (channel.read(buffer, position + buffer.position()) < 0)
+			{
+				throw new EOFException("Unexpected end of file at position " + position);
+			}
+		}
+	}
+
+	/**
+	 * Adds the given file to the zip archive. The blocks of the file are read and compressed on
+	 * the worker threads, this method only writes blocks if the queue depth or the memory budget
+	 * is exhausted.
+	 *
+	 * @param file
+	 *            the file to add
+	 * @param name
+	 *            the name of the entry in the zip archive
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 * @throws CancellationException
+	 *             if the zipping is cancelled
+	 */
+	void add(final File file, final String name) throws IOException
+	{
+		add(file, name, this.method, this.level);
+	}
+
+	/**
+	 * Adds the given file with the given compression method and level to the zip archive
+	 *
+	 * @param file
+	 *            the file to add
+	 * @param name
+	 *            the name of the entry in the zip archive
+	 * @param method
+	 *            the compression method of the entry, {@link ZipEntry#STORED} or
+	 *            {@link ZipEntry#DEFLATED}
+	 * @param level
+	 *            the compression level of the entry
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 * @throws CancellationException
+	 *             if the zipping is cancelled
+	 */
+	void add(final File file, final String name, final int method, final int level)
+		throws IOException
+	{
+		add(new Entry(file, name, file.length(), file.lastModified(), method, level, null, 0));
+	}
+
+	/**
+	 * Adds the given file to the zip archive with the compression level the given selector
+	 * decides from a sample of the file. The sample is taken on the reader thread that reads the
+	 * first block of the file, the blocks of the file are compressed after the decision.
+	 *
+	 * @param file
+	 *            the file to add
+	 * @param name
+	 *            the name of the entry in the zip archive
+	 * @param selector
+	 *            the selector of the compression level
+	 * @param sampleSize
+	 *            the maximum number of bytes of the sample
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 * @throws CancellationException
+	 *             if the zipping is cancelled
+	 */
+	void add(final File file, final String name, final LevelSelector selector,
+		final int sampleSize) throws IOException
+	{
+		add(new Entry(file, name, file.length(), file.lastModified(), ZipEntry.DEFLATED,
+			this.level, selector, sampleSize));
+	}
+
+	/**
+	 * Adds the blocks of the given entry to the pipeline
+	 *
+	 * @param entry
+	 *            the entry to add
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 * @throws CancellationException
+	 *             if the zipping is cancelled
+	 */
+	private void add(final Entry entry) throws IOException
+	{
+		entry.event.begin();
+		long offset = 0;
+		do
+		{
+			final long blockOffset = offset;
+			final int length = (int)Math.min(this.blockSize, entry.size - offset);
+			offset += length;
+			final boolean last = entry.size <= offset;
+			final long reservedBytes = getReservedBytes(length);
+			ZipExtensions.checkCancelled(this.cancelled);
+			while (!this.pendingBlocks.isEmpty()
+				&& (this.maxPendingBlocks <= this.pendingBlocks.size()
+					|| this.memoryBudget - this.pendingBytes < reservedBytes))
+			{
+				writeNextBlock();
+			}
+			this.pendingBytes += reservedBytes;
+			final CompletableFuture<Input> input = CompletableFuture
+				.supplyAsync(() -> read(entry, blockOffset, length, last), this.readers);
+			if (blockOffset == 0 && entry.selector != null)
+			{
+				// the first block decides the compression level of all blocks of the file
+				entry.decision = input;
+			}
+			this.pendingBlocks.add(input.thenCombineAsync(entry.decision,
+				(block, decision) -> compress(block), this.compressors));
+		}
+		while (offset < entry.size);
+	}
+
+	/**
+	 * Waits until all pending blocks are written
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	void flush() throws IOException
+	{
+		while (!this.pendingBlocks.isEmpty())
+		{
+			writeNextBlock();
+		}
+	}
+
+	/**
+	 * Reads one block of a file and the dictionary in front of it, runs on a reader thread
+	 *
+	 * @param entry
+	 *            the entry of the file
+	 * @param offset
+	 *            the position of the block in the file
+	 * @param length
+	 *            the length of the block
+	 * @param last
+	 *            the flag if this is the last block of the file
+	 * @return the read block
+	 * @throws UncheckedIOException
+	 *             if the block can not be read
+	 */
+	private Input read(final Entry entry, final long offset, final int length,
+		final boolean last)
+	{
+		final long start = System.nanoTime();
+		final int dictionaryLength = (int)Math.min(DICTIONARY_SIZE, offset);
+		final byte[] data = new byte[length];
+		final byte[] dictionary = new byte[dictionaryLength];
+		try (FileChannel channel = FileChannel.open(entry.file.toPath(),
+			StandardOpenOption.READ))
+		{
+			readFully(channel, offset - dictionaryLength, dictionary, dictionaryLength);
+			readFully(channel, offset, data, length);
+			if (offset == 0 && entry.selector != null)
+			{
+				decide(entry, channel, data);
+			}
+		}
+		catch (IOException e)
+		{
+			throw new UncheckedIOException(e);
+		}
+		return new Input(entry, offset == 0, last, data, dictionary,
+			System.nanoTime() - start);
+	}
+
+	/**
+	 * Decides the compression method and level of the given entry from a sample of the file, runs
+	 * on the reader thread of the first block
+	 *
+	 * @param entry
+	 *            the entry of the file
+	 * @param channel
+	 *            the channel of the file
+	 * @param data
+	 *            the data of the first block
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private static void decide(final Entry entry, final FileChannel channel, final byte[] data)
+		throws IOException
+	{
+		final int sampleLength = (int)Math.min(entry.sampleSize, entry.size);
+		byte[] sample = data;
+		if (data.length < sampleLength)
+		{
+			sample = new byte[sampleLength];
+			readFully(channel, 0, sample, sampleLength);
+		}
+		entry.level = entry.selector.getLevel(entry.file, sample, sampleLength);
+		entry.method = entry.level == CompressionPolicy.STORED_LEVEL
+			? ZipEntry.STORED
+			: ZipEntry.DEFLATED;
+	}
+
+	/**
+	 * Compresses one read block, runs on a compressor thread
+	 *
+	 * @param input
+	 *            the read block
+	 * @return the compressed block
+	 */
+	private Block compress(final Input input)
+	{
+		final long start = System.nanoTime();
+		final int length = input.data.length;
+		final CRC32 crc = new CRC32();
+		crc.update(input.data, 0, length);
+		if (input.entry.method == ZipEntry.STORED)
+		{
+			return new Block(input.entry, input.first, input.last, crc.getValue(), length,
+				input.data, length, input.readNanos, System.nanoTime() - start);
+		}
+		final Deflater deflater = new Deflater(input.entry.level, true);
+		try
+		{
+			if (0 < input.dictionary.length)
+			{
+				deflater.setDictionary(input.dictionary);
+			}
+			deflater.setInput(input.data, 0, length);
+			final ByteArrayOutputStream output = new ByteArrayOutputStream(
+				Math.max(length / 2, 64));
+			final byte[] buffer = new byte[ZipExtensions.DEFAULT_BUFFER_SIZE];
+			if (input.last)
+			{
+				deflater.finish();
+				while (!deflater.finished())
+				{
+					final int count = deflater.deflate(buffer);
+					output.write(buffer, 0, count);
+				}
+			}
+			else
+			{
+				int count;
+				do
+				{
+					count = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+					output.write(buffer, 0, count);
+				}
+				while (count == buffer.length || !deflater.needsInput());
+			}
+			return new Block(input.entry, input.first, input.last, crc.getValue(), length,
+				output.toByteArray(), output.size(), input.readNanos, System.nanoTime() - start);
+		}
+		finally
+		{
+			deflater.end();
+		}
+	}
+
+	/**
+	 * Waits for the next block in order and writes it to the zip archive
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 * @throws CancellationException
+	 *             if the zipping is cancelled
+	 */
+	private void writeNextBlock() throws IOException
+	{
+		ZipExtensions.checkCancelled(this.cancelled);
+		final Block block = ZipExtensions.await(this.pendingBlocks.poll());
+		this.pendingBytes -= getReservedBytes(block.length);
+		final Entry entry = block.entry;
+		final long start = System.nanoTime();
+		if (block.first)
+		{
+			this.writer.putEntry(entry.name, entry.method, entry.time, entry.size);
+		}
+		this.writer.write(block.data, 0, block.dataLength);
+		entry.crc = combineCrc(entry.crc, block.crc, block.length);
+		entry.compressedSize += block.dataLength;
+		entry.readNanos += block.readNanos;
+		entry.deflateNanos += block.deflateNanos;
+		if (block.last)
+		{
+			this.writer.closeEntry(entry.crc, entry.compressedSize);
+		}
+		entry.writeNanos += System.nanoTime() - start;
+		if (block.last)
+		{
+			if (this.listener != null)
+			{
+				this.listener.entryZipped(entry.name, entry.size, entry.compressedSize,
+					entry.readNanos, entry.deflateNanos, entry.writeNanos);
+			}
+			entry.event.entryCompressed(this.archive, entry.name, entry.method, entry.level,
+				entry.size, entry.compressedSize);
+		}
+	}
+
+	/**
+	 * Cancels all pending blocks and stops the worker threads
+	 */
+	@Override
+	public void close()
+	{
+		for (final CompletableFuture<Block> future : this.pendingBlocks)
+		{
+			future.cancel(true);
+		}
+		this.pendingBlocks.clear();
+		this.pendingBytes = 0;
+		this.readers.shutdownNow();
+		this.compressors.shutdownNow();
+	}
+
+	/**
+	 * Listener that is notified after an entry is written to the zip archive
+	 */
+	@FunctionalInterface
+	interface EntryListener
+	{
+
+		/**
+		 * Called after an entry is written to the zip archive
+		 *
+		 * @param name
+		 *            the name of the entry
+		 * @param bytesIn
+		 *            the number of bytes of the entry
+		 * @param bytesOut
+		 *            the number of compressed bytes of the entry
+		 * @param readNanos
+		 *            the nanoseconds the worker threads spent for reading the entry
+		 * @param deflateNanos
+		 *            the nanoseconds the worker threads spent for deflating the entry
+		 * @param writeNanos
+		 *            the nanoseconds spent for writing the entry
+		 */
+		void entryZipped(String name, long bytesIn, long bytesOut, long readNanos,
+			long deflateNanos, long writeNanos);
+	}
+
+	/**
+	 * Selector of the compression level of a file from a sample of its first bytes
+	 */
+	@FunctionalInterface
+	interface LevelSelector
+	{
+
+		/**
+		 * Gets the compression level of the given file
+		 *
+		 * @param file
+		 *            the file to zip
+		 * @param sample
+		 *            the array with the first bytes of the file
+		 * @param length
+		 *            the number of bytes in the sample
+		 * @return the compression level or {@link CompressionPolicy#STORED_LEVEL} for no
+		 *         compression
+		 * @throws IOException
+		 *             if the level can not be decided
+		 */
+		int getLevel(File file, byte[] sample, int length) throws IOException;
+	}
+
+	/**
+	 * The state of an entry while its blocks are written
+	 */
+	private static final class Entry
+	{
+		final EntryCompressedEvent event = new EntryCompressedEvent();
+		final File file;
+		final String name;
+		final int sampleSize;
+		final LevelSelector selector;
+		final long size;
+		final long time;
+		long compressedSize;
+		long crc;
+		CompletableFuture<?> decision = CompletableFuture.completedFuture(null);
+		long deflateNanos;
+		int level;
+		int method;
+		long readNanos;
+		long writeNanos;
+
+		Entry(final File file, final String name, final long size, final long time,
+			final int method, final int level, final LevelSelector selector,
+			final int sampleSize)
+		{
+			this.file = file;
+			this.name = name;
+			this.size = size;
+			this.time = time;
+			this.method = method;
+			this.level = level;
+			this.selector = selector;
+			this.sampleSize = sampleSize;
+		}
+	}
+
+	/**
+	 * A read block of a file with the dictionary in front of it
+	 */
+	private static final class Input
+	{
+		final byte[] data;
+		final byte[] dictionary;
+		final Entry entry;
+		final boolean first;
+		final boolean last;
+		final long readNanos;
+
+		Input(final Entry entry, final boolean first, final boolean last, final byte[] data,
+			final byte[] dictionary, final long readNanos)
+		{
+			this.entry = entry;
+			this.first = first;
+			this.last = last;
+			this.data = data;
+			this.dictionary = dictionary;
+			this.readNanos = readNanos;
+		}
+	}
+
+	/**
+	 * A compressed block of a file
+	 */
+	private static final class Block
+	{
+		final long crc;
+		final byte[] data;
+		final int dataLength;
+		final long deflateNanos;
+		final Entry entry;
+		final boolean first;
+		final boolean last;
+		final int length;
+		final long readNanos;
+
+		Block(final Entry entry, final boolean first, final boolean last, final long crc,
+			final int length, final byte[] data, final int dataLength, final long readNanos,
+			final long deflateNanos)
+		{
+			this.readNanos = readNanos;
+			this.deflateNanos = deflateNanos;
+			this.entry = entry;
+			this.first = first;
+			this.last = last;
+			this.crc = crc;
+			this.length = length;
+			this.data = data;
+			this.dataLength = dataLength;
+		}
+	}
+}
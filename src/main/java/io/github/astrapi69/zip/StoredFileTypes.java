@@ -0,0 +1,204 @@
+/**
+ * The MIT License
+ *
+ * Copyright (C) 2015 Asterios Raptis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.astrapi69.zip;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * The class {@link StoredFileTypes} is a registry of file types that are already compressed and
+ * therefore always stored in a zip archive without an attempt to deflate them. A file type is
+ * recognized by the extension of the file name or by the magic bytes at the start of the file
+ * content.
+ *
+ * @version 1.0
+ * @author Asterios Raptis
+ */
+public final class StoredFileTypes
+{
+
+	/** The lower case extensions without the dot */
+	private final Set<String> extensions = new HashSet<>();
+
+	/** The number of bytes from the start of a file that are needed to check all signatures */
+	private int headerLength;
+
+	/** The magic bytes of the file types */
+	private final List<Signature> signatures = new ArrayList<>();
+
+	/**
+	 * Instantiates a new empty {@link StoredFileTypes} registry
+	 */
+	public StoredFileTypes()
+	{
+	}
+
+	/**
+	 * Creates a new {@link StoredFileTypes} registry with the common archive, image, audio and
+	 * video file types
+	 *
+	 * @return the new registry
+	 */
+	public static StoredFileTypes defaults()
+	{
+		return new StoredFileTypes()
+			.addExtensions("zip", "jar", "war", "ear", "apk", "docx", "xlsx", "pptx", "odt", "ods",
+				"odp", "epub", "7z", "rar", "gz", "tgz", "bz2", "tbz2", "xz", "txz", "lz4", "lzma",
+				"zst", "png", "jpg", "jpeg", "gif", "webp", "heic", "avif", "mp3", "aac", "m4a",
+				"ogg", "opus", "flac", "mp4", "m4v", "mov", "mkv", "webm", "avi", "woff", "woff2")
+			.addSignature(0, 'P', 'K', 3, 4)
+			.addSignature(0, 0x1f, 0x8b)
+			.addSignature(0, 0xfd, '7', 'z', 'X', 'Z', 0)
+			.addSignature(0, '7', 'z', 0xbc, 0xaf, 0x27, 0x1c)
+			.addSignature(0, 'B', 'Z', 'h')
+			.addSignature(0, 0x28, 0xb5, 0x2f, 0xfd)
+			.addSignature(0, 'R', 'a', 'r', '!')
+			.addSignature(0, 0x89, 'P', 'N', 'G')
+			.addSignature(0, 0xff, 0xd8, 0xff)
+			.addSignature(0, 'G', 'I', 'F', '8')
+			.addSignature(8, 'W', 'E', 'B', 'P')
+			.addSignature(4, 'f', 't', 'y', 'p')
+			.addSignature(0, 'O', 'g', 'g', 'S')
+			.addSignature(0, 'f', 'L', 'a', 'C')
+			.addSignature(0, 'I', 'D', '3');
+	}
+
+	/**
+	 * Adds the given file name extensions to this registry
+	 *
+	 * @param extensions
+	 *            the extensions with or without the leading dot
+	 * @return this registry for method chaining
+	 */
+	public StoredFileTypes addExtensions(final String... extensions)
+	{
+		for (final String extension : extensions)
+		{
+			this.extensions.add((extension.startsWith(".") ? extension.substring(1) : extension)
+				.toLowerCase(Locale.ROOT));
+		}
+		return this;
+	}
+
+	/**
+	 * Adds the given magic bytes to this registry
+	 *
+	 * @param offset
+	 *            the position of the magic bytes in the file
+	 * @param magic
+	 *            the magic bytes as unsigned values from 0 to 255
+	 * @return this registry for method chaining
+	 */
+	public StoredFileTypes addSignature(final int offset, final int... magic)
+	{
+		final byte[] bytes = new byte[magic.length];
+		for (int i = 0; i < magic.length; i++)
+		{
+			bytes[i] = (byte)magic[i];
+		}
+		this.signatures.add(new Signature(offset, bytes));
+		this.headerLength = Math.max(this.headerLength, offset + bytes.length);
+		return this;
+	}
+
+	/**
+	 * Gets the number of bytes from the start of a file that are needed to check all signatures
+	 *
+	 * @return the number of bytes or zero if this registry has no signatures
+	 */
+	public int getHeaderLength()
+	{
+		return this.headerLength;
+	}
+
+	/**
+	 * Checks if the given file name has an extension of this registry
+	 *
+	 * @param name
+	 *            the file name
+	 * @return true if the file has to be stored otherwise false
+	 */
+	public boolean isStored(final String name)
+	{
+		final int index = name.lastIndexOf('.');
+		return 0 <= index && index < name.length() - 1 && !this.extensions.isEmpty()
+			&& this.extensions.contains(name.substring(index + 1).toLowerCase(Locale.ROOT));
+	}
+
+	/**
+	 * Checks if the given start of a file matches a signature of this registry
+	 *
+	 * @param header
+	 *            the array with the first bytes of the file
+	 * @param length
+	 *            the number of bytes in the array
+	 * @return true if the file has to be stored otherwise false
+	 */
+	public boolean isStored(final byte[] header, final int length)
+	{
+		for (final Signature signature : this.signatures)
+		{
+			if (signature.matches(header, length))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * The magic bytes of a file type
+	 */
+	private static final class Signature
+	{
+		final byte[] magic;
+		final int offset;
+
+		Signature(final int offset, final byte[] magic)
+		{
+			this.offset = offset;
+			this.magic = magic;
+		}
+
+		boolean matches(final byte[] header, final int length)
+		{
+			if (length < this.offset + this.magic.length)
+			{
+				return false;
+			}
+			for (int i = 0; i < this.magic.length; i++)
+			{
+				if (header[this.offset + i] != this.magic[i])
+				{
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+}
@@ -0,0 +1,186 @@
+/**
+ * The MIT License
+ *
+ * Copyright (C) 2015 Asterios Raptis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.astrapi69.zip;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The class {@link SyncCache} is the persisted sidecar cache of a sync extraction. It records the
+ * size, the last modification time and the checksum of every extracted file, so the checksum of
+ * an unchanged target file is taken from the cache instead of reading the whole file again. A
+ * record is only used as long as the size and the last modification time of the target file
+ * are the same as recorded.
+ *
+ * @version 1.0
+ * @author Asterios Raptis
+ */
+final class SyncCache
+{
+
+	/** The version of the cache file format */
+	private static final int VERSION = 1;
+
+	/** The records by the entry name */
+	private final Map<String, Record> records = new HashMap<>();
+
+	/**
+	 * Reads the cache from the given file. A missing or unreadable cache file results in an empty
+	 * cache, because the cache only saves the checksum computation.
+	 *
+	 * @param file
+	 *            the cache file or null for an empty cache
+	 * @return the cache
+	 */
+	static SyncCache read(final File file)
+	{
+		final SyncCache cache = new SyncCache();
+		if (file == null || !file.isFile())
+		{
+			return cache;
+		}
+		try (DataInputStream in = new DataInputStream(
+			new BufferedInputStream(new FileInputStream(file))))
+		{
+			if (in.readInt() != VERSION)
+			{
+				return cache;
+			}
+			for (int i = in.readInt(); 0 < i; i--)
+			{
+				final String name = in.readUTF();
+				cache.records.put(name, new Record(in.readLong(), in.readLong(), in.readLong()));
+			}
+		}
+		catch (IOException e)
+		{
+			cache.records.clear();
+		}
+		return cache;
+	}
+
+	/**
+	 * Gets the checksum of the given target file if the record of the given entry name is still
+	 * valid for the file
+	 *
+	 * @param name
+	 *            the entry name
+	 * @param file
+	 *            the target file of the entry
+	 * @return the checksum or -1 if the cache has no valid record
+	 */
+	long getCrc(final String name, final File file)
+	{
+		final Record record = this.records.get(name);
+		if (record != null && record.size == file.length()
+			&& record.time == file.lastModified())
+		{
+			return record.crc;
+		}
+		return -1;
+	}
+
+	/**
+	 * Records the checksum of the given target file with its current size and last modification
+	 * time
+	 *
+	 * @param name
+	 *            the entry name
+	 * @param file
+	 *            the target file of the entry
+	 * @param crc
+	 *            the checksum of the file
+	 */
+	void put(final String name, final File file, final long crc)
+	{
+		this.records.put(name, new Record(file.length(), file.lastModified(), crc));
+	}
+
+	/**
+	 * Removes the records of all entry names that are not in the given set
+	 *
+	 * @param names
+	 *            the entry names to keep
+	 */
+	void retainAll(final Set<String> names)
+	{
+		this.records.keySet().retainAll(names);
+	}
+
+	/**
+	 * Writes this cache to the given file
+	 *
+	 * @param file
+	 *            the cache file
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	void write(final File file) throws IOException
+	{
+		try (DataOutputStream out = new DataOutputStream(
+			new BufferedOutputStream(new FileOutputStream(file))))
+		{
+			out.writeInt(VERSION);
+			out.writeInt(this.records.size());
+			for (final Map.Entry<String, Record> entry : this.records.entrySet())
+			{
+				final Record record = entry.getValue();
+				out.writeUTF(entry.getKey());
+				out.writeLong(record.size);
+				out.writeLong(record.time);
+				out.writeLong(record.crc);
+			}
+		}
+	}
+
+	/**
+	 * The recorded state of an extracted file
+	 */
+	private static final class Record
+	{
+
+		final long crc;
+
+		final long size;
+
+		final long time;
+
+		Record(final long size, final long time, final long crc)
+		{
+			this.size = size;
+			this.time = time;
+			this.crc = crc;
+		}
+	}
+}
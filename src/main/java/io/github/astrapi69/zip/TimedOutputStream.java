@@ -0,0 +1,70 @@
+/**
+ * The MIT License
+ *
+ * Copyright (C) 2015 Asterios Raptis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.astrapi69.zip;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * The class {@link TimedOutputStream} sums up the nanoseconds spent in writing arrays to the
+ * underlying output stream. Single bytes are not measured, they are only written for the headers
+ * of the zip entries.
+ */
+final class TimedOutputStream extends FilterOutputStream
+{
+
+	/** The nanoseconds spent in writing */
+	private long nanos;
+
+	/**
+	 * Instantiates a new {@link TimedOutputStream}
+	 *
+	 * @param out
+	 *            the underlying output stream
+	 */
+	TimedOutputStream(final OutputStream out)
+	{
+		super(out);
+	}
+
+	/**
+	 * Gets the nanoseconds spent in writing arrays to the underlying output stream
+	 *
+	 * @return the nanoseconds spent in writing
+	 */
+	long getNanos()
+	{
+		return this.nanos;
+	}
+
+	@Override
+	public void write(final byte[] b, final int off, final int len) throws IOException
+	{
+		final long start = System.nanoTime();
+		this.out.write(b, off, len);
+		this.nanos += System.nanoTime() - start;
+	}
+}
@@ -26,7 +26,23 @@ package io.github.astrapi69.zip;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
 import java.util.zip.ZipFile;
 
 /**
@@ -36,6 +52,24 @@ import java.util.zip.ZipFile;
 public class UnZipper
 {
 
+	/** The flag if a sync extraction deletes the files that are not in the zip file. */
+	private boolean deleteStale;
+	/** The time in nanoseconds the last extraction needed. */
+	private long elapsedTime;
+	/** The number of entries of the last extraction. */
+	private int entryCounter;
+	/** The executor that runs a parallel extraction. */
+	private ExecutorService executor;
+	/** The number of bytes of the last extraction. */
+	private long extractedLength;
+	/** The filter that selects the entries to extract or null for all entries. */
+	private EntryFilter filter;
+	/** The number of threads that extract the entries. */
+	private int parallelism = 1;
+	/** The flag if only the changed entries are extracted. */
+	private boolean sync;
+	/** The sidecar file that caches the checksums of the extracted files or null. */
+	private File syncCache;
 	/** The directory to extract files to. */
 	private File toDir;
 	/** The zip file to extract entries from. */
@@ -104,6 +138,186 @@ public class UnZipper
 		ZipExtensions.extractZipEntry(zipFile, target, toDirectory);
 	}
 
+	/**
+	 * Checks if a sync extraction deletes the files of the target directory that are not in the
+	 * zip file.
+	 *
+	 * @return true if the stale files are deleted otherwise false
+	 */
+	public boolean isDeleteStale()
+	{
+		return this.deleteStale;
+	}
+
+	/**
+	 * Sets the flag if a sync extraction deletes the files and empty directories of the target
+	 * directory that are not in the zip file. The flag has only an effect in sync mode.
+	 *
+	 * @param deleteStale
+	 *            the flag if the stale files are deleted
+	 */
+	public void setDeleteStale(boolean deleteStale)
+	{
+		this.deleteStale = deleteStale;
+	}
+
+	/**
+	 * Retrieves the time in nanoseconds the last extraction needed.
+	 *
+	 * @return the time in nanoseconds the last extraction needed
+	 */
+	public long getElapsedTime()
+	{
+		return this.elapsedTime;
+	}
+
+	/**
+	 * Retrieves the number of entries of the last extraction.
+	 *
+	 * @return the number of entries of the last extraction
+	 */
+	public int getEntryCounter()
+	{
+		return this.entryCounter;
+	}
+
+	/**
+	 * Retrieves the executor that runs a parallel extraction.
+	 *
+	 * @return the executor that runs a parallel extraction or null if an own thread pool is used
+	 */
+	public ExecutorService getExecutor()
+	{
+		return this.executor;
+	}
+
+	/**
+	 * Sets the executor that runs a parallel extraction, for instance an executor with virtual
+	 * threads. The executor is not shut down after the extraction. If no parallelism greater than
+	 * one is set, the entries are partitioned by the number of available processors.
+	 *
+	 * @param executor
+	 *            the executor that runs a parallel extraction or null for an own thread pool
+	 */
+	public void setExecutor(ExecutorService executor)
+	{
+		this.executor = executor;
+	}
+
+	/**
+	 * Retrieves the number of bytes of the last extraction.
+	 *
+	 * @return the number of bytes of the last extraction
+	 */
+	public long getExtractedLength()
+	{
+		return this.extractedLength;
+	}
+
+	/**
+	 * Retrieves the filter that selects the entries to extract.
+	 *
+	 * @return the filter that selects the entries to extract or null if all entries are extracted
+	 */
+	public EntryFilter getFilter()
+	{
+		return this.filter;
+	}
+
+	/**
+	 * Sets the filter that selects the entries to extract. The filter is checked on the central
+	 * directory of the zip file, so only the selected entries are read.
+	 *
+	 * @param filter
+	 *            the filter that selects the entries to extract or null for all entries
+	 */
+	public void setFilter(EntryFilter filter)
+	{
+		this.filter = filter;
+	}
+
+	/**
+	 * Retrieves the number of threads that extract the entries.
+	 *
+	 * @return the number of threads that extract the entries
+	 */
+	public int getParallelism()
+	{
+		return this.parallelism;
+	}
+
+	/**
+	 * Sets the number of threads that extract the entries. A value greater than one extracts the
+	 * entries in parallel.
+	 *
+	 * @param parallelism
+	 *            the number of threads that extract the entries
+	 */
+	public void setParallelism(int parallelism)
+	{
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Checks if only the changed entries are extracted.
+	 *
+	 * @return true if only the changed entries are extracted otherwise false
+	 */
+	public boolean isSync()
+	{
+		return this.sync;
+	}
+
+	/**
+	 * Sets the flag if only the changed entries are extracted. In sync mode an entry is skipped
+	 * if the target file has the same size and checksum as the entry, an extracted file gets the
+	 * modification time of its entry and the entry counter is the number of written entries.
+	 *
+	 * @param sync
+	 *            the flag if only the changed entries are extracted
+	 */
+	public void setSync(boolean sync)
+	{
+		this.sync = sync;
+	}
+
+	/**
+	 * Retrieves the sidecar file that caches the checksums of the extracted files.
+	 *
+	 * @return the sidecar file or null if the checksums are not cached
+	 */
+	public File getSyncCache()
+	{
+		return this.syncCache;
+	}
+
+	/**
+	 * Sets the sidecar file that caches the checksums of the extracted files in sync mode. The
+	 * cached checksum of a target file is used as long as the size and the modification time of
+	 * the file are unchanged, so unchanged target files are not read again.
+	 *
+	 * @param syncCache
+	 *            the sidecar file or null if the checksums are not cached
+	 */
+	public void setSyncCache(File syncCache)
+	{
+		this.syncCache = syncCache;
+	}
+
+	/**
+	 * Retrieves the throughput of the last extraction in bytes per second.
+	 *
+	 * @return the throughput of the last extraction in bytes per second
+	 */
+	public double getThroughput()
+	{
+		if (this.elapsedTime <= 0)
+		{
+			return 0;
+		}
+		return this.extractedLength * 1_000_000_000.0 / this.elapsedTime;
+	}
+
 	/**
 	 * Retrieves the current target directory for extraction.
 	 *
@@ -153,7 +367,9 @@ public class UnZipper
 	 */
 	public UnzipperBuilder toBuilder()
 	{
-		return new UnzipperBuilder().toDir(this.toDir).zipFile(this.zipFile);
+		return new UnzipperBuilder().toDir(this.toDir).zipFile(this.zipFile)
+			.parallelism(this.parallelism).executor(this.executor).filter(this.filter)
+			.sync(this.sync).syncCache(this.syncCache).deleteStale(this.deleteStale);
 	}
 
 	/**
@@ -191,7 +407,343 @@ public class UnZipper
 	 */
 	public void unzip(final ZipFile zipFile, final File toDir) throws IOException
 	{
-		ZipExtensions.unzip(zipFile, toDir);
+		this.unzip(zipFile, toDir, ZipExtensions.NOT_CANCELLED);
+	}
+
+	/**
+	 * Extracts all entries from the current zip file to the current target directory on the given
+	 * executor. Cancelling the returned future stops the extraction after the current buffer, the
+	 * partially extracted entry is deleted and the zip file is closed. Entries that are already
+	 * extracted are kept.
+	 *
+	 * @param executor
+	 *            the executor that runs the extraction
+	 * @return the future with the number of extracted bytes
+	 */
+	public CompletableFuture<Long> unzipAsync(final Executor executor)
+	{
+		final CompletableFuture<Long> future = new CompletableFuture<>();
+		executor.execute(() -> {
+			try
+			{
+				this.unzip(this.zipFile, this.toDir, future::isCancelled);
+				future.complete(this.extractedLength);
+			}
+			catch (Throwable throwable)
+			{
+				future.completeExceptionally(throwable);
+			}
+		});
+		return future;
+	}
+
+	/**
+	 * Extracts all entries from the specified zip file to the specified target directory.
+	 *
+	 * @param zipFile
+	 *            the zip file to extract entries from
+	 * @param toDir
+	 *            the directory to extract entries to
+	 * @param cancelled
+	 *            the flag if the extraction is cancelled
+	 * @throws IOException
+	 *             if an I/O error occurs during extraction
+	 * @throws CancellationException
+	 *             if the extraction is cancelled
+	 */
+	private void unzip(final ZipFile zipFile, final File toDir, final BooleanSupplier cancelled)
+		throws IOException
+	{
+		final long start = System.nanoTime();
+		final List<ZipEntry> entries = this.filter != null
+			? select(zipFile, this.filter)
+			: null;
+		if (this.sync)
+		{
+			this.extractedLength = this.sync(zipFile,
+				entries != null ? entries : zipFile.stream().collect(Collectors.toList()), toDir,
+				cancelled);
+		}
+		else
+		{
+			this.entryCounter = entries != null ? entries.size() : zipFile.size();
+			this.extractedLength = this.extract(zipFile, entries, toDir, cancelled);
+		}
+		this.elapsedTime = System.nanoTime() - start;
+	}
+
+	/**
+	 * Extracts the given entries from the given zip file to the given directory, in parallel if
+	 * a parallelism or an executor is set, and closes the zip file.
+	 *
+	 * @param zipFile
+	 *            the zip file to extract entries from
+	 * @param entries
+	 *            the entries to extract or null for all entries
+	 * @param toDir
+	 *            the directory to extract entries to
+	 * @param cancelled
+	 *            the flag if the extraction is cancelled
+	 * @return the number of extracted bytes
+	 * @throws IOException
+	 *             if an I/O error occurs during extraction
+	 */
+	private long extract(final ZipFile zipFile, final List<ZipEntry> entries, final File toDir,
+		final BooleanSupplier cancelled) throws IOException
+	{
+		if (1 < this.parallelism || this.executor != null)
+		{
+			final int parallelism = 1 < this.parallelism
+				? this.parallelism
+				: Runtime.getRuntime().availableProcessors();
+			return ParallelUnZipper.unzip(zipFile,
+				entries != null ? entries : zipFile.stream().collect(Collectors.toList()), toDir,
+				parallelism, this.executor, cancelled);
+		}
+		if (entries != null)
+		{
+			return ZipExtensions.extractAll(zipFile, entries, toDir, cancelled);
+		}
+		return ZipExtensions.extractAll(zipFile, toDir, cancelled);
+	}
+
+	/**
+	 * Extracts the given entries that differ from the files in the given directory, sets the
+	 * modification time of the extracted files to the time of their entries and deletes the
+	 * stale files if the flag is set.
+	 *
+	 * @param zipFile
+	 *            the zip file to extract entries from
+	 * @param entries
+	 *            the entries to synchronize
+	 * @param toDir
+	 *            the directory to extract entries to
+	 * @param cancelled
+	 *            the flag if the extraction is cancelled
+	 * @return the number of extracted bytes
+	 * @throws IOException
+	 *             if an I/O error occurs during extraction
+	 */
+	private long sync(final ZipFile zipFile, final List<ZipEntry> entries, final File toDir,
+		final BooleanSupplier cancelled) throws IOException
+	{
+		final SyncCache cache = SyncCache.read(this.syncCache);
+		final Set<String> names = zipFile.stream().map(ZipEntry::getName)
+			.collect(Collectors.toSet());
+		final byte[] buffer = new byte[ZipExtensions.DEFAULT_BUFFER_SIZE];
+		final List<ZipEntry> changed = new ArrayList<>();
+		for (final ZipEntry entry : entries)
+		{
+			ZipExtensions.checkCancelled(cancelled);
+			if (!isUnchanged(entry, new File(toDir, entry.getName()), cache, buffer))
+			{
+				changed.add(entry);
+			}
+		}
+		this.entryCounter = changed.size();
+		final long extractedLength = this.extract(zipFile, changed, toDir, cancelled);
+		for (final ZipEntry entry : changed)
+		{
+			final File file = new File(toDir, entry.getName());
+			if (!entry.isDirectory())
+			{
+				if (entry.getTime() != -1)
+				{
+					file.setLastModified(entry.getTime());
+				}
+				cache.put(entry.getName(), file, entry.getCrc());
+			}
+		}
+		if (this.deleteStale && toDir.isDirectory())
+		{
+			deleteStale(toDir, names, this.syncCache);
+		}
+		if (this.syncCache != null)
+		{
+			cache.retainAll(names);
+			cache.write(this.syncCache);
+		}
+		return extractedLength;
+	}
+
+	/**
+	 * Checks if the given target file has the same content as the given entry. The size is
+	 * compared first and the checksum of the file is taken from the cache or computed and
+	 * cached.
+	 *
+	 * @param entry
+	 *            the zip entry
+	 * @param file
+	 *            the target file of the entry
+	 * @param cache
+	 *            the checksum cache
+	 * @param buffer
+	 *            the buffer for reading the file
+	 * @return true if the target file is unchanged otherwise false
+	 * @throws IOException
+	 *             if an I/O error occurs during reading the file
+	 */
+	private static boolean isUnchanged(final ZipEntry entry, final File file,
+		final SyncCache cache, final byte[] buffer) throws IOException
+	{
+		if (entry.isDirectory())
+		{
+			return file.isDirectory();
+		}
+		if (!file.isFile() || file.length() != entry.getSize() || entry.getCrc() == -1)
+		{
+			return false;
+		}
+		long crc = cache.getCrc(entry.getName(), file);
+		if (crc == -1)
+		{
+			crc = ZipExtensions.getChecksum(file, buffer);
+			cache.put(entry.getName(), file, crc);
+		}
+		return crc == entry.getCrc();
+	}
+
+	/**
+	 * Deletes the files and the empty directories in the given directory that are not in the
+	 * given entry names. The paths and the entry names are compared with '/' as separator.
+	 *
+	 * @param toDir
+	 *            the target directory
+	 * @param names
+	 *            the names of all entries of the zip file
+	 * @param syncCache
+	 *            the sidecar cache file that is kept or null
+	 * @throws IOException
+	 *             if an I/O error occurs during deleting
+	 */
+	private static void deleteStale(final File toDir, final Set<String> names,
+		final File syncCache) throws IOException
+	{
+		final Path root = toDir.toPath();
+		final Path cachePath = syncCache != null ? syncCache.toPath().toAbsolutePath() : null;
+		final Set<String> entryNames = names.stream()
+			.map(name -> name.replace(File.separatorChar, '/')).collect(Collectors.toSet());
+		Files.walkFileTree(root, new SimpleFileVisitor<>()
+		{
+			@Override
+			public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs)
+				throws IOException
+			{
+				if (!entryNames.contains(getEntryName(root, file, ""))
+					&& !file.toAbsolutePath().equals(cachePath))
+				{
+					Files.delete(file);
+				}
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult postVisitDirectory(final Path dir, final IOException e)
+				throws IOException
+			{
+				if (e != null)
+				{
+					throw e;
+				}
+				if (!dir.equals(root) && !entryNames.contains(getEntryName(root, dir, "/")))
+				{
+					try (DirectoryStream<Path> children = Files.newDirectoryStream(dir))
+					{
+						if (!children.iterator().hasNext())
+						{
+							Files.delete(dir);
+						}
+					}
+				}
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
+	/**
+	 * Gets the entry name of the given path relative to the given root with '/' as separator
+	 *
+	 * @param root
+	 *            the target directory
+	 * @param path
+	 *            the path of a file or directory in the target directory
+	 * @param suffix
+	 *            the suffix of the entry name, "/" for directories
+	 * @return the entry name of the given path
+	 */
+	private static String getEntryName(final Path root, final Path path, final String suffix)
+	{
+		return root.relativize(path).toString().replace(File.separatorChar, '/') + suffix;
+	}
+
+	/**
+	 * Selects the entries of the given zip file with the given filter. The filter is checked on
+	 * the central directory cursor, a zip entry is only looked up for the accepted entries. The
+	 * zip file may decode names with another charset than UTF-8 of the cursor, for instance
+	 * CP437, or contain the same name twice. Only if the lookup by name does not find the entry
+	 * of the cursor, the entries of the zip file are listed once and taken by their index.
+	 *
+	 * @param zipFile
+	 *            the zip file to select entries from
+	 * @param filter
+	 *            the filter that selects the entries
+	 * @return the selected entries in the order of the central directory
+	 * @throws IOException
+	 *             if an I/O error occurs during reading the central directory
+	 */
+	static List<ZipEntry> select(final ZipFile zipFile, final EntryFilter filter)
+		throws IOException
+	{
+		final List<ZipEntry> entries = new ArrayList<>();
+		List<? extends ZipEntry> zipEntries = null;
+		try (CentralDirectory directory = CentralDirectory.open(new File(zipFile.getName())))
+		{
+			final CentralDirectory.Entry entry = directory.entries();
+			while (entry.next())
+			{
+				if (!filter.accept(entry))
+				{
+					continue;
+				}
+				ZipEntry zipEntry = zipFile.getEntry(entry.getName());
+				if (zipEntry == null || !matches(zipEntry, entry))
+				{
+					if (zipEntries == null)
+					{
+						zipEntries = zipFile.stream().collect(Collectors.toList());
+					}
+					if (zipEntries.size() <= entry.getIndex())
+					{
+						throw new ZipException("The zip file " + zipFile.getName()
+							+ " has less entries than its central directory");
+					}
+					zipEntry = zipEntries.get(entry.getIndex());
+					if (!matches(zipEntry, entry))
+					{
+						throw new ZipException("The entry " + zipEntry.getName()
+							+ " does not match the central directory of " + zipFile.getName());
+					}
+				}
+				entries.add(zipEntry);
+			}
+		}
+		return entries;
+	}
+
+	/**
+	 * Checks if the given zip entry is the entry at the given cursor
+	 *
+	 * @param zipEntry
+	 *            the zip entry
+	 * @param entry
+	 *            the cursor of the central directory
+	 * @return true if the type, the checksum and the compressed size are equal otherwise false
+	 */
+	private static boolean matches(final ZipEntry zipEntry, final CentralDirectory.Entry entry)
+	{
+		return zipEntry.isDirectory() == entry.isDirectory()
+			&& zipEntry.getCrc() == entry.getCrc()
+			&& zipEntry.getCompressedSize() == entry.getCompressedSize();
 	}
 
 	/**
@@ -199,6 +751,12 @@ public class UnZipper
 	 */
 	public static class UnzipperBuilder
 	{
+		private ExecutorService executor;
+		private EntryFilter filter;
+		private boolean deleteStale;
+		private int parallelism = 1;
+		private boolean sync;
+		private File syncCache;
 		private File toDir;
 		private ZipFile zipFile;
 
@@ -216,7 +774,99 @@ public class UnZipper
 		 */
 		public UnZipper build()
 		{
-			return new UnZipper(toDir, zipFile);
+			final UnZipper unZipper = new UnZipper(toDir, zipFile);
+			unZipper.setParallelism(parallelism);
+			unZipper.setExecutor(executor);
+			unZipper.setFilter(filter);
+			unZipper.setSync(sync);
+			unZipper.setSyncCache(syncCache);
+			unZipper.setDeleteStale(deleteStale);
+			return unZipper;
+		}
+
+		/**
+		 * Sets the flag if a sync extraction deletes the stale files for the `Unzipper` object
+		 * being built.
+		 *
+		 * @param deleteStale
+		 *            the flag if the stale files are deleted
+		 * @return the current `UnzipperBuilder` instance
+		 */
+		public UnzipperBuilder deleteStale(boolean deleteStale)
+		{
+			this.deleteStale = deleteStale;
+			return this;
+		}
+
+		/**
+		 * Sets the executor that runs a parallel extraction for the `Unzipper` object being
+		 * built, for instance an executor with virtual threads. If no parallelism greater than
+		 * one is set, the entries are partitioned by the number of available processors.
+		 *
+		 * @param executor
+		 *            the executor that runs a parallel extraction
+		 * @return the current `UnzipperBuilder` instance
+		 */
+		public UnzipperBuilder executor(ExecutorService executor)
+		{
+			this.executor = executor;
+			return this;
+		}
+
+		/**
+		 * Sets the filter that selects the entries to extract for the `Unzipper` object being
+		 * built.
+		 *
+		 * @param filter
+		 *            the filter that selects the entries to extract
+		 * @return the current `UnzipperBuilder` instance
+		 */
+		public UnzipperBuilder filter(EntryFilter filter)
+		{
+			this.filter = filter;
+			return this;
+		}
+
+		/**
+		 * Sets the number of threads that extract the entries for the `Unzipper` object being
+		 * built.
+		 *
+		 * @param parallelism
+		 *            the number of threads that extract the entries
+		 * @return the current `UnzipperBuilder` instance
+		 */
+		public UnzipperBuilder parallelism(int parallelism)
+		{
+			this.parallelism = parallelism;
+			return this;
+		}
+
+		/**
+		 * Sets the flag if only the changed entries are extracted for the `Unzipper` object being
+		 * built.
+		 *
+		 * @param sync
+		 *            the flag if only the changed entries are extracted
+		 * @return the current `UnzipperBuilder` instance
+		 */
+		public UnzipperBuilder sync(boolean sync)
+		{
+			this.sync = sync;
+			return this;
+		}
+
+		/**
+		 * Sets the sidecar file that caches the checksums of the extracted files for the
+		 * `Unzipper` object being built.
+		 *
+		 * @param syncCache
+		 *            the sidecar file
+		 * @return the current `UnzipperBuilder` instance
+		 */
+		public UnzipperBuilder syncCache(File syncCache)
+		{
+			this.syncCache = syncCache;
+			return this;
 		}
 
 		/**
@@ -0,0 +1,672 @@
+/**
+ * The MIT License
+ *
+ * Copyright (C) 2015 Asterios Raptis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.astrapi69.zip;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+/**
+ * The class {@link ZipChannelWriter} writes zip archives directly to a {@link FileChannel}. In
+ * difference to the {@link java.util.zip.ZipOutputStream} the content of an entry is written as
+ * it is, so already compressed data can be written without a decompress and compress round trip.
+ * The local header of an entry is patched after the content is written, so no data descriptor is
+ * needed.
+ */
+final class ZipChannelWriter implements Closeable
+{
+
+	/** The signature of the local file header */
+	static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+
+	/** The signature of the central directory file header */
+	static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+
+	/** The signature of the end of central directory record */
+	static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+
+	/** The signature of the zip64 end of central directory record */
+	static final int ZIP64_END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06064b50;
+
+	/** The signature of the zip64 end of central directory locator */
+	static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+
+	/** The header id of the zip64 extended information extra field */
+	static final int ZIP64_EXTRA_ID = 0x0001;
+
+	/** The general purpose flag that signals utf-8 encoded names */
+	static final int UTF8_FLAG = 0x0800;
+
+	/** The general purpose flag that signals a data descriptor after the content */
+	static final int DATA_DESCRIPTOR_FLAG = 0x0008;
+
+	/** The maximum value of a 2 byte field */
+	static final int ZIP16_MAX = 0xFFFF;
+
+	/** The maximum value of a 4 byte field */
+	static final long ZIP32_MAX = 0xFFFFFFFFL;
+
+	/**
+	 * Entries with a greater size get a zip64 local header, because the compressed size can
+	 * exceed the size of the entry a little bit
+	 */
+	private static final long ZIP64_SIZE_THRESHOLD = ZIP32_MAX - (ZIP32_MAX >>> 8);
+
+	/** The length of the fixed part of the local file header */
+	private static final int LOCAL_HEADER_LENGTH = 30;
+
+	/** The length of the fixed part of the central directory file header */
+	private static final int CENTRAL_HEADER_LENGTH = 46;
+
+	/** The channel to write to */
+	private final FileChannel channel;
+
+	/** The central directory records of all written entries */
+	private final ByteArrayOutputStream centralDirectory;
+
+	/** The reusable buffer for the headers */
+	private final ByteBuffer header;
+
+	/** The number of written entries */
+	private long entryCount;
+
+	/** The position of the next byte to write */
+	private long position;
+
+	/** The position of the local header of the current entry or -1 if no entry is open */
+	private long entryOffset;
+
+	/** The encoded name of the current entry */
+	private byte[] entryName;
+
+	/** The compression method of the current entry */
+	private int entryMethod;
+
+	/** The dos time of the current entry */
+	private long entryDosTime;
+
+	/** The size of the current entry */
+	private long entrySize;
+
+	/** The flag if the current entry has a zip64 local header */
+	private boolean entryZip64;
+
+	/**
+	 * Instantiates a new {@link ZipChannelWriter} that writes from the start of the given channel
+	 *
+	 * @param channel
+	 *            the channel to write to
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	ZipChannelWriter(final FileChannel channel) throws IOException
+	{
+		this(channel, 0);
+	}
+
+	/**
+	 * Instantiates a new {@link ZipChannelWriter} that writes from the given position of the given
+	 * channel. The content after the given position is overwritten and the rest is truncated
+	 * with {@link #finish(String)}, so an existing central directory at this position can be read
+	 * until the first entry is written.
+	 *
+	 * @param channel
+	 *            the channel to write to
+	 * @param position
+	 *            the position to start to write
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	ZipChannelWriter(final FileChannel channel, final long position) throws IOException
+	{
+		this.channel = channel;
+		this.position = position;
+		this.entryOffset = -1;
+		this.centralDirectory = new ByteArrayOutputStream();
+		this.header = ByteBuffer.allocate(CENTRAL_HEADER_LENGTH + 32)
+			.order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/**
+	 * Converts the given java time to the ms-dos date and time format
+	 *
+	 * @param time
+	 *            the time in milliseconds since the epoch
+	 * @return the ms-dos date in the high and the ms-dos time in the low 16 bits
+	 */
+	static long toDosTime(final long time)
+	{
+		final LocalDateTime dateTime = LocalDateTime.ofInstant(Instant.ofEpochMilli(time),
+			ZoneId.systemDefault());
+		final int year = dateTime.getYear();
+		if (year < 1980)
+		{
+			return (1 << 21) | (1 << 16);
+		}
+		return (long)(year - 1980) << 25 | dateTime.getMonthValue() << 21
+			| dateTime.getDayOfMonth() << 16 | dateTime.getHour() << 11
+			| dateTime.getMinute() << 5 | dateTime.getSecond() >> 1;
+	}
+
+	/**
+	 * Converts the given ms-dos date and time to the java time
+	 *
+	 * @param dosTime
+	 *            the ms-dos date in the high and the ms-dos time in the low 16 bits
+	 * @return the time in milliseconds since the epoch
+	 */
+	static long toJavaTime(final long dosTime)
+	{
+		// invalid fields overflow into the next unit like in java.util.zip
+		final LocalDateTime dateTime = LocalDateTime
+			.of((int)((dosTime >> 25) & 0x7f) + 1980, 1, 1, 0, 0)
+			.plusMonths(((dosTime >> 21) & 0x0f) - 1).plusDays(((dosTime >> 16) & 0x1f) - 1)
+			.plusHours((dosTime >> 11) & 0x1f).plusMinutes((dosTime >> 5) & 0x3f)
+			.plusSeconds((dosTime << 1) & 0x3e);
+		return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+	}
+
+	/**
+	 * Gets the number of written entries
+	 *
+	 * @return the number of written entries
+	 */
+	long getEntryCount()
+	{
+		return this.entryCount;
+	}
+
+	/**
+	 * Gets the position of the next byte to write
+	 *
+	 * @return the position of the next byte to write
+	 */
+	long getPosition()
+	{
+		return this.position;
+	}
+
+	/**
+	 * Starts a new entry and writes the local header. The crc and the compressed size are
+	 * written with {@link #closeEntry(long, long)} after the content of the entry is written.
+	 *
+	 * @param name
+	 *            the name of the entry
+	 * @param method
+	 *            the compression method of the entry, {@link ZipEntry#STORED} or
+	 *            {@link ZipEntry#DEFLATED}
+	 * @param time
+	 *            the last modification time of the entry in milliseconds since the epoch
+	 * @param size
+	 *            the uncompressed size of the entry
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	void putEntry(final String name, final int method, final long time, final long size)
+		throws IOException
+	{
+		if (0 <= this.entryOffset)
+		{
+			throw new ZipException("The entry before " + name + " is not closed");
+		}
+		this.entryName = name.getBytes(StandardCharsets.UTF_8);
+		if (ZIP16_MAX < this.entryName.length)
+		{
+			throw new ZipException("The name of the entry " + name + " is too long");
+		}
+		this.entryOffset = this.position;
+		this.entryMethod = method;
+		this.entryDosTime = toDosTime(time);
+		this.entrySize = size;
+		this.entryZip64 = ZIP64_SIZE_THRESHOLD <= size;
+		writeLocalHeader(this.entryName, UTF8_FLAG, method, this.entryDosTime, 0, 0, size,
+			this.entryZip64);
+	}
+
+	/**
+	 * Adds an entry of an existing zip archive whose local header and content are already in the
+	 * channel of this writer in front of the start position. Only the central directory record
+	 * is added, so the entry is kept without reading its content.
+	 *
+	 * @param entry
+	 *            the cursor positioned at the entry of the central directory of the channel
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	void addEntry(final CentralDirectory.Entry entry) throws IOException
+	{
+		if (0 <= this.entryOffset)
+		{
+			throw new ZipException("The entry before " + entry.getName() + " is not closed");
+		}
+		addCentralDirectoryRecord(getNameBytes(entry), entry.getFlags(), entry.getMethod(),
+			entry.getDosTime(), entry.getCrc(), entry.getCompressedSize(), entry.getSize(),
+			entry.getOffset());
+	}
+
+	/**
+	 * Copies an entry of another zip archive with its compressed content as it is. The content
+	 * is transferred without a decompress and compress round trip and the entry keeps its
+	 * compression method, checksum, sizes and time. A data descriptor of the entry is not copied,
+	 * because the new local header has all values.
+	 *
+	 * @param source
+	 *            the channel of the other zip archive
+	 * @param entry
+	 *            the cursor positioned at the entry of the central directory of the source
+	 * @param name
+	 *            the new name of the entry or null to keep the name
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	void copyEntry(final FileChannel source, final CentralDirectory.Entry entry,
+		final String name) throws IOException
+	{
+		if (0 <= this.entryOffset)
+		{
+			throw new ZipException("The entry before " + entry.getName() + " is not closed");
+		}
+		final byte[] nameBytes = name != null
+			? name.getBytes(StandardCharsets.UTF_8)
+			: getNameBytes(entry);
+		if (ZIP16_MAX < nameBytes.length)
+		{
+			throw new ZipException("The name of the entry " + name + " is too long");
+		}
+		final int flags = (name != null ? entry.getFlags() | UTF8_FLAG : entry.getFlags())
+			& ~DATA_DESCRIPTOR_FLAG;
+		final long crc = entry.getCrc();
+		final long compressedSize = entry.getCompressedSize();
+		final long size = entry.getSize();
+		final long offset = this.position;
+		final long dataOffset = CentralDirectory.getDataOffset(source, entry.getOffset());
+		writeLocalHeader(nameBytes, flags, entry.getMethod(), entry.getDosTime(), crc,
+			compressedSize, size, ZIP32_MAX <= size || ZIP32_MAX <= compressedSize);
+		for (long transferred = 0; transferred < compressedSize;)
+		{
+			final long count = transferFrom(source, dataOffset + transferred,
+				compressedSize - transferred);
+			if (count <= 0)
+			{
+				throw new ZipException("The content of the entry " + entry.getName()
+					+ " is truncated");
+			}
+			transferred += count;
+		}
+		addCentralDirectoryRecord(nameBytes, flags, entry.getMethod(), entry.getDosTime(), crc,
+			compressedSize, size, offset);
+	}
+
+	/**
+	 * Gets the encoded name of the entry at the given cursor
+	 *
+	 * @param entry
+	 *            the cursor positioned at the entry
+	 * @return the encoded name
+	 */
+	private static byte[] getNameBytes(final CentralDirectory.Entry entry)
+	{
+		final byte[] name = new byte[entry.getNameLength()];
+		entry.getNameBytes(name, 0);
+		return name;
+	}
+
+	/**
+	 * Writes a local header at the current position
+	 *
+	 * @param name
+	 *            the encoded name of the entry
+	 * @param flags
+	 *            the general purpose flags of the entry
+	 * @param method
+	 *            the compression method of the entry
+	 * @param dosTime
+	 *            the ms-dos date and time of the entry
+	 * @param crc
+	 *            the crc-32 checksum of the uncompressed content
+	 * @param compressedSize
+	 *            the compressed size of the entry
+	 * @param size
+	 *            the uncompressed size of the entry
+	 * @param zip64
+	 *            the flag if the sizes are written to a zip64 extra field
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private void writeLocalHeader(final byte[] name, final int flags, final int method,
+		final long dosTime, final long crc, final long compressedSize, final long size,
+		final boolean zip64) throws IOException
+	{
+		header.clear();
+		header.putInt(LOCAL_HEADER_SIGNATURE);
+		header.putShort((short)versionNeeded(method, zip64));
+		header.putShort((short)flags);
+		header.putShort((short)method);
+		header.putInt((int)dosTime);
+		header.putInt((int)crc);
+		if (zip64)
+		{
+			header.putInt((int)ZIP32_MAX);
+			header.putInt((int)ZIP32_MAX);
+		}
+		else
+		{
+			header.putInt((int)compressedSize);
+			header.putInt((int)size);
+		}
+		header.putShort((short)name.length);
+		header.putShort((short)(zip64 ? 20 : 0));
+		header.flip();
+		write(header);
+		write(ByteBuffer.wrap(name));
+		if (zip64)
+		{
+			header.clear();
+			header.putShort((short)ZIP64_EXTRA_ID);
+			header.putShort((short)16);
+			header.putLong(size);
+			header.putLong(compressedSize);
+			header.flip();
+			write(header);
+		}
+	}
+
+	/**
+	 * Writes content of the current entry
+	 *
+	 * @param buffer
+	 *            the buffer with the content to write
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	void write(final ByteBuffer buffer) throws IOException
+	{
+		while (buffer.hasRemaining())
+		{
+			this.position += this.channel.write(buffer, this.position);
+		}
+	}
+
+	/**
+	 * Writes content of the current entry
+	 *
+	 * @param bytes
+	 *            the array with the content to write
+	 * @param offset
+	 *            the start offset in the array
+	 * @param length
+	 *            the number of bytes to write
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	void write(final byte[] bytes, final int offset, final int length) throws IOException
+	{
+		write(ByteBuffer.wrap(bytes, offset, length));
+	}
+
+	/**
+	 * Transfers content of the current entry directly from the given channel. The bytes are moved
+	 * by the operating system, if it supports it, without a copy into the java heap.
+	 *
+	 * @param source
+	 *            the channel to transfer from
+	 * @param offset
+	 *            the position in the source channel to start the transfer
+	 * @param count
+	 *            the maximum number of bytes to transfer
+	 * @return the number of transferred bytes, zero if the end of the source channel is reached
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	long transferFrom(final FileChannel source, final long offset, final long count)
+		throws IOException
+	{
+		this.channel.position(this.position);
+		final long transferred = source.transferTo(offset, count, this.channel);
+		this.position += transferred;
+		return transferred;
+	}
+
+	/**
+	 * Closes the current entry, patches the local header with the given values and adds the
+	 * central directory record of the entry
+	 *
+	 * @param crc
+	 *            the crc-32 checksum of the uncompressed content
+	 * @param compressedSize
+	 *            the size of the written content
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	void closeEntry(final long crc, final long compressedSize) throws IOException
+	{
+		if (this.entryOffset < 0)
+		{
+			throw new ZipException("There is no open entry to close");
+		}
+		if (!this.entryZip64 && ZIP32_MAX <= compressedSize)
+		{
+			throw new ZipException("The compressed size of the entry "
+				+ new String(this.entryName, StandardCharsets.UTF_8) + " exceeds the local header");
+		}
+		header.clear();
+		header.putInt((int)crc);
+		if (this.entryZip64)
+		{
+			header.flip();
+			this.channel.write(header, this.entryOffset + 14);
+			header.clear();
+			header.putLong(compressedSize);
+			header.flip();
+			this.channel.write(header,
+				this.entryOffset + LOCAL_HEADER_LENGTH + this.entryName.length + 12);
+		}
+		else
+		{
+			header.putInt((int)compressedSize);
+			header.flip();
+			this.channel.write(header, this.entryOffset + 14);
+		}
+		addCentralDirectoryRecord(this.entryName, UTF8_FLAG, this.entryMethod, this.entryDosTime,
+			crc, compressedSize, this.entrySize, this.entryOffset);
+		this.entryOffset = -1;
+		this.entryName = null;
+	}
+
+	/**
+	 * Adds the central directory record of an entry
+	 *
+	 * @param name
+	 *            the encoded name of the entry
+	 * @param flags
+	 *            the general purpose flags of the entry
+	 * @param method
+	 *            the compression method of the entry
+	 * @param dosTime
+	 *            the ms-dos date and time of the entry
+	 * @param crc
+	 *            the crc-32 checksum of the uncompressed content
+	 * @param compressedSize
+	 *            the compressed size of the entry
+	 * @param size
+	 *            the uncompressed size of the entry
+	 * @param offset
+	 *            the position of the local header of the entry
+	 */
+	private void addCentralDirectoryRecord(final byte[] name, final int flags, final int method,
+		final long dosTime, final long crc, final long compressedSize, final long size,
+		final long offset)
+	{
+		final boolean zip64Size = ZIP32_MAX <= size;
+		final boolean zip64CompressedSize = ZIP32_MAX <= compressedSize;
+		final boolean zip64Offset = ZIP32_MAX <= offset;
+		final int extraLength = (zip64Size ? 8 : 0) + (zip64CompressedSize ? 8 : 0)
+			+ (zip64Offset ? 8 : 0);
+		final boolean zip64 = 0 < extraLength;
+		final int version = versionNeeded(method, zip64);
+		header.clear();
+		header.putInt(CENTRAL_HEADER_SIGNATURE);
+		header.putShort((short)version);
+		header.putShort((short)version);
+		header.putShort((short)flags);
+		header.putShort((short)method);
+		header.putInt((int)dosTime);
+		header.putInt((int)crc);
+		header.putInt((int)(zip64CompressedSize ? ZIP32_MAX : compressedSize));
+		header.putInt((int)(zip64Size ? ZIP32_MAX : size));
+		header.putShort((short)name.length);
+		header.putShort((short)(zip64 ? extraLength + 4 : 0));
+		header.putShort((short)0);
+		header.putShort((short)0);
+		header.putShort((short)0);
+		header.putInt(0);
+		header.putInt((int)(zip64Offset ? ZIP32_MAX : offset));
+		this.centralDirectory.write(header.array(), 0, header.position());
+		this.centralDirectory.write(name, 0, name.length);
+		if (zip64)
+		{
+			header.clear();
+			header.putShort((short)ZIP64_EXTRA_ID);
+			header.putShort((short)extraLength);
+			if (zip64Size)
+			{
+				header.putLong(size);
+			}
+			if (zip64CompressedSize)
+			{
+				header.putLong(compressedSize);
+			}
+			if (zip64Offset)
+			{
+				header.putLong(offset);
+			}
+			this.centralDirectory.write(header.array(), 0, header.position());
+		}
+		this.entryCount++;
+	}
+
+	/**
+	 * Writes the central directory and the end of central directory record. After this method
+	 * is called no more entries can be written.
+	 *
+	 * @param comment
+	 *            the comment of the zip archive or null for no comment
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	void finish(final String comment) throws IOException
+	{
+		if (0 <= this.entryOffset)
+		{
+			throw new ZipException("The last entry is not closed");
+		}
+		final byte[] commentBytes = comment != null
+			? comment.getBytes(StandardCharsets.UTF_8)
+			: new byte[0];
+		if (ZIP16_MAX < commentBytes.length)
+		{
+			throw new ZipException("The comment of the zip archive is too long");
+		}
+		final long centralDirectoryOffset = this.position;
+		final long centralDirectorySize = this.centralDirectory.size();
+		write(ByteBuffer.wrap(this.centralDirectory.toByteArray()));
+		final boolean zip64 = ZIP16_MAX <= this.entryCount
+			|| ZIP32_MAX <= centralDirectoryOffset || ZIP32_MAX <= centralDirectorySize;
+		if (zip64)
+		{
+			final long zip64EndOffset = this.position;
+			header.clear();
+			header.putInt(ZIP64_END_OF_CENTRAL_DIRECTORY_SIGNATURE);
+			header.putLong(44);
+			header.putShort((short)45);
+			header.putShort((short)45);
+			header.putInt(0);
+			header.putInt(0);
+			header.putLong(this.entryCount);
+			header.putLong(this.entryCount);
+			header.putLong(centralDirectorySize);
+			header.putLong(centralDirectoryOffset);
+			header.flip();
+			write(header);
+			header.clear();
+			header.putInt(ZIP64_LOCATOR_SIGNATURE);
+			header.putInt(0);
+			header.putLong(zip64EndOffset);
+			header.putInt(1);
+			header.flip();
+			write(header);
+		}
+		final int entries = (int)Math.min(this.entryCount, ZIP16_MAX);
+		header.clear();
+		header.putInt(END_OF_CENTRAL_DIRECTORY_SIGNATURE);
+		header.putShort((short)0);
+		header.putShort((short)0);
+		header.putShort((short)entries);
+		header.putShort((short)entries);
+		header.putInt((int)Math.min(centralDirectorySize, ZIP32_MAX));
+		header.putInt((int)Math.min(centralDirectoryOffset, ZIP32_MAX));
+		header.putShort((short)commentBytes.length);
+		header.flip();
+		write(header);
+		write(ByteBuffer.wrap(commentBytes));
+		this.channel.truncate(this.position);
+	}
+
+	/**
+	 * Gets the version that is needed to extract an entry
+	 *
+	 * @param method
+	 *            the compression method of the entry
+	 * @param zip64
+	 *            the flag if the entry needs zip64 extensions
+	 * @return the version that is needed to extract the entry
+	 */
+	private static int versionNeeded(final int method, final boolean zip64)
+	{
+		if (zip64)
+		{
+			return 45;
+		}
+		return method == ZipEntry.DEFLATED ? 20 : 10;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		this.channel.close();
+	}
+}
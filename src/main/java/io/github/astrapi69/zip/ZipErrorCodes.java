@@ -33,6 +33,9 @@ package io.github.astrapi69.zip;
 public enum ZipErrorCodes
 {
 
+	/** Error code indicating that the ZIP file operation was cancelled. */
+	CANCELLED,
+
 	/** Error code indicating that the directory to be zipped does not exist. */
 	DIRECTORY_TO_ZIP_DOES_NOT_EXIST,
 
@@ -24,21 +24,34 @@
  */
 package io.github.astrapi69.zip;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileFilter;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.FilenameFilter;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Enumeration;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.BooleanSupplier;
+import java.util.function.UnaryOperator;
+import java.util.zip.CRC32;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
 import java.util.zip.ZipFile;
 import java.util.zip.ZipOutputStream;
 
@@ -48,6 +61,8 @@ import io.github.astrapi69.file.create.FileFactory;
 import io.github.astrapi69.file.exception.FileDoesNotExistException;
 import io.github.astrapi69.file.search.FileSearchExtensions;
 import io.github.astrapi69.io.file.FileConstants;
+import io.github.astrapi69.zip.jfr.ArchiveFinishedEvent;
+import io.github.astrapi69.zip.jfr.EntryExtractedEvent;
 
 /**
  * The class {@link ZipExtensions} provides functionality for ziping and unzipping files.
@@ -58,6 +73,12 @@ import io.github.astrapi69.io.file.FileConstants;
 public final class ZipExtensions
 {
 
+	/** The default size of the buffer that is used to copy file content into a zip archive */
+	public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+	/** The flag for operations that can not be cancelled */
+	static final BooleanSupplier NOT_CANCELLED = () -> false;
+
 	private ZipExtensions()
 	{
 	}
@@ -71,20 +92,232 @@ public final class ZipExtensions
 	 *            the dir to zip
 	 * @param zos
 	 *            the zos
+	 * @param buffer
+	 *            the buffer for copy the content of the file
 	 * @throws IOException
 	 *             Signals that an I/O exception has occurred.
 	 */
-	private static void addFile(final File file, final File dirToZip, final ZipOutputStream zos)
-		throws IOException
+	private static void addFile(final File file, final File dirToZip, final ZipOutputStream zos,
+		final byte[] buffer) throws IOException
 	{
 		final String zipEntryName = getZipEntryName(file, dirToZip);
-		final byte[] b = new byte[(int)file.length()];
 		final ZipEntry cpZipEntry = new ZipEntry(zipEntryName);
+		cpZipEntry.setTime(file.lastModified());
 		zos.putNextEntry(cpZipEntry);
-		zos.write(b, 0, (int)file.length());
+		try (InputStream is = new FileInputStream(file))
+		{
+			copy(is, zos, buffer);
+		}
 		zos.closeEntry();
 	}
 
+	/**
+	 * Copies the content of the given input stream to the given output stream through the given
+	 * buffer. The buffer is reused for every read, so the memory that is needed for the copy
+	 * process does not depend on the size of the content.
+	 *
+	 * @param inputStream
+	 *            the input stream to read from
+	 * @param outputStream
+	 *            the output stream to write to
+	 * @param buffer
+	 *            the buffer to use for the copy process
+	 * @return the number of copied bytes
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public static long copy(final InputStream inputStream, final OutputStream outputStream,
+		final byte[] buffer) throws IOException
+	{
+		return copy(inputStream, outputStream, buffer, NOT_CANCELLED);
+	}
+
+	/**
+	 * Copies the content of the given input stream to the given output stream through the given
+	 * buffer and checks before every read if the copy process is cancelled
+	 *
+	 * @param inputStream
+	 *            the input stream to read from
+	 * @param outputStream
+	 *            the output stream to write to
+	 * @param buffer
+	 *            the buffer to use for the copy process
+	 * @param cancelled
+	 *            the flag if the copy process is cancelled
+	 * @return the number of copied bytes
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 * @throws CancellationException
+	 *             if the copy process is cancelled
+	 */
+	static long copy(final InputStream inputStream, final OutputStream outputStream,
+		final byte[] buffer, final BooleanSupplier cancelled) throws IOException
+	{
+		long count = 0;
+		checkCancelled(cancelled);
+		for (int read; (read = inputStream.read(buffer)) != -1;)
+		{
+			outputStream.write(buffer, 0, read);
+			count += read;
+			checkCancelled(cancelled);
+		}
+		return count;
+	}
+
+	/**
+	 * Copies all entries of the given source zip archives into the given target zip archive. The
+	 * compressed content of the entries is copied as it is.
+	 *
+	 * @param target
+	 *            the target zip archive, an existing file is only replaced after all entries
+	 *            are copied
+	 * @param sources
+	 *            the source zip archives
+	 * @return the number of copied entries
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 * @see #copyEntries(File, List, EntryFilter, UnaryOperator)
+	 */
+	public static int copyEntries(final File target, final List<File> sources)
+		throws IOException
+	{
+		return copyEntries(target, sources, null, null);
+	}
+
+	/**
+	 * Copies the entries of the given source zip archives that are selected by the given filter
+	 * into the given target zip archive, for instance to merge the shard archives of parallel
+	 * workers. The compressed content of the entries is transferred as it is without a
+	 * decompress and compress round trip, so the entries keep their compression method,
+	 * checksum, sizes and time. The entries are copied in the order of the sources and their
+	 * central directories. The entries are written to a temporary file next to the target zip
+	 * archive that replaces the target zip archive on success, so a failed copy leaves the target
+	 * zip archive untouched.
+	 *
+	 * @param target
+	 *            the target zip archive, an existing file is only replaced after all entries
+	 *            are copied
+	 * @param sources
+	 *            the source zip archives
+	 * @param filter
+	 *            the filter that selects the entries to copy or null for all entries
+	 * @param rename
+	 *            the function that maps an entry name to the name in the target zip archive or
+	 *            null to keep the names
+	 * @return the number of copied entries
+	 * @throws ZipException
+	 *             if two copied entries have the same name in the target zip archive
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public static int copyEntries(final File target, final List<File> sources,
+		final EntryFilter filter, final UnaryOperator<String> rename) throws IOException
+	{
+		final Set<String> names = new HashSet<>();
+		final File temporary = File.createTempFile(target.getName(), ".tmp",
+			target.getAbsoluteFile().getParentFile());
+		try
+		{
+			writeEntries(temporary, sources, filter, rename, names);
+			Files.move(temporary.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+		finally
+		{
+			temporary.delete();
+		}
+		return names.size();
+	}
+
+	/**
+	 * Copies the selected entries of the given source zip archives into the given temporary zip
+	 * archive
+	 *
+	 * @param temporary
+	 *            the temporary zip archive
+	 * @param sources
+	 *            the source zip archives
+	 * @param filter
+	 *            the filter that selects the entries to copy or null for all entries
+	 * @param rename
+	 *            the function that maps an entry name to the name in the target zip archive or
+	 *            null to keep the names
+	 * @param names
+	 *            the set that collects the names of the copied entries
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private static void writeEntries(final File temporary, final List<File> sources,
+		final EntryFilter filter, final UnaryOperator<String> rename, final Set<String> names)
+		throws IOException
+	{
+		try (ZipChannelWriter writer = new ZipChannelWriter(FileChannel.open(temporary.toPath(),
+			StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)))
+		{
+			for (final File source : sources)
+			{
+				try (CentralDirectory directory = CentralDirectory.open(source))
+				{
+					for (final CentralDirectory.Entry entry = directory.entries(); entry.next();)
+					{
+						if (filter != null && !filter.accept(entry))
+						{
+							continue;
+						}
+						final String name = entry.getName();
+						final String targetName = rename != null ? rename.apply(name) : name;
+						if (!names.add(targetName))
+						{
+							throw new ZipException("duplicate entry: " + targetName);
+						}
+						writer.copyEntry(directory.getChannel(), entry,
+							targetName.equals(name) ? null : targetName);
+					}
+				}
+			}
+			writer.finish(null);
+		}
+	}
+
+	/**
+	 * Computes the crc-32 checksum of the content of the given file through the given buffer
+	 *
+	 * @param file
+	 *            the file
+	 * @param buffer
+	 *            the buffer to use for reading the file
+	 * @return the crc-32 checksum of the content of the file
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	static long getChecksum(final File file, final byte[] buffer) throws IOException
+	{
+		final CRC32 crc = new CRC32();
+		try (InputStream inputStream = new FileInputStream(file))
+		{
+			for (int read; (read = inputStream.read(buffer)) != -1;)
+			{
+				crc.update(buffer, 0, read);
+			}
+		}
+		return crc.getValue();
+	}
+
+	/**
+	 * Throws a {@link CancellationException} if the given flag is set
+	 *
+	 * @param cancelled
+	 *            the flag if the operation is cancelled
+	 * @throws CancellationException
+	 *             if the operation is cancelled
+	 */
+	static void checkCancelled(final BooleanSupplier cancelled)
+	{
+		if (cancelled.getAsBoolean())
+		{
+			throw new CancellationException("The operation was cancelled");
+		}
+	}
+
 	/**
 	 * Extract zip entry.
 	 *
@@ -99,19 +332,142 @@ public final class ZipExtensions
 	 */
 	public static void extractZipEntry(final ZipFile zipFile, final ZipEntry target,
 		final File toDirectory) throws IOException
+	{
+		extractZipEntry(zipFile, target, toDirectory, newBuffer(target.getSize()),
+			NOT_CANCELLED);
+	}
+
+	/**
+	 * Extract zip entry with bulk transfers through the given buffer. The buffer can be reused
+	 * for the extraction of the other entries.
+	 *
+	 * @param zipFile
+	 *            the zip file
+	 * @param target
+	 *            the target
+	 * @param toDirectory
+	 *            the to directory
+	 * @param buffer
+	 *            the buffer for copy the content of the entry
+	 * @param cancelled
+	 *            the flag if the extraction is cancelled
+	 * @return the number of extracted bytes
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	static long extractZipEntry(final ZipFile zipFile, final ZipEntry target,
+		final File toDirectory, final byte[] buffer, final BooleanSupplier cancelled)
+		throws IOException
 	{
 		final File fileToExtract = new File(toDirectory, target.getName());
+		if (target.isDirectory())
+		{
+			fileToExtract.mkdirs();
+			return 0;
+		}
 		DirectoryFactory.mkParentDirs(fileToExtract);
-		try (InputStream is = zipFile.getInputStream(target);
-			BufferedInputStream bis = new BufferedInputStream(is);
-			FileOutputStream fos = new FileOutputStream(fileToExtract);
-			BufferedOutputStream bos = new BufferedOutputStream(fos))
+		return extractFile(zipFile, target, fileToExtract, buffer, cancelled);
+	}
+
+	/**
+	 * Extracts the content of the given zip entry to the given file, the parent directory of the
+	 * file has to exist. If the extraction is cancelled the partially extracted file is deleted.
+	 *
+	 * @param zipFile
+	 *            the zip file
+	 * @param entry
+	 *            the zip entry to extract
+	 * @param file
+	 *            the file to extract the content to
+	 * @param buffer
+	 *            the buffer for copy the content
+	 * @param cancelled
+	 *            the flag if the extraction is cancelled
+	 * @return the number of extracted bytes
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 * @throws CancellationException
+	 *             if the extraction is cancelled
+	 */
+	static long extractFile(final ZipFile zipFile, final ZipEntry entry, final File file,
+		final byte[] buffer, final BooleanSupplier cancelled) throws IOException
+	{
+		final EntryExtractedEvent event = new EntryExtractedEvent();
+		event.begin();
+		final long length;
+		try (InputStream is = zipFile.getInputStream(entry);
+			FileOutputStream fos = new FileOutputStream(file))
 		{
-			for (int c; (c = bis.read()) != -1;)
+			length = copy(is, fos, buffer, cancelled);
+		}
+		catch (CancellationException e)
+		{
+			file.delete();
+			throw e;
+		}
+		event.entryExtracted(zipFile.getName(), entry.getName(), entry.getMethod(), length,
+			entry.getCompressedSize());
+		return length;
+	}
+
+	/**
+	 * Creates a buffer for copy content of the given size, the buffer is not greater than
+	 * {@link #DEFAULT_BUFFER_SIZE}
+	 *
+	 * @param size
+	 *            the size of the content or -1 if the size is unknown
+	 * @return the new buffer
+	 */
+	static byte[] newBuffer(final long size)
+	{
+		if (0 <= size && size < DEFAULT_BUFFER_SIZE)
+		{
+			return new byte[Math.max((int)size, 1)];
+		}
+		return new byte[DEFAULT_BUFFER_SIZE];
+	}
+
+	/**
+	 * Waits for the result of the given future and unwraps the exceptions of the worker thread
+	 *
+	 * @param <T>
+	 *            the type of the result
+	 * @param future
+	 *            the future
+	 * @return the result of the future
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	static <T> T await(final Future<T> future) throws IOException
+	{
+		try
+		{
+			return future.get();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			final InterruptedIOException exception = new InterruptedIOException(
+				"Interrupted while waiting for a worker thread");
+			exception.initCause(e);
+			throw exception;
+		}
+		catch (ExecutionException e)
+		{
+			final Throwable cause = e.getCause();
+			if (cause instanceof UncheckedIOException)
+			{
+				throw ((UncheckedIOException)cause).getCause();
+			}
+			if (cause instanceof IOException)
+			{
+				throw (IOException)cause;
+			}
+			if (cause instanceof RuntimeException)
 			{
-				bos.write((byte)c);
+				throw (RuntimeException)cause;
 			}
-			bos.flush();
+			throw new IOException(cause);
 		}
 	}
 
@@ -170,13 +526,67 @@ public final class ZipExtensions
 	 */
 	public static void unzip(final ZipFile zipFile, final File toDir) throws IOException
 	{
+		extractAll(zipFile, toDir, NOT_CANCELLED);
+	}
+
+	/**
+	 * Extracts all entries of the given zip file to the given directory and closes the zip file.
+	 *
+	 * @param zipFile
+	 *            the zip file
+	 * @param toDir
+	 *            the to dir
+	 * @param cancelled
+	 *            the flag if the extraction is cancelled
+	 * @return the number of extracted bytes
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 * @throws CancellationException
+	 *             if the extraction is cancelled
+	 */
+	static long extractAll(final ZipFile zipFile, final File toDir,
+		final BooleanSupplier cancelled) throws IOException
+	{
+		final Iterable<ZipEntry> entries = () -> zipFile.stream().map(ZipEntry.class::cast)
+			.iterator();
+		return extractAll(zipFile, entries, toDir, cancelled);
+	}
+
+	/**
+	 * Extracts the given entries of the given zip file to the given directory and closes the zip
+	 * file.
+	 *
+	 * @param zipFile
+	 *            the zip file
+	 * @param entries
+	 *            the entries to extract
+	 * @param toDir
+	 *            the to dir
+	 * @param cancelled
+	 *            the flag if the extraction is cancelled
+	 * @return the number of extracted bytes
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 * @throws CancellationException
+	 *             if the extraction is cancelled
+	 */
+	static long extractAll(final ZipFile zipFile, final Iterable<? extends ZipEntry> entries,
+		final File toDir, final BooleanSupplier cancelled) throws IOException
+	{
+		final ArchiveFinishedEvent event = ArchiveFinishedEvent
+			.archiveStarted(ArchiveFinishedEvent.UNZIP, zipFile.getName(), -1, -1);
 		try
 		{
-			for (final Enumeration<? extends ZipEntry> e = zipFile.entries(); e.hasMoreElements();)
+			final byte[] buffer = new byte[DEFAULT_BUFFER_SIZE];
+			long extractedLength = 0;
+			int entryCount = 0;
+			for (final ZipEntry entry : entries)
 			{
-				final ZipEntry entry = e.nextElement();
-				extractZipEntry(zipFile, entry, toDir);
+				extractedLength += extractZipEntry(zipFile, entry, toDir, buffer, cancelled);
+				entryCount++;
 			}
+			event.archiveFinished(entryCount, extractedLength);
+			return extractedLength;
 		}
 		finally
 		{
@@ -253,7 +663,7 @@ public final class ZipExtensions
 		{
 			newZipFile(dirToZip, zipFile, createFile);
 			zos.setLevel(9);
-			zipFiles(dirToZip, dirToZip, zos, filter);
+			zipFiles(dirToZip, dirToZip, zos, filter, new byte[DEFAULT_BUFFER_SIZE]);
 			zos.flush();
 			zos.finish();
 			fos.flush();
@@ -294,11 +704,13 @@ public final class ZipExtensions
 	 *            the zos
 	 * @param fileFilter
 	 *            the file filter
+	 * @param buffer
+	 *            the buffer for copy the content of the files
 	 * @throws IOException
 	 *             Signals that an I/O exception has occurred.
 	 */
 	private static void zipFiles(final File file, final File dirToZip, final ZipOutputStream zos,
-		final FilenameFilter fileFilter) throws IOException
+		final FilenameFilter fileFilter, final byte[] buffer) throws IOException
 	{
 		if (file.isDirectory())
 		{
@@ -321,12 +733,12 @@ public final class ZipExtensions
 			}
 			for (int i = 0; i < foundedFiles.size(); i++)
 			{
-				zipFiles(foundedFiles.get(i), dirToZip, zos, fileFilter);
+				zipFiles(foundedFiles.get(i), dirToZip, zos, fileFilter, buffer);
 			}
 		}
 		else
 		{
-			addFile(file, dirToZip, zos);
+			addFile(file, dirToZip, zos, buffer);
 		}
 	}
 
@@ -350,12 +762,16 @@ public final class ZipExtensions
 		{
 			Set<File> fileSet = FileSearchExtensions.findFiles(file, SetFactory.newHashSet(),
 				excludeFileFilter);
+			final byte[] buffer = new byte[DEFAULT_BUFFER_SIZE];
 			for (File foundedFile : fileSet)
 			{
-				final byte[] b = new byte[(int)foundedFile.length()];
 				final ZipEntry cpZipEntry = new ZipEntry(foundedFile.getAbsolutePath());
 				zos.putNextEntry(cpZipEntry);
-				zos.write(b, 0, (int)foundedFile.length());
+				try (InputStream is = new FileInputStream(foundedFile))
+				{
+					copy(is, zos, buffer);
+				}
+				zos.closeEntry();
 			}
 		}
 	}
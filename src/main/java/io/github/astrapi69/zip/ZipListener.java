@@ -0,0 +1,58 @@
+/**
+ * The MIT License
+ *
+ * Copyright (C) 2015 Asterios Raptis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.astrapi69.zip;
+
+/**
+ * The {@code ZipListener} interface is notified from a {@link Zipper} after every entry that is
+ * written to the zip archive and after the zip archive is finished. The listener is called on the
+ * thread that writes the zip archive, so a slow listener slows down the zipping.
+ *
+ * @version 1.0
+ * @author Asterios Raptis
+ */
+@FunctionalInterface
+public interface ZipListener
+{
+
+	/**
+	 * Called after an entry is written to the zip archive. The given {@link ZipMetrics} object is
+	 * reused for all events, so the values have to be copied if they are needed after this method
+	 * returns.
+	 *
+	 * @param metrics
+	 *            the metrics of the written entry and the running totals
+	 */
+	void entryZipped(ZipMetrics metrics);
+
+	/**
+	 * Called after the zip archive is finished
+	 *
+	 * @param metrics
+	 *            the metrics with the totals of the zip archive
+	 */
+	default void zipFinished(ZipMetrics metrics)
+	{
+	}
+}
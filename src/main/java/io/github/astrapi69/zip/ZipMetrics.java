@@ -0,0 +1,319 @@
+/**
+ * The MIT License
+ *
+ * Copyright (C) 2015 Asterios Raptis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.astrapi69.zip;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@code ZipMetrics} class holds the metrics of the last entry that was written from a
+ * {@link Zipper} and the running totals of the zip archive. The times are measured per buffer or
+ * per block and not per byte, so the metrics can be collected in production. The time spent for
+ * reading the files, for deflating and for writing the zip archive shows if a zip job is bound by
+ * the disk or by the cpu. If the files are compressed in parallel the read and deflate times are
+ * summed up over all worker threads and can be greater than the elapsed time.
+ *
+ * @version 1.0
+ * @author Asterios Raptis
+ */
+public final class ZipMetrics
+{
+	/** The number of bytes of the last entry */
+	private long entryBytesIn;
+	/** The number of compressed bytes of the last entry */
+	private long entryBytesOut;
+	/** The number of written entries */
+	private int entryCount;
+	/** The nanoseconds spent for deflating the last entry */
+	private long entryDeflateNanos;
+	/** The name of the last entry */
+	private String entryName;
+	/** The nanoseconds spent for reading the last entry */
+	private long entryReadNanos;
+	/** The nanoseconds spent for writing the last entry */
+	private long entryWriteNanos;
+	/** The nanoseconds since the zipping started */
+	private long elapsedNanos;
+	/** The value of {@link System#nanoTime()} when the zipping started */
+	private long startNanos;
+	/** The number of bytes of all entries */
+	private long totalBytesIn;
+	/** The number of compressed bytes of all entries */
+	private long totalBytesOut;
+	/** The nanoseconds spent for deflating all entries */
+	private long totalDeflateNanos;
+	/** The nanoseconds spent for reading all entries */
+	private long totalReadNanos;
+	/** The nanoseconds spent for writing all entries */
+	private long totalWriteNanos;
+
+	/**
+	 * Computes the ratio of the compressed bytes to the uncompressed bytes
+	 *
+	 * @param bytesIn
+	 *            the number of uncompressed bytes
+	 * @param bytesOut
+	 *            the number of compressed bytes
+	 * @return the compression ratio
+	 */
+	private static double ratio(final long bytesIn, final long bytesOut)
+	{
+		return bytesIn == 0 ? 1.0 : (double)bytesOut / bytesIn;
+	}
+
+	/**
+	 * Resets all values and starts the measurement of the elapsed time
+	 */
+	void start()
+	{
+		this.entryName = null;
+		this.entryBytesIn = 0;
+		this.entryBytesOut = 0;
+		this.entryReadNanos = 0;
+		this.entryDeflateNanos = 0;
+		this.entryWriteNanos = 0;
+		this.entryCount = 0;
+		this.totalBytesIn = 0;
+		this.totalBytesOut = 0;
+		this.totalReadNanos = 0;
+		this.totalDeflateNanos = 0;
+		this.totalWriteNanos = 0;
+		this.elapsedNanos = 0;
+		this.startNanos = System.nanoTime();
+	}
+
+	/**
+	 * Sets the values of the last written entry and adds them to the running totals
+	 *
+	 * @param name
+	 *            the name of the entry
+	 * @param bytesIn
+	 *            the number of bytes of the entry
+	 * @param bytesOut
+	 *            the number of compressed bytes of the entry
+	 * @param readNanos
+	 *            the nanoseconds spent for reading the entry
+	 * @param deflateNanos
+	 *            the nanoseconds spent for deflating the entry
+	 * @param writeNanos
+	 *            the nanoseconds spent for writing the entry
+	 */
+	void entry(final String name, final long bytesIn, final long bytesOut, final long readNanos,
+		final long deflateNanos, final long writeNanos)
+	{
+		this.entryName = name;
+		this.entryBytesIn = bytesIn;
+		this.entryBytesOut = bytesOut;
+		this.entryReadNanos = readNanos;
+		this.entryDeflateNanos = deflateNanos;
+		this.entryWriteNanos = writeNanos;
+		this.entryCount++;
+		this.totalBytesIn += bytesIn;
+		this.totalBytesOut += bytesOut;
+		this.totalReadNanos += readNanos;
+		this.totalDeflateNanos += deflateNanos;
+		this.totalWriteNanos += writeNanos;
+		this.elapsedNanos = System.nanoTime() - this.startNanos;
+	}
+
+	/**
+	 * Stops the measurement of the elapsed time
+	 */
+	void finish()
+	{
+		this.elapsedNanos = System.nanoTime() - this.startNanos;
+	}
+
+	/**
+	 * Gets the nanoseconds since the zipping started, after the zipping is finished the total
+	 * duration
+	 *
+	 * @return the elapsed nanoseconds
+	 */
+	public long getElapsedNanos()
+	{
+		return this.elapsedNanos;
+	}
+
+	/**
+	 * Gets the number of bytes of the last entry
+	 *
+	 * @return the number of bytes of the last entry
+	 */
+	public long getEntryBytesIn()
+	{
+		return this.entryBytesIn;
+	}
+
+	/**
+	 * Gets the number of compressed bytes of the last entry
+	 *
+	 * @return the number of compressed bytes of the last entry
+	 */
+	public long getEntryBytesOut()
+	{
+		return this.entryBytesOut;
+	}
+
+	/**
+	 * Gets the ratio of the compressed bytes to the bytes of the last entry
+	 *
+	 * @return the compression ratio of the last entry
+	 */
+	public double getEntryCompressionRatio()
+	{
+		return ratio(this.entryBytesIn, this.entryBytesOut);
+	}
+
+	/**
+	 * Gets the number of written entries
+	 *
+	 * @return the number of written entries
+	 */
+	public int getEntryCount()
+	{
+		return this.entryCount;
+	}
+
+	/**
+	 * Gets the nanoseconds spent for deflating the last entry
+	 *
+	 * @return the nanoseconds spent for deflating the last entry
+	 */
+	public long getEntryDeflateNanos()
+	{
+		return this.entryDeflateNanos;
+	}
+
+	/**
+	 * Gets the name of the last entry
+	 *
+	 * @return the name of the last entry
+	 */
+	public String getEntryName()
+	{
+		return this.entryName;
+	}
+
+	/**
+	 * Gets the nanoseconds spent for reading the last entry
+	 *
+	 * @return the nanoseconds spent for reading the last entry
+	 */
+	public long getEntryReadNanos()
+	{
+		return this.entryReadNanos;
+	}
+
+	/**
+	 * Gets the nanoseconds spent for writing the last entry
+	 *
+	 * @return the nanoseconds spent for writing the last entry
+	 */
+	public long getEntryWriteNanos()
+	{
+		return this.entryWriteNanos;
+	}
+
+	/**
+	 * Gets the number of uncompressed bytes per second since the zipping started
+	 *
+	 * @return the throughput in bytes per second
+	 */
+	public double getThroughput()
+	{
+		return this.elapsedNanos == 0
+			? 0
+			: this.totalBytesIn * (double)TimeUnit.SECONDS.toNanos(1) / this.elapsedNanos;
+	}
+
+	/**
+	 * Gets the number of bytes of all written entries
+	 *
+	 * @return the number of bytes of all written entries
+	 */
+	public long getTotalBytesIn()
+	{
+		return this.totalBytesIn;
+	}
+
+	/**
+	 * Gets the number of compressed bytes of all written entries
+	 *
+	 * @return the number of compressed bytes of all written entries
+	 */
+	public long getTotalBytesOut()
+	{
+		return this.totalBytesOut;
+	}
+
+	/**
+	 * Gets the ratio of the compressed bytes to the bytes of all written entries
+	 *
+	 * @return the compression ratio of all written entries
+	 */
+	public double getTotalCompressionRatio()
+	{
+		return ratio(this.totalBytesIn, this.totalBytesOut);
+	}
+
+	/**
+	 * Gets the nanoseconds spent for deflating all written entries
+	 *
+	 * @return the nanoseconds spent for deflating all written entries
+	 */
+	public long getTotalDeflateNanos()
+	{
+		return this.totalDeflateNanos;
+	}
+
+	/**
+	 * Gets the nanoseconds spent for reading all written entries
+	 *
+	 * @return the nanoseconds spent for reading all written entries
+	 */
+	public long getTotalReadNanos()
+	{
+		return this.totalReadNanos;
+	}
+
+	/**
+	 * Gets the nanoseconds spent for writing all written entries
+	 *
+	 * @return the nanoseconds spent for writing all written entries
+	 */
+	public long getTotalWriteNanos()
+	{
+		return this.totalWriteNanos;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "ZipMetrics [entryCount=" + this.entryCount + ", totalBytesIn=" + this.totalBytesIn
+			+ ", totalBytesOut=" + this.totalBytesOut + ", totalReadNanos=" + this.totalReadNanos
+			+ ", totalDeflateNanos=" + this.totalDeflateNanos + ", totalWriteNanos="
+			+ this.totalWriteNanos + ", elapsedNanos=" + this.elapsedNanos + "]";
+	}
+}
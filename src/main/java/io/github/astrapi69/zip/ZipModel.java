@@ -127,6 +127,21 @@ public interface ZipModel
 	 */
 	void setFileLength(final long fileLength);
 
+	/**
+	 * Returns the field <code>storedFileTypes</code>.
+	 *
+	 * @return The field <code>storedFileTypes</code>.
+	 */
+	StoredFileTypes getStoredFileTypes();
+
+	/**
+	 * Sets the field <code>storedFileTypes</code>.
+	 *
+	 * @param storedFileTypes
+	 *            The <code>storedFileTypes</code> to set
+	 */
+	void setStoredFileTypes(final StoredFileTypes storedFileTypes);
+
 	/**
 	 * Returns the field <code>zipFile</code>.
 	 *
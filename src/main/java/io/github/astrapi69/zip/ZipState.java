@@ -25,25 +25,26 @@
 package io.github.astrapi69.zip;
 
 /**
- * The enum {@link ZipState} provides flags for the encryption and decryption of zip files.
+ * The enum {@link ZipState} provides the states of the {@link ZipStreamParser} while it parses a
+ * zip archive from a stream.
  */
 public enum ZipState
 {
 
-	/** The COMPRESSE d_ size. */
+	/** The data descriptor with the checksum and the sizes after the content is read. */
 	COMPRESSED_SIZE,
-	/** The DATA. */
+	/** The content of an entry is read. */
 	DATA,
-	/** The E f_ length. */
+	/** The extra field of the local header is read. */
 	EF_LENGTH,
-	/** The FLAGS. */
+	/** The flags of the local header are checked and the entry is started. */
 	FLAGS,
-	/** The F n_ length. */
+	/** The file name of the local header is read. */
 	FN_LENGTH,
-	/** The HEADER. */
+	/** The fixed part of the local header is read. */
 	HEADER,
-	/** The SIGNATURE. */
+	/** The signature of the next record is read. */
 	SIGNATURE,
-	/** The TAIL. */
+	/** The central directory is reached, all entries are parsed. */
 	TAIL
 }
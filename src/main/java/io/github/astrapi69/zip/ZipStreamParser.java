@@ -0,0 +1,571 @@
+/**
+ * The MIT License
+ *
+ * Copyright (C) 2015 Asterios Raptis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.astrapi69.zip;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+/**
+ * The class {@link ZipStreamParser} is a push parser for zip archives that are not seekable, for
+ * instance an upload that is still arriving from a socket or an
+ * {@link java.nio.channels.AsynchronousFileChannel}. The bytes are fed in chunks of any size with
+ * {@link #feed(ByteBuffer)}, the parser never blocks and never buffers more than one local header.
+ * The entries are read from their local headers and the uncompressed content is passed to a
+ * {@link Listener} as soon as it is available. The parser is driven by the states of
+ * {@link ZipState} and stops at the central directory, which repeats the local headers.
+ *
+ * @version 1.0
+ * @author Asterios Raptis
+ */
+public final class ZipStreamParser
+{
+
+	/** The signature of the data descriptor */
+	static final int DATA_DESCRIPTOR_SIGNATURE = 0x08074b50;
+
+	/** The general purpose flag that signals encrypted content */
+	private static final int ENCRYPTED_FLAG = 0x0001;
+
+	/** The general purpose flag that signals a data descriptor after the content */
+	private static final int DATA_DESCRIPTOR_FLAG = 0x0008;
+
+	/** The length of the fixed part of the local file header after the signature */
+	private static final int HEADER_LENGTH = CentralDirectory.LOCAL_HEADER_LENGTH - 4;
+
+	/** The checksum of the content of the current entry */
+	private final CRC32 crc = new CRC32();
+
+	/** The reusable buffer for headers, names and extra fields */
+	private ByteBuffer header = ByteBuffer.allocate(256).order(ByteOrder.LITTLE_ENDIAN);
+
+	/** The inflater for deflated entries */
+	private final Inflater inflater = new Inflater(true);
+
+	/** The listener that gets the entries and their content */
+	private final Listener listener;
+
+	/** The reusable buffer for the inflated content */
+	private final ByteBuffer output = ByteBuffer.allocate(ZipExtensions.DEFAULT_BUFFER_SIZE);
+
+	/** The current entry */
+	private ZipEntry entry;
+
+	/** The flags of the current entry */
+	private int flags;
+
+	/** The checksum in the local header of the current entry */
+	private long headerCrc;
+
+	/** The compressed size in the local header of the current entry */
+	private long headerCompressedSize;
+
+	/** The uncompressed size in the local header of the current entry */
+	private long headerSize;
+
+	/** The number of remaining compressed bytes of a stored entry */
+	private long remaining;
+
+	/** The uncompressed size of the current entry */
+	private long size;
+
+	/** The current state */
+	private ZipState state = ZipState.SIGNATURE;
+
+	/** The flag if the current entry has zip64 sizes */
+	private boolean zip64;
+
+	/**
+	 * Instantiates a new {@link ZipStreamParser}
+	 *
+	 * @param listener
+	 *            the listener that gets the entries and their content
+	 */
+	public ZipStreamParser(final Listener listener)
+	{
+		this.listener = listener;
+	}
+
+	/**
+	 * Creates a listener that extracts the entries to the given directory. Entries with a name
+	 * that points outside the directory are rejected.
+	 *
+	 * @param toDirectory
+	 *            the directory to extract to
+	 * @return the new listener
+	 */
+	public static Listener extractTo(final File toDirectory)
+	{
+		final Path root = toDirectory.toPath().toAbsolutePath().normalize();
+		return new Listener()
+		{
+			private FileChannel channel;
+
+			@Override
+			public void entryStarted(final ZipEntry entry) throws IOException
+			{
+				final Path path = root.resolve(entry.getName()).normalize();
+				if (!path.startsWith(root))
+				{
+					throw new ZipException(
+						"The entry " + entry.getName() + " is outside of " + toDirectory);
+				}
+				final File file = path.toFile();
+				if (entry.isDirectory())
+				{
+					file.mkdirs();
+					return;
+				}
+				file.getParentFile().mkdirs();
+				this.channel = FileChannel.open(path, StandardOpenOption.CREATE,
+					StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+			}
+
+			@Override
+			public void entryData(final ZipEntry entry, final ByteBuffer data) throws IOException
+			{
+				while (data.hasRemaining())
+				{
+					this.channel.write(data);
+				}
+			}
+
+			@Override
+			public void entryFinished(final ZipEntry entry) throws IOException
+			{
+				if (this.channel != null)
+				{
+					this.channel.close();
+					this.channel = null;
+				}
+			}
+		};
+	}
+
+	/**
+	 * Gets the current state of this parser
+	 *
+	 * @return the current state
+	 */
+	public ZipState getState()
+	{
+		return this.state;
+	}
+
+	/**
+	 * Checks if this parser has reached the central directory, all entries are parsed
+	 *
+	 * @return true if all entries are parsed otherwise false
+	 */
+	public boolean isFinished()
+	{
+		return this.state == ZipState.TAIL;
+	}
+
+	/**
+	 * Parses the given chunk of the zip archive. All remaining bytes of the chunk are consumed,
+	 * the parser keeps the state for the next chunk.
+	 *
+	 * @param chunk
+	 *            the next chunk of the zip archive
+	 * @throws IOException
+	 *             if the zip archive is invalid or the listener fails
+	 */
+	public void feed(final ByteBuffer chunk) throws IOException
+	{
+		while (chunk.hasRemaining())
+		{
+			switch (this.state)
+			{
+				case SIGNATURE :
+					if (fill(chunk, 4))
+					{
+						readSignature();
+					}
+					break;
+				case HEADER :
+					if (fill(chunk, HEADER_LENGTH))
+					{
+						this.state = ZipState.FN_LENGTH;
+					}
+					break;
+				case FN_LENGTH :
+					if (fill(chunk, HEADER_LENGTH + getNameLength()))
+					{
+						this.state = ZipState.EF_LENGTH;
+					}
+					break;
+				case EF_LENGTH :
+					if (fill(chunk, HEADER_LENGTH + getNameLength() + getExtraLength()))
+					{
+						readLocalHeader();
+					}
+					break;
+				case FLAGS :
+					startEntry();
+					break;
+				case DATA :
+					readData(chunk);
+					break;
+				case COMPRESSED_SIZE :
+					if (fill(chunk, 4) && fill(chunk, getDataDescriptorLength()))
+					{
+						readDataDescriptor();
+					}
+					break;
+				case TAIL :
+					chunk.position(chunk.limit());
+					break;
+			}
+		}
+		if (this.state == ZipState.FLAGS)
+		{
+			startEntry();
+		}
+	}
+
+	/**
+	 * Signals that the zip archive is complete
+	 *
+	 * @throws ZipException
+	 *             if the zip archive ended before the central directory
+	 */
+	public void finish() throws ZipException
+	{
+		this.inflater.end();
+		if (this.state != ZipState.TAIL)
+		{
+			throw new ZipException("Unexpected end of zip archive in state " + this.state);
+		}
+	}
+
+	/**
+	 * Collects bytes from the given chunk into the header buffer
+	 *
+	 * @param chunk
+	 *            the chunk to read from
+	 * @param length
+	 *            the number of bytes the header buffer has to contain
+	 * @return true if the header buffer contains at least the given number of bytes
+	 */
+	private boolean fill(final ByteBuffer chunk, final int length)
+	{
+		if (this.header.capacity() < length)
+		{
+			final ByteBuffer larger = ByteBuffer
+				.allocate(Math.max(length, 2 * this.header.capacity()))
+				.order(ByteOrder.LITTLE_ENDIAN);
+			this.header.flip();
+			this.header = larger.put(this.header);
+		}
+		final int count = Math.min(Math.max(length - this.header.position(), 0),
+			chunk.remaining());
+		if (0 < count)
+		{
+			this.header.put(this.header.position(), chunk, chunk.position(), count);
+			this.header.position(this.header.position() + count);
+			chunk.position(chunk.position() + count);
+		}
+		return length <= this.header.position();
+	}
+
+	private void readSignature() throws ZipException
+	{
+		final int signature = this.header.getInt(0);
+		this.header.clear();
+		if (signature == ZipChannelWriter.LOCAL_HEADER_SIGNATURE)
+		{
+			this.state = ZipState.HEADER;
+		}
+		else if (signature == ZipChannelWriter.CENTRAL_HEADER_SIGNATURE
+			|| signature == ZipChannelWriter.END_OF_CENTRAL_DIRECTORY_SIGNATURE)
+		{
+			this.state = ZipState.TAIL;
+		}
+		else
+		{
+			throw new ZipException(
+				"Invalid signature 0x" + Integer.toHexString(signature) + " in zip archive");
+		}
+	}
+
+	private int getNameLength()
+	{
+		return this.header.getShort(22) & 0xffff;
+	}
+
+	private int getExtraLength()
+	{
+		return this.header.getShort(24) & 0xffff;
+	}
+
+	/**
+	 * Reads the local header from the header buffer, the buffer contains the fixed part of the
+	 * header, the name and the extra field
+	 */
+	private void readLocalHeader()
+	{
+		this.flags = this.header.getShort(2) & 0xffff;
+		final byte[] name = new byte[getNameLength()];
+		this.header.get(HEADER_LENGTH, name);
+		this.entry = new ZipEntry(new String(name, StandardCharsets.UTF_8));
+		this.entry.setMethod(this.header.getShort(4) & 0xffff);
+		this.entry.setTime(
+			ZipChannelWriter.toJavaTime(this.header.getInt(6) & ZipChannelWriter.ZIP32_MAX));
+		this.headerCrc = this.header.getInt(10) & ZipChannelWriter.ZIP32_MAX;
+		long compressedSize = this.header.getInt(14) & ZipChannelWriter.ZIP32_MAX;
+		long entrySize = this.header.getInt(18) & ZipChannelWriter.ZIP32_MAX;
+		this.zip64 = false;
+		final int extraStart = HEADER_LENGTH + name.length;
+		final int extraEnd = extraStart + getExtraLength();
+		for (int extra = extraStart; extra + 4 <= extraEnd;)
+		{
+			final int length = this.header.getShort(extra + 2) & 0xffff;
+			if ((this.header.getShort(extra) & 0xffff) == ZipChannelWriter.ZIP64_EXTRA_ID)
+			{
+				this.zip64 = true;
+				int value = extra + 4;
+				if (entrySize == ZipChannelWriter.ZIP32_MAX && value + 8 <= extra + 4 + length)
+				{
+					entrySize = this.header.getLong(value);
+					value += 8;
+				}
+				if (compressedSize == ZipChannelWriter.ZIP32_MAX
+					&& value + 8 <= extra + 4 + length)
+				{
+					compressedSize = this.header.getLong(value);
+				}
+			}
+			extra += 4 + length;
+		}
+		this.headerCompressedSize = compressedSize;
+		this.headerSize = entrySize;
+		this.header.clear();
+		this.state = ZipState.FLAGS;
+	}
+
+	private void startEntry() throws IOException
+	{
+		if ((this.flags & ENCRYPTED_FLAG) != 0)
+		{
+			throw new ZipException("The entry " + this.entry.getName() + " is encrypted");
+		}
+		final int method = this.entry.getMethod();
+		final boolean dataDescriptor = (this.flags & DATA_DESCRIPTOR_FLAG) != 0;
+		if (method != ZipEntry.STORED && method != ZipEntry.DEFLATED)
+		{
+			throw new ZipException("The compression method " + method + " of the entry "
+				+ this.entry.getName() + " is not supported");
+		}
+		if (method == ZipEntry.STORED && dataDescriptor)
+		{
+			throw new ZipException("The stored entry " + this.entry.getName()
+				+ " has no size in the local header");
+		}
+		if (!dataDescriptor)
+		{
+			this.entry.setCrc(this.headerCrc);
+			this.entry.setCompressedSize(this.headerCompressedSize);
+			this.entry.setSize(this.headerSize);
+		}
+		this.remaining = this.headerCompressedSize;
+		this.size = 0;
+		this.crc.reset();
+		this.inflater.reset();
+		this.state = ZipState.DATA;
+		this.listener.entryStarted(this.entry);
+		if (method == ZipEntry.STORED && this.remaining == 0)
+		{
+			finishEntry();
+		}
+	}
+
+	private void readData(final ByteBuffer chunk) throws IOException
+	{
+		if (this.entry.getMethod() == ZipEntry.STORED)
+		{
+			final int count = (int)Math.min(this.remaining, chunk.remaining());
+			final ByteBuffer data = chunk.slice(chunk.position(), count).asReadOnlyBuffer();
+			chunk.position(chunk.position() + count);
+			this.remaining -= count;
+			emit(data);
+			if (this.remaining == 0)
+			{
+				finishEntry();
+			}
+			return;
+		}
+		this.inflater.setInput(chunk);
+		try
+		{
+			while (!this.inflater.finished())
+			{
+				this.output.clear();
+				final int count = this.inflater.inflate(this.output);
+				if (count == 0)
+				{
+					if (this.inflater.needsInput())
+					{
+						break;
+					}
+					if (this.inflater.needsDictionary())
+					{
+						throw new ZipException("The entry " + this.entry.getName()
+							+ " needs a preset dictionary");
+					}
+				}
+				this.output.flip();
+				emit(this.output);
+			}
+		}
+		catch (DataFormatException e)
+		{
+			final ZipException exception = new ZipException(
+				"Invalid deflated content of the entry " + this.entry.getName());
+			exception.initCause(e);
+			throw exception;
+		}
+		if (this.inflater.finished())
+		{
+			if ((this.flags & DATA_DESCRIPTOR_FLAG) != 0)
+			{
+				this.entry.setCompressedSize(this.inflater.getBytesRead());
+				this.header.clear();
+				this.state = ZipState.COMPRESSED_SIZE;
+			}
+			else
+			{
+				finishEntry();
+			}
+		}
+	}
+
+	private void emit(final ByteBuffer data) throws IOException
+	{
+		if (!data.hasRemaining())
+		{
+			return;
+		}
+		final int position = data.position();
+		this.crc.update(data);
+		data.position(position);
+		this.size += data.remaining();
+		this.listener.entryData(this.entry, data);
+	}
+
+	/**
+	 * Gets the length of the data descriptor, the signature of the data descriptor is optional
+	 *
+	 * @return the length of the data descriptor
+	 */
+	private int getDataDescriptorLength()
+	{
+		return (this.header.getInt(0) == DATA_DESCRIPTOR_SIGNATURE ? 4 : 0)
+			+ (this.zip64 ? 20 : 12);
+	}
+
+	private void readDataDescriptor() throws IOException
+	{
+		final int start = this.header.getInt(0) == DATA_DESCRIPTOR_SIGNATURE ? 4 : 0;
+		this.entry.setCrc(this.header.getInt(start) & ZipChannelWriter.ZIP32_MAX);
+		this.entry.setSize(this.zip64
+			? this.header.getLong(start + 12)
+			: this.header.getInt(start + 8) & ZipChannelWriter.ZIP32_MAX);
+		finishEntry();
+	}
+
+	private void finishEntry() throws IOException
+	{
+		if (this.entry.getSize() != this.size)
+		{
+			throw new ZipException("The entry " + this.entry.getName() + " has " + this.size
+				+ " bytes but the header says " + this.entry.getSize());
+		}
+		if (this.entry.getCrc() != this.crc.getValue())
+		{
+			throw new ZipException("The checksum of the entry " + this.entry.getName()
+				+ " does not match");
+		}
+		this.header.clear();
+		this.state = ZipState.SIGNATURE;
+		this.listener.entryFinished(this.entry);
+	}
+
+	/**
+	 * Listener that gets the entries and their uncompressed content from a
+	 * {@link ZipStreamParser}
+	 */
+	public interface Listener
+	{
+
+		/**
+		 * Called before the content of an entry. If the entry has a data descriptor, the size and
+		 * the checksum are not known yet.
+		 *
+		 * @param entry
+		 *            the entry
+		 * @throws IOException
+		 *             Signals that an I/O exception has occurred.
+		 */
+		default void entryStarted(final ZipEntry entry) throws IOException
+		{
+		}
+
+		/**
+		 * Called with the next chunk of the uncompressed content of an entry. The buffer is only
+		 * valid until this method returns.
+		 *
+		 * @param entry
+		 *            the entry
+		 * @param data
+		 *            the buffer with the next chunk of the content
+		 * @throws IOException
+		 *             Signals that an I/O exception has occurred.
+		 */
+		void entryData(ZipEntry entry, ByteBuffer data) throws IOException;
+
+		/**
+		 * Called after the content of an entry is complete and verified
+		 *
+		 * @param entry
+		 *            the entry with the size and the checksum
+		 * @throws IOException
+		 *             Signals that an I/O exception has occurred.
+		 */
+		default void entryFinished(final ZipEntry entry) throws IOException
+		{
+		}
+	}
+}
@@ -25,18 +25,36 @@
 package io.github.astrapi69.zip;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.FilenameFilter;
 import java.io.IOException;
-import java.util.Arrays;
-import java.util.List;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.BooleanSupplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
 import java.util.zip.ZipFile;
 import java.util.zip.ZipOutputStream;
 
+import io.github.astrapi69.zip.jfr.ArchiveFinishedEvent;
+import io.github.astrapi69.zip.jfr.EntryCompressedEvent;
+
 /**
  * The {@code Zipper} class provides functionality to create ZIP archives from directories or files.
  * It supports various compression methods and allows customization through builder pattern.
@@ -48,18 +66,46 @@ public class Zipper implements ZipModel
 {
 	/** The logger */
 	private static final Logger log = Logger.getLogger(Zipper.class.getName());
+	/** The maximum number of bytes that are transferred at once into the zip archive */
+	private static final long TRANSFER_SIZE = 64L * 1024 * 1024;
+	/** The size of the blocks the files are split into for parallel compression */
+	private int blockSize;
+	/** The size of the buffer for copy the file content into the zip archive */
+	private int bufferSize;
 	/** The compression method */
 	private int compressionMethod;
+	/** The policy that decides the compression level of every entry */
+	private CompressionPolicy compressionPolicy;
 	/** The directory to zip */
 	private File directoryToZip;
 	/** The directory to start */
 	private String dirToStart;
+	/** The number of threads that discover the files to zip */
+	private int discoveryParallelism;
 	/** The file counter. */
 	private int fileCounter;
 	/** The file filter */
 	private FilenameFilter fileFilter;
 	/** The file length */
 	private long fileLength;
+	/** The listener that is notified after every zipped entry */
+	private ZipListener listener;
+	/** The maximum number of bytes the blocks in the pipeline can reserve */
+	private long memoryBudget;
+	/** The metrics of the last zipped entry and the running totals */
+	private final ZipMetrics metrics = new ZipMetrics();
+	/** The number of threads that compress the files */
+	private int parallelism;
+	/** The flag if the files are zipped with the read, compress and write pipeline */
+	private boolean pipelined;
+	/** The maximum number of blocks in the pipeline */
+	private int queueDepth;
+	/** The number of threads that read the files in the pipeline */
+	private int readerParallelism;
+	/** The registry of file types that are stored without compression */
+	private StoredFileTypes storedFileTypes;
+	/** The flag if an existing zip file is updated instead of rewritten */
+	private boolean update;
 	/** The zip file */
 	private File zipFile;
 	/** The zip file comment */
@@ -76,6 +122,11 @@ public class Zipper implements ZipModel
 		fileCounter = 0;
 		zipLevel = -1;
 		compressionMethod = -1;
+		bufferSize = ZipExtensions.DEFAULT_BUFFER_SIZE;
+		parallelism = 1;
+		readerParallelism = 1;
+		blockSize = ParallelZipper.DEFAULT_BLOCK_SIZE;
+		discoveryParallelism = FileWalker.DEFAULT_PARALLELISM;
 	}
 
 	/**
@@ -119,7 +170,8 @@ public class Zipper implements ZipModel
 	 * Instantiates a new {@link Zipper} object with detailed parameters.
 	 *
 	 * @param compressionMethod
-	 *            the compression method
+	 *            the compression method, {@link ZipEntry#STORED} (0) stores the entries without
+	 *            compression and any other value deflates them
 	 * @param directoryToZip
 	 *            the directory to zip
 	 * @param dirToStart
@@ -168,6 +220,48 @@ public class Zipper implements ZipModel
 		return new ZipperBuilder();
 	}
 
+	/**
+	 * Gets the size of the blocks the files are split into for parallel compression.
+	 *
+	 * @return the block size
+	 */
+	public int getBlockSize()
+	{
+		return this.blockSize;
+	}
+
+	/**
+	 * Sets the size of the blocks the files are split into for parallel compression.
+	 *
+	 * @param blockSize
+	 *            the new block size
+	 */
+	public void setBlockSize(int blockSize)
+	{
+		this.blockSize = blockSize;
+	}
+
+	/**
+	 * Gets the size of the buffer that is used for copy the file content into the zip archive.
+	 *
+	 * @return the buffer size
+	 */
+	public int getBufferSize()
+	{
+		return this.bufferSize;
+	}
+
+	/**
+	 * Sets the size of the buffer that is used for copy the file content into the zip archive.
+	 *
+	 * @param bufferSize
+	 *            the new buffer size
+	 */
+	public void setBufferSize(int bufferSize)
+	{
+		this.bufferSize = bufferSize;
+	}
+
 	/**
 	 * Gets the compression method used for zipping.
 	 *
@@ -180,7 +274,9 @@ public class Zipper implements ZipModel
 	}
 
 	/**
-	 * Sets the compression method for zipping.
+	 * Sets the compression method for zipping. The value {@link ZipEntry#STORED}, which is 0,
+	 * stores the entries without compression, any other value like the default -1 or
+	 * {@link ZipEntry#DEFLATED} deflates them. Note that 0 is not treated as unset.
 	 *
 	 * @param compressionMethod
 	 *            the new compression method
@@ -191,6 +287,29 @@ public class Zipper implements ZipModel
 		this.compressionMethod = compressionMethod;
 	}
 
+	/**
+	 * Gets the policy that decides the compression level of every entry. If no policy is set the
+	 * zip level is used for all entries.
+	 *
+	 * @return the compression policy or null
+	 */
+	public CompressionPolicy getCompressionPolicy()
+	{
+		return this.compressionPolicy;
+	}
+
+	/**
+	 * Sets the policy that decides the compression level of every entry. The policy is not used
+	 * if the compression method is {@link ZipEntry#STORED}.
+	 *
+	 * @param compressionPolicy
+	 *            the new compression policy or null for the zip level
+	 */
+	public void setCompressionPolicy(CompressionPolicy compressionPolicy)
+	{
+		this.compressionPolicy = compressionPolicy;
+	}
+
 	/**
 	 * Gets the directory to be zipped.
 	 *
@@ -260,6 +379,27 @@ public class Zipper implements ZipModel
 		this.fileCounter = fileCounter;
 	}
 
+	/**
+	 * Gets the number of threads that list the directories while the files are zipped.
+	 *
+	 * @return the number of threads that discover the files to zip
+	 */
+	public int getDiscoveryParallelism()
+	{
+		return this.discoveryParallelism;
+	}
+
+	/**
+	 * Sets the number of threads that list the directories while the files are zipped.
+	 *
+	 * @param discoveryParallelism
+	 *            the new number of threads that discover the files to zip
+	 */
+	public void setDiscoveryParallelism(int discoveryParallelism)
+	{
+		this.discoveryParallelism = discoveryParallelism;
+	}
+
 	/**
 	 * Gets the file name filter used during zipping.
 	 *
@@ -306,6 +446,203 @@ public class Zipper implements ZipModel
 		this.fileLength = fileLength;
 	}
 
+	/**
+	 * Gets the listener that is notified after every zipped entry.
+	 *
+	 * @return the listener or null if no listener is set
+	 */
+	public ZipListener getListener()
+	{
+		return this.listener;
+	}
+
+	/**
+	 * Sets the listener that is notified after every zipped entry.
+	 *
+	 * @param listener
+	 *            the new listener
+	 */
+	public void setListener(ZipListener listener)
+	{
+		this.listener = listener;
+	}
+
+	/**
+	 * Gets the metrics of the last zipped entry and the running totals. The metrics are
+	 * collected with and without a listener and can be read after {@link #zip()} returns.
+	 *
+	 * @return the metrics
+	 */
+	public ZipMetrics getMetrics()
+	{
+		return this.metrics;
+	}
+
+	/**
+	 * Gets the number of threads that compress the files. A value greater than one compresses
+	 * the files in parallel.
+	 *
+	 * @return the number of threads that compress the files
+	 */
+	public int getParallelism()
+	{
+		return this.parallelism;
+	}
+
+	/**
+	 * Sets the number of threads that compress the files. A value greater than one compresses
+	 * the files in parallel.
+	 *
+	 * @param parallelism
+	 *            the new number of threads that compress the files
+	 */
+	public void setParallelism(int parallelism)
+	{
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Gets the maximum number of bytes the blocks in the pipeline can reserve. A value less than
+	 * one means no limit.
+	 *
+	 * @return the memory budget in bytes
+	 */
+	public long getMemoryBudget()
+	{
+		return this.memoryBudget;
+	}
+
+	/**
+	 * Sets the maximum number of bytes the blocks in the pipeline can reserve. A value less than
+	 * one means no limit.
+	 *
+	 * @param memoryBudget
+	 *            the new memory budget in bytes
+	 */
+	public void setMemoryBudget(long memoryBudget)
+	{
+		this.memoryBudget = memoryBudget;
+	}
+
+	/**
+	 * Checks if the files are zipped with the read, compress and write pipeline even if the
+	 * parallelism is one.
+	 *
+	 * @return true if the files are zipped with the pipeline
+	 */
+	public boolean isPipelined()
+	{
+		return this.pipelined;
+	}
+
+	/**
+	 * Sets the flag if the files are zipped with the read, compress and write pipeline even if
+	 * the parallelism is one. The pipeline compresses every block on its own, so the entries,
+	 * their order and their content equal a serial zip file but the compressed bytes differ.
+	 *
+	 * @param pipelined
+	 *            the new flag if the files are zipped with the pipeline
+	 */
+	public void setPipelined(boolean pipelined)
+	{
+		this.pipelined = pipelined;
+	}
+
+	/**
+	 * Gets the maximum number of blocks that are read, compressed or wait for writing in the
+	 * pipeline. A value less than one means twice the number of threads.
+	 *
+	 * @return the queue depth
+	 */
+	public int getQueueDepth()
+	{
+		return this.queueDepth;
+	}
+
+	/**
+	 * Sets the maximum number of blocks that are read, compressed or wait for writing in the
+	 * pipeline. A value less than one means twice the number of threads.
+	 *
+	 * @param queueDepth
+	 *            the new queue depth
+	 */
+	public void setQueueDepth(int queueDepth)
+	{
+		this.queueDepth = queueDepth;
+	}
+
+	/**
+	 * Gets the registry of file types that are always stored without compression.
+	 *
+	 * @return the registry of stored file types or null
+	 */
+	@Override
+	public StoredFileTypes getStoredFileTypes()
+	{
+		return this.storedFileTypes;
+	}
+
+	/**
+	 * Sets the registry of file types that are always stored without compression, for instance
+	 * {@link StoredFileTypes#defaults()} so that nested archives and media files are not
+	 * compressed again.
+	 *
+	 * @param storedFileTypes
+	 *            the new registry of stored file types or null
+	 */
+	@Override
+	public void setStoredFileTypes(StoredFileTypes storedFileTypes)
+	{
+		this.storedFileTypes = storedFileTypes;
+	}
+
+	/**
+	 * Gets the number of threads that read the files in the pipeline.
+	 *
+	 * @return the number of threads that read the files
+	 */
+	public int getReaderParallelism()
+	{
+		return this.readerParallelism;
+	}
+
+	/**
+	 * Sets the number of threads that read the files in the pipeline.
+	 *
+	 * @param readerParallelism
+	 *            the new number of threads that read the files
+	 */
+	public void setReaderParallelism(int readerParallelism)
+	{
+		this.readerParallelism = readerParallelism;
+	}
+
+	/**
+	 * Checks if an existing zip file is updated instead of rewritten.
+	 *
+	 * @return true if an existing zip file is updated
+	 */
+	public boolean isUpdate()
+	{
+		return this.update;
+	}
+
+	/**
+	 * Sets the flag if an existing zip file is updated instead of rewritten. In update mode the
+	 * entries of the existing zip file are kept with their compressed content, only the new files
+	 * and the files with another size or modification time than their entry are compressed and
+	 * written. If no entry is replaced, the new files are appended in place and only the central
+	 * directory is rewritten. Otherwise the kept entries are copied as they are into a new zip
+	 * file that replaces the existing one. Entries without a file are kept.
+	 *
+	 * @param update
+	 *            the new flag if an existing zip file is updated
+	 */
+	public void setUpdate(boolean update)
+	{
+		this.update = update;
+	}
+
 	/**
 	 * Gets the target ZIP file object.
 	 *
@@ -432,7 +769,12 @@ public class Zipper implements ZipModel
 			.directoryToZip(this.directoryToZip).dirToStart(this.dirToStart)
 			.fileCounter(this.fileCounter).fileFilter(this.fileFilter).fileLength(this.fileLength)
 			.zipFile(this.zipFile).zipFileComment(this.zipFileComment).zipFileName(this.zipFileName)
-			.zipFileObj(this.zipFileObj).zipLevel(this.zipLevel);
+			.zipFileObj(this.zipFileObj).zipLevel(this.zipLevel).bufferSize(this.bufferSize)
+			.parallelism(this.parallelism).blockSize(this.blockSize).listener(this.listener)
+			.discoveryParallelism(this.discoveryParallelism).pipelined(this.pipelined)
+			.readerParallelism(this.readerParallelism).queueDepth(this.queueDepth)
+			.memoryBudget(this.memoryBudget).compressionPolicy(this.compressionPolicy)
+			.storedFileTypes(this.storedFileTypes).update(this.update);
 	}
 
 	/**
@@ -441,9 +783,88 @@ public class Zipper implements ZipModel
 	 * @return an optional error code if any issue occurs during the operation
 	 */
 	public Optional<ZipErrorCodes> zip()
+	{
+		return this.zip(ZipExtensions.NOT_CANCELLED);
+	}
+
+	/**
+	 * Creates a ZIP archive of the specified directory and its contents on the given executor.
+	 * Cancelling the returned future stops the zipping after the current buffer or block and
+	 * deletes the partially written zip file.
+	 *
+	 * @param executor
+	 *            the executor that runs the zipping
+	 * @return the future with an optional error code if any issue occurs during the operation
+	 */
+	public CompletableFuture<Optional<ZipErrorCodes>> zipAsync(final Executor executor)
+	{
+		final CompletableFuture<Optional<ZipErrorCodes>> future = new CompletableFuture<>();
+		executor.execute(() -> {
+			try
+			{
+				future.complete(this.zip(future::isCancelled));
+			}
+			catch (Throwable throwable)
+			{
+				future.completeExceptionally(throwable);
+			}
+		});
+		return future;
+	}
+
+	/**
+	 * Creates a ZIP archive of the specified directory and its contents and stops if the given
+	 * flag is set.
+	 *
+	 * @param cancelled
+	 *            the flag if the zipping is cancelled
+	 * @return an optional error code if any issue occurs during the operation
+	 */
+	Optional<ZipErrorCodes> zip(final BooleanSupplier cancelled)
+	{
+		this.metrics.start();
+		final ArchiveFinishedEvent event = ArchiveFinishedEvent.archiveStarted(
+			ArchiveFinishedEvent.ZIP, this.zipFile.getAbsolutePath(),
+			this.getEffectiveCompressionMethod(), this.getEffectiveZipLevel());
+		Optional<ZipErrorCodes> errorCode;
+		try
+		{
+			if (this.update && this.zipFile.isFile() && 0 < this.zipFile.length())
+			{
+				errorCode = this.zipUpdate(cancelled);
+			}
+			else if (this.getEffectiveCompressionMethod() == ZipEntry.STORED)
+			{
+				errorCode = this.zipStored(cancelled);
+			}
+			else
+			{
+				errorCode = this.pipelined || 1 < this.parallelism
+					? this.zipParallel(cancelled)
+					: this.zipSerial(cancelled);
+			}
+		}
+		catch (CancellationException e)
+		{
+			this.zipFile.delete();
+			errorCode = Optional.of(ZipErrorCodes.CANCELLED);
+		}
+		event.archiveFinished(this.metrics.getEntryCount(), this.metrics.getTotalBytesIn());
+		return errorCode;
+	}
+
+	/**
+	 * Creates a ZIP archive of the specified directory and its contents on the current thread
+	 *
+	 * @param cancelled
+	 *            the flag if the zipping is cancelled
+	 * @return an optional error code if any issue occurs during the operation
+	 */
+	private Optional<ZipErrorCodes> zipSerial(final BooleanSupplier cancelled)
 	{
 		try (FileOutputStream fos = new FileOutputStream(this.zipFile);
-			ZipOutputStream zos = new ZipOutputStream(fos))
+			TimedOutputStream tos = new TimedOutputStream(fos);
+			ZipOutputStream zos = new ZipOutputStream(tos))
 		{
 			if (!this.directoryToZip.exists())
 			{
@@ -453,14 +874,7 @@ public class Zipper implements ZipModel
 			{
 				return Optional.of(ZipErrorCodes.ZIP_FILE_DOES_NOT_EXIST);
 			}
-			if (this.zipLevel > 0)
-			{
-				zos.setLevel(this.zipLevel);
-			}
-			else
-			{
-				zos.setLevel(9);
-			}
+			zos.setLevel(this.getEffectiveZipLevel());
 			if (this.zipFileComment != null)
 			{
 				zos.setComment(this.zipFileComment);
@@ -469,7 +883,10 @@ public class Zipper implements ZipModel
 			{
 				zos.setMethod(this.compressionMethod);
 			}
-			this.zipFiles(this.directoryToZip, zos);
+			final byte[] buffer = newBuffer();
+			final byte[] sample = this.newSample();
+			this.visitFiles(this.directoryToZip,
+				file -> this.zipFile(file, zos, tos, buffer, sample, cancelled));
 			zos.flush();
 			zos.finish();
 			fos.flush();
@@ -479,106 +896,835 @@ public class Zipper implements ZipModel
 			log.log(Level.SEVERE, e.getLocalizedMessage(), e);
 			return Optional.of(ZipErrorCodes.IO_ERROR);
 		}
+		this.zipFinished();
 		return Optional.empty();
 	}
 
 	/**
-	 * Recursively adds files or directories to the ZIP output stream.
+	 * Creates a ZIP archive of the specified directory and its contents and compresses the files
+	 * on {@link #getParallelism()} worker threads
 	 *
-	 * @param file
-	 *            the current file or directory to add
-	 * @param zos
-	 *            the ZIP output stream
-	 * @throws IOException
-	 *             if an I/O error occurs during zipping
+	 * @param cancelled
+	 *            the flag if the zipping is cancelled
+	 * @return an optional error code if any issue occurs during the operation
 	 */
-	private void zipFiles(final File file, ZipOutputStream zos) throws IOException
+	private Optional<ZipErrorCodes> zipParallel(final BooleanSupplier cancelled)
 	{
-		if (file.isDirectory())
+		try (ZipChannelWriter writer = new ZipChannelWriter(
+			FileChannel.open(this.zipFile.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)))
 		{
-			List<File> filesToZip;
-			if (this.fileFilter != null)
-			{
-				filesToZip = ZipExtensions.getFoundedFiles(file, file.listFiles(this.fileFilter));
-			}
-			else
+			if (!this.directoryToZip.exists())
 			{
-				filesToZip = Arrays.asList(file.listFiles());
+				return Optional.of(ZipErrorCodes.DIRECTORY_TO_ZIP_DOES_NOT_EXIST);
 			}
-			for (final File fileToZip : filesToZip)
+			try (ParallelZipper parallelZipper = this.newParallelZipper(writer, cancelled))
 			{
-				this.zipFiles(fileToZip, zos);
+				this.visitFiles(this.directoryToZip, file -> this.addFile(file, parallelZipper));
+				parallelZipper.flush();
 			}
+			writer.finish(this.zipFileComment);
 		}
-		else
+		catch (IOException e)
 		{
-			this.fileLength += file.length();
-			this.fileCounter++;
-			final String absolutePath = file.getAbsolutePath();
-			if (this.dirToStart == null)
-			{
-				this.dirToStart = this.directoryToZip.getName();
-			}
-			final int index = absolutePath.indexOf(this.dirToStart);
-			final String zipEntryName = absolutePath.substring(index);
-			final byte[] buffer = new byte[(int)file.length()];
-			final ZipEntry zipEntry = new ZipEntry(zipEntryName);
-			zos.putNextEntry(zipEntry);
-			zos.write(buffer, 0, (int)file.length());
-			zos.closeEntry();
+			log.log(Level.SEVERE, e.getLocalizedMessage(), e);
+			return Optional.of(ZipErrorCodes.IO_ERROR);
 		}
+		this.zipFinished();
+		return Optional.empty();
 	}
 
 	/**
-	 * Builder class for constructing {@code Zipper} objects with desired parameters.
+	 * Creates a new pipeline that compresses the files into the given writer
+	 *
+	 * @param writer
+	 *            the writer of the zip archive
+	 * @param cancelled
+	 *            the flag if the zipping is cancelled
+	 * @return the new pipeline
 	 */
-	public static class ZipperBuilder
+	private ParallelZipper newParallelZipper(final ZipChannelWriter writer,
+		final BooleanSupplier cancelled)
 	{
-		private int compressionMethod;
-		private File directoryToZip;
-		private String dirToStart;
-		private int fileCounter;
-		private FilenameFilter fileFilter;
-		private long fileLength;
-		private File zipFile;
-		private String zipFileComment;
-		private String zipFileName;
-		private ZipFile zipFileObj;
-		private int zipLevel;
+		return new ParallelZipper(writer, this.zipFile.getAbsolutePath(), this.readerParallelism,
+			this.parallelism, this.getEffectiveCompressionMethod(), this.getEffectiveZipLevel(),
+			this.blockSize, this.queueDepth, this.memoryBudget, this::entryZipped, cancelled);
+	}
 
-		/**
-		 * Constructs a new {@code ZipperBuilder}.
-		 */
-		ZipperBuilder()
+	/**
+	 * Adds the given file to the given pipeline with the compression level of the file. Files of
+	 * the stored file types are stored, if a sample is needed for the decision it is taken on the
+	 * reader thread of the pipeline
+	 *
+	 * @param file
+	 *            the file to add
+	 * @param parallelZipper
+	 *            the pipeline
+	 * @throws IOException
+	 *             if an I/O error occurs during zipping
+	 */
+	private void addFile(final File file, final ParallelZipper parallelZipper)
+		throws IOException
+	{
+		final String name = this.newZipEntryName(file);
+		if (this.storedFileTypes != null && this.storedFileTypes.isStored(file.getName()))
 		{
+			parallelZipper.add(file, name, ZipEntry.STORED, CompressionPolicy.STORED_LEVEL);
 		}
-
-		/**
-		 * Builds a new {@code Zipper} object with the configured parameters.
-		 *
-		 * @return a new {@code Zipper} instance
-		 */
-		public Zipper build()
+		else if (0 < this.getSampleSize())
 		{
-			return new Zipper(compressionMethod, directoryToZip, dirToStart, fileCounter,
-				fileFilter, fileLength, zipFile, zipFileComment, zipFileName, zipFileObj, zipLevel);
+			parallelZipper.add(file, name, this::getSampleLevel, this.getSampleSize());
 		}
-
-		/**
-		 * Sets the compression method for the ZIP archive being created.
-		 *
-		 * @param compressionMethod
-		 *            the compression method
-		 * @return this builder instance for method chaining
-		 */
-		public ZipperBuilder compressionMethod(int compressionMethod)
+		else
 		{
-			this.compressionMethod = compressionMethod;
-			return this;
+			parallelZipper.add(file, name, ZipEntry.DEFLATED, this.getEffectiveZipLevel());
 		}
+	}
 
-		/**
-		 * Sets the directory to be zipped.
+	/**
+	 * Updates the existing ZIP archive with the files of the specified directory. The files with
+	 * an unchanged entry are skipped, the other files are compressed into the zip archive.
+	 *
+	 * @param cancelled
+	 *            the flag if the zipping is cancelled
+	 * @return an optional error code if any issue occurs during the operation
+	 * @see #setUpdate(boolean)
+	 */
+	private Optional<ZipErrorCodes> zipUpdate(final BooleanSupplier cancelled)
+	{
+		if (!this.directoryToZip.exists())
+		{
+			return Optional.of(ZipErrorCodes.DIRECTORY_TO_ZIP_DOES_NOT_EXIST);
+		}
+		File temporary = null;
+		try
+		{
+			final Map<String, File> files = new LinkedHashMap<>();
+			this.visitFiles(this.directoryToZip,
+				file -> files.put(this.newZipEntryName(file), file));
+			try (CentralDirectory directory = CentralDirectory.open(this.zipFile))
+			{
+				boolean replaced = false;
+				for (final CentralDirectory.Entry entry = directory.entries(); entry.next();)
+				{
+					final File file = files.get(entry.getName());
+					if (file != null && isUnchanged(entry, file))
+					{
+						files.remove(entry.getName());
+					}
+					else if (file != null)
+					{
+						replaced = true;
+					}
+				}
+				final String comment = this.zipFileComment != null
+					? this.zipFileComment
+					: directory.getComment();
+				if (replaced)
+				{
+					temporary = File.createTempFile(this.zipFile.getName(), ".tmp",
+						this.zipFile.getAbsoluteFile().getParentFile());
+					this.copyAndAppend(directory, files, temporary, comment, cancelled);
+				}
+				else
+				{
+					this.append(directory, files.values(), comment, cancelled);
+				}
+			}
+			if (temporary != null)
+			{
+				Files.move(temporary.toPath(), this.zipFile.toPath(),
+					StandardCopyOption.REPLACE_EXISTING);
+			}
+		}
+		catch (CancellationException e)
+		{
+			return Optional.of(ZipErrorCodes.CANCELLED);
+		}
+		catch (IOException e)
+		{
+			log.log(Level.SEVERE, e.getLocalizedMessage(), e);
+			return Optional.of(ZipErrorCodes.IO_ERROR);
+		}
+		finally
+		{
+			if (temporary != null)
+			{
+				temporary.delete();
+			}
+		}
+		this.zipFinished();
+		return Optional.empty();
+	}
+
+	/**
+	 * Checks if the given entry is unchanged for the given file, that means the entry has the
+	 * same size and the same ms-dos time as the file
+	 *
+	 * @param entry
+	 *            the cursor positioned at the entry
+	 * @param file
+	 *            the file of the entry
+	 * @return true if the entry is unchanged otherwise false
+	 */
+	private static boolean isUnchanged(final CentralDirectory.Entry entry, final File file)
+	{
+		return entry.getSize() == file.length()
+			&& entry.getDosTime() == (int)ZipChannelWriter.toDosTime(file.lastModified());
+	}
+
+	/**
+	 * Appends the given files in place to the zip archive of the given central directory. The
+	 * new entries overwrite the central directory, which is rewritten after them with the records
+	 * of the existing and the new entries. If the update fails, the original central directory is
+	 * restored.
+	 *
+	 * @param directory
+	 *            the central directory of the zip archive
+	 * @param files
+	 *            the files to append
+	 * @param comment
+	 *            the comment of the zip archive
+	 * @param cancelled
+	 *            the flag if the zipping is cancelled
+	 * @throws IOException
+	 *             if an I/O error occurs during zipping
+	 */
+	private void append(final CentralDirectory directory, final Collection<File> files,
+		final String comment, final BooleanSupplier cancelled) throws IOException
+	{
+		final FileChannel channel = FileChannel.open(this.zipFile.toPath(),
+			StandardOpenOption.READ, StandardOpenOption.WRITE);
+		final long offset = directory.getOffset();
+		try (ZipChannelWriter writer = new ZipChannelWriter(channel, offset))
+		{
+			final ByteBuffer tail = CentralDirectory.read(channel, offset,
+				Math.toIntExact(channel.size() - offset));
+			for (final CentralDirectory.Entry entry = directory.entries(); entry.next();)
+			{
+				writer.addEntry(entry);
+			}
+			try
+			{
+				this.addFiles(files, writer, cancelled);
+				writer.finish(comment);
+			}
+			catch (IOException | RuntimeException e)
+			{
+				while (tail.hasRemaining())
+				{
+					channel.write(tail, offset + tail.position());
+				}
+				channel.truncate(offset + tail.limit());
+				throw e;
+			}
+		}
+	}
+
+	/**
+	 * Copies the kept entries of the given central directory with their compressed content into
+	 * the given new zip archive and appends the given files
+	 *
+	 * @param directory
+	 *            the central directory of the existing zip archive
+	 * @param files
+	 *            the files to append by their entry names, all entries with these names are
+	 *            replaced
+	 * @param target
+	 *            the new zip archive
+	 * @param comment
+	 *            the comment of the zip archive
+	 * @param cancelled
+	 *            the flag if the zipping is cancelled
+	 * @throws IOException
+	 *             if an I/O error occurs during zipping
+	 */
+	private void copyAndAppend(final CentralDirectory directory, final Map<String, File> files,
+		final File target, final String comment, final BooleanSupplier cancelled)
+		throws IOException
+	{
+		try (ZipChannelWriter writer = new ZipChannelWriter(FileChannel.open(target.toPath(),
+			StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)))
+		{
+			for (final CentralDirectory.Entry entry = directory.entries(); entry.next();)
+			{
+				ZipExtensions.checkCancelled(cancelled);
+				if (!files.containsKey(entry.getName()))
+				{
+					writer.copyEntry(directory.getChannel(), entry, null);
+				}
+			}
+			this.addFiles(files.values(), writer, cancelled);
+			writer.finish(comment);
+		}
+	}
+
+	/**
+	 * Compresses the given files into the given writer with the compression method of this
+	 * zipper
+	 *
+	 * @param files
+	 *            the files to add
+	 * @param writer
+	 *            the writer of the zip archive
+	 * @param cancelled
+	 *            the flag if the zipping is cancelled
+	 * @throws IOException
+	 *             if an I/O error occurs during zipping
+	 */
+	private void addFiles(final Collection<File> files, final ZipChannelWriter writer,
+		final BooleanSupplier cancelled) throws IOException
+	{
+		if (this.getEffectiveCompressionMethod() == ZipEntry.STORED)
+		{
+			final ByteBuffer buffer = this.newDirectBuffer();
+			for (final File file : files)
+			{
+				this.storeFile(file, writer, buffer, cancelled);
+			}
+			return;
+		}
+		try (ParallelZipper parallelZipper = this.newParallelZipper(writer, cancelled))
+		{
+			for (final File file : files)
+			{
+				this.addFile(file, parallelZipper);
+			}
+			parallelZipper.flush();
+		}
+	}
+
+	/**
+	 * Creates a ZIP archive of the specified directory and its contents without compression. The
+	 * content of the files is transferred with {@link FileChannel#transferTo(long, long,
+	 * java.nio.channels.WritableByteChannel)} directly into the zip archive.
+	 *
+	 * @param cancelled
+	 *            the flag if the zipping is cancelled
+	 * @return an optional error code if any issue occurs during the operation
+	 */
+	private Optional<ZipErrorCodes> zipStored(final BooleanSupplier cancelled)
+	{
+		try (ZipChannelWriter writer = new ZipChannelWriter(
+			FileChannel.open(this.zipFile.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)))
+		{
+			if (!this.directoryToZip.exists())
+			{
+				return Optional.of(ZipErrorCodes.DIRECTORY_TO_ZIP_DOES_NOT_EXIST);
+			}
+			final ByteBuffer buffer = this.newDirectBuffer();
+			this.visitFiles(this.directoryToZip,
+				file -> this.storeFile(file, writer, buffer, cancelled));
+			writer.finish(this.zipFileComment);
+		}
+		catch (IOException e)
+		{
+			log.log(Level.SEVERE, e.getLocalizedMessage(), e);
+			return Optional.of(ZipErrorCodes.IO_ERROR);
+		}
+		this.zipFinished();
+		return Optional.empty();
+	}
+
+	/**
+	 * Adds the given file without compression to the zip archive. The crc-32 checksum is computed
+	 * in a first pass over the file, then the content is transferred into the zip archive without
+	 * a copy into the java heap.
+	 *
+	 * @param file
+	 *            the file to add
+	 * @param writer
+	 *            the writer of the zip archive
+	 * @param buffer
+	 *            the direct buffer for computing the checksum
+	 * @param cancelled
+	 *            the flag if the zipping is cancelled
+	 * @throws IOException
+	 *             if an I/O error occurs during zipping
+	 */
+	private void storeFile(final File file, final ZipChannelWriter writer,
+		final ByteBuffer buffer, final BooleanSupplier cancelled) throws IOException
+	{
+		ZipExtensions.checkCancelled(cancelled);
+		final EntryCompressedEvent event = new EntryCompressedEvent();
+		event.begin();
+		final String name = this.newZipEntryName(file);
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+		{
+			final long readStart = System.nanoTime();
+			final long size = channel.size();
+			final CRC32 crc = new CRC32();
+			for (long position = 0; position < size;)
+			{
+				buffer.clear();
+				final int count = channel.read(buffer, position);
+				if (count < 0)
+				{
+					break;
+				}
+				buffer.flip();
+				crc.update(buffer);
+				position += count;
+				ZipExtensions.checkCancelled(cancelled);
+			}
+			final long writeStart = System.nanoTime();
+			writer.putEntry(name, ZipEntry.STORED, file.lastModified(), size);
+			long transferred = 0;
+			while (transferred < size)
+			{
+				final long count = writer.transferFrom(channel, transferred,
+					Math.min(TRANSFER_SIZE, size - transferred));
+				if (count <= 0)
+				{
+					throw new ZipException("The file " + file + " was truncated while zipping");
+				}
+				transferred += count;
+				ZipExtensions.checkCancelled(cancelled);
+			}
+			writer.closeEntry(crc.getValue(), size);
+			this.entryZipped(name, size, size, writeStart - readStart, 0,
+				System.nanoTime() - writeStart);
+			event.entryCompressed(this.zipFile.getAbsolutePath(), name, ZipEntry.STORED, 0, size,
+				size);
+		}
+	}
+
+	/**
+	 * Adds the metrics of a zipped entry to the running totals and notifies the listener
+	 *
+	 * @param name
+	 *            the name of the entry
+	 * @param bytesIn
+	 *            the number of bytes of the entry
+	 * @param bytesOut
+	 *            the number of compressed bytes of the entry
+	 * @param readNanos
+	 *            the nanoseconds spent for reading the entry
+	 * @param deflateNanos
+	 *            the nanoseconds spent for deflating the entry
+	 * @param writeNanos
+	 *            the nanoseconds spent for writing the entry
+	 */
+	private void entryZipped(final String name, final long bytesIn, final long bytesOut,
+		final long readNanos, final long deflateNanos, final long writeNanos)
+	{
+		this.metrics.entry(name, bytesIn, bytesOut, readNanos, deflateNanos, writeNanos);
+		if (this.listener != null)
+		{
+			this.listener.entryZipped(this.metrics);
+		}
+	}
+
+	/**
+	 * Stops the measurement of the metrics and notifies the listener
+	 */
+	private void zipFinished()
+	{
+		this.metrics.finish();
+		if (this.listener != null)
+		{
+			this.listener.zipFinished(this.metrics);
+		}
+	}
+
+	/**
+	 * Gets the compression method that is used for zipping, only {@link ZipEntry#STORED} and
+	 * {@link ZipEntry#DEFLATED} are supported.
+	 *
+	 * @return the compression method that is used for zipping
+	 */
+	private int getEffectiveCompressionMethod()
+	{
+		return this.compressionMethod == ZipEntry.STORED ? ZipEntry.STORED : ZipEntry.DEFLATED;
+	}
+
+	/**
+	 * Gets the compression level that is used for zipping, if no level is set the best
+	 * compression is used.
+	 *
+	 * @return the compression level that is used for zipping
+	 */
+	private int getEffectiveZipLevel()
+	{
+		return this.zipLevel > 0 ? this.zipLevel : 9;
+	}
+
+	/**
+	 * Gets the compression level of the given file. Files of the stored file types are stored,
+	 * for all other files the compression policy decides, if no policy is set the zip level is
+	 * used
+	 *
+	 * @param file
+	 *            the file to zip
+	 * @param sample
+	 *            the array for the sample of the file
+	 * @return the compression level or {@link CompressionPolicy#STORED_LEVEL} for no compression
+	 * @throws IOException
+	 *             if an I/O error occurs during reading the sample
+	 */
+	private int getEntryLevel(final File file, final byte[] sample) throws IOException
+	{
+		if (this.storedFileTypes != null && this.storedFileTypes.isStored(file.getName()))
+		{
+			return CompressionPolicy.STORED_LEVEL;
+		}
+		if (sample == null)
+		{
+			return this.getEffectiveZipLevel();
+		}
+		final int length;
+		try (InputStream inputStream = new FileInputStream(file))
+		{
+			length = inputStream.readNBytes(sample, 0, sample.length);
+		}
+		return this.getSampleLevel(file, sample, length);
+	}
+
+	/**
+	 * Gets the compression level of the given file from the given sample. Files with the magic
+	 * bytes of the stored file types are stored, for all other files the compression policy
+	 * decides, if no policy is set the zip level is used
+	 *
+	 * @param file
+	 *            the file to zip
+	 * @param sample
+	 *            the array with the first bytes of the file
+	 * @param length
+	 *            the number of bytes in the sample
+	 * @return the compression level or {@link CompressionPolicy#STORED_LEVEL} for no compression
+	 * @throws ZipException
+	 *             if the compression policy returns a level out of the range of the deflater
+	 */
+	private int getSampleLevel(final File file, final byte[] sample, final int length)
+		throws ZipException
+	{
+		if (this.storedFileTypes != null && this.storedFileTypes.isStored(sample, length))
+		{
+			return CompressionPolicy.STORED_LEVEL;
+		}
+		if (this.compressionPolicy == null)
+		{
+			return this.getEffectiveZipLevel();
+		}
+		final int level = this.compressionPolicy.getLevel(file, sample, length);
+		if (level < Deflater.DEFAULT_COMPRESSION || Deflater.BEST_COMPRESSION < level)
+		{
+			throw new ZipException("The compression policy returned the invalid level " + level
+				+ " for the file " + file.getAbsolutePath());
+		}
+		return level;
+	}
+
+	/**
+	 * Gets the number of bytes of the samples for the compression policy and the magic bytes of
+	 * the stored file types
+	 *
+	 * @return the size of the samples or zero if no sample is needed
+	 */
+	private int getSampleSize()
+	{
+		if (this.compressionPolicy != null)
+		{
+			return CompressionPolicy.SAMPLE_SIZE;
+		}
+		if (this.storedFileTypes != null)
+		{
+			return this.storedFileTypes.getHeaderLength();
+		}
+		return 0;
+	}
+
+	/**
+	 * Creates the array that is reused for the samples of the compression policy and the magic
+	 * bytes of the stored file types
+	 *
+	 * @return the new array or null if no sample is needed
+	 */
+	private byte[] newSample()
+	{
+		final int sampleSize = this.getSampleSize();
+		return 0 < sampleSize ? new byte[sampleSize] : null;
+	}
+
+	/**
+	 * Creates a new direct buffer with the buffer size for reading files through a channel
+	 *
+	 * @return the new direct buffer
+	 */
+	private ByteBuffer newDirectBuffer()
+	{
+		return ByteBuffer.allocateDirect(
+			0 < this.bufferSize ? this.bufferSize : ZipExtensions.DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * Creates the buffer that is reused for copy the content of all files into the zip archive
+	 *
+	 * @return the new buffer
+	 */
+	private byte[] newBuffer()
+	{
+		return new byte[0 < this.bufferSize ? this.bufferSize : ZipExtensions.DEFAULT_BUFFER_SIZE];
+	}
+
+	/**
+	 * Creates the name of the zip entry for the given file
+	 *
+	 * @param file
+	 *            the file
+	 * @return the name of the zip entry
+	 */
+	private String newZipEntryName(final File file)
+	{
+		final String absolutePath = file.getAbsolutePath();
+		if (this.dirToStart == null)
+		{
+			this.dirToStart = this.directoryToZip.getName();
+		}
+		final int index = absolutePath.indexOf(this.dirToStart);
+		return absolutePath.substring(index);
+	}
+
+	/**
+	 * Recursively visits all files of the given file or directory that are accepted from the
+	 * file filter and counts them. The files are discovered on {@link #getDiscoveryParallelism()}
+	 * background threads while the visitor processes the files that are already found.
+	 *
+	 * @param file
+	 *            the current file or directory to visit
+	 * @param visitor
+	 *            the visitor of the files
+	 * @throws IOException
+	 *             if an I/O error occurs during zipping
+	 */
+	private void visitFiles(final File file, final FileVisitor visitor) throws IOException
+	{
+		try (FileWalker walker = new FileWalker(file, this.fileFilter,
+			this.discoveryParallelism, FileWalker.DEFAULT_QUEUE_CAPACITY))
+		{
+			for (FileWalker.FoundFile foundFile; (foundFile = walker.next()) != null;)
+			{
+				this.fileLength += foundFile.size;
+				this.fileCounter++;
+				visitor.visit(foundFile.file);
+			}
+		}
+	}
+
+	/**
+	 * Adds the given file to the ZIP output stream.
+	 *
+	 * @param file
+	 *            the file to add
+	 * @param zos
+	 *            the ZIP output stream
+	 * @param tos
+	 *            the output stream under the ZIP output stream that measures the write time
+	 * @param buffer
+	 *            the buffer for copy the content of the file
+	 * @param sample
+	 *            the array for the sample of the compression policy
+	 * @param cancelled
+	 *            the flag if the zipping is cancelled
+	 * @throws IOException
+	 *             if an I/O error occurs during zipping
+	 */
+	private void zipFile(final File file, final ZipOutputStream zos, final TimedOutputStream tos,
+		final byte[] buffer, final byte[] sample, final BooleanSupplier cancelled)
+		throws IOException
+	{
+		ZipExtensions.checkCancelled(cancelled);
+		final EntryCompressedEvent event = new EntryCompressedEvent();
+		event.begin();
+		final String name = this.newZipEntryName(file);
+		final ZipEntry zipEntry = new ZipEntry(name);
+		zipEntry.setTime(file.lastModified());
+		final long sampleStart = System.nanoTime();
+		final int level = this.getEntryLevel(file, sample);
+		if (level == CompressionPolicy.STORED_LEVEL)
+		{
+			// the zip output stream needs the size and the checksum before a stored entry
+			final long size = file.length();
+			zipEntry.setMethod(ZipEntry.STORED);
+			zipEntry.setSize(size);
+			zipEntry.setCompressedSize(size);
+			zipEntry.setCrc(ZipExtensions.getChecksum(file, buffer));
+		}
+		else
+		{
+			zipEntry.setMethod(ZipEntry.DEFLATED);
+			zos.setLevel(level);
+		}
+		final long writeStart = tos.getNanos();
+		zos.putNextEntry(zipEntry);
+		final long deflateWriteStart = tos.getNanos();
+		long bytesIn = 0;
+		long readNanos = System.nanoTime() - sampleStart;
+		long deflateNanos = 0;
+		try (InputStream inputStream = new FileInputStream(file))
+		{
+			long start = System.nanoTime();
+			int count;
+			while ((count = inputStream.read(buffer)) != -1)
+			{
+				final long read = System.nanoTime();
+				readNanos += read - start;
+				zos.write(buffer, 0, count);
+				bytesIn += count;
+				ZipExtensions.checkCancelled(cancelled);
+				start = System.nanoTime();
+				deflateNanos += start - read;
+			}
+			readNanos += System.nanoTime() - start;
+		}
+		final long start = System.nanoTime();
+		zos.closeEntry();
+		deflateNanos += System.nanoTime() - start;
+		final long writeEnd = tos.getNanos();
+		// the deflate time includes the writes of the deflated data
+		this.entryZipped(name, bytesIn, zipEntry.getCompressedSize(), readNanos,
+			deflateNanos - (writeEnd - deflateWriteStart), writeEnd - writeStart);
+		event.entryCompressed(this.zipFile.getAbsolutePath(), name, zipEntry.getMethod(), level,
+			bytesIn, zipEntry.getCompressedSize());
+	}
+
+	/**
+	 * Visitor for the files to zip
+	 */
+	private interface FileVisitor
+	{
+
+		/**
+		 * Visits the given file
+		 *
+		 * @param file
+		 *            the file to visit
+		 * @throws IOException
+		 *             if an I/O error occurs during zipping
+		 */
+		void visit(File file) throws IOException;
+	}
+
+	/**
+	 * Builder class for constructing {@code Zipper} objects with desired parameters.
+	 */
+	public static class ZipperBuilder
+	{
+		private int blockSize = ParallelZipper.DEFAULT_BLOCK_SIZE;
+		private int bufferSize = ZipExtensions.DEFAULT_BUFFER_SIZE;
+		private int compressionMethod = -1;
+		private CompressionPolicy compressionPolicy;
+		private StoredFileTypes storedFileTypes;
+		private File directoryToZip;
+		private String dirToStart;
+		private int discoveryParallelism = FileWalker.DEFAULT_PARALLELISM;
+		private int fileCounter;
+		private FilenameFilter fileFilter;
+		private long fileLength;
+		private ZipListener listener;
+		private long memoryBudget;
+		private int parallelism = 1;
+		private boolean pipelined;
+		private int queueDepth;
+		private int readerParallelism = 1;
+		private boolean update;
+		private File zipFile;
+		private String zipFileComment;
+		private String zipFileName;
+		private ZipFile zipFileObj;
+		private int zipLevel = -1;
+
+		/**
+		 * Constructs a new {@code ZipperBuilder}.
+		 */
+		ZipperBuilder()
+		{
+		}
+
+		/**
+		 * Builds a new {@code Zipper} object with the configured parameters.
+		 *
+		 * @return a new {@code Zipper} instance
+		 */
+		public Zipper build()
+		{
+			final Zipper zipper = new Zipper(compressionMethod, directoryToZip, dirToStart,
+				fileCounter, fileFilter, fileLength, zipFile, zipFileComment, zipFileName,
+				zipFileObj, zipLevel);
+			zipper.setBufferSize(bufferSize);
+			zipper.setParallelism(parallelism);
+			zipper.setBlockSize(blockSize);
+			zipper.setListener(listener);
+			zipper.setDiscoveryParallelism(discoveryParallelism);
+			zipper.setPipelined(pipelined);
+			zipper.setReaderParallelism(readerParallelism);
+			zipper.setQueueDepth(queueDepth);
+			zipper.setMemoryBudget(memoryBudget);
+			zipper.setCompressionPolicy(compressionPolicy);
+			zipper.setStoredFileTypes(storedFileTypes);
+			zipper.setUpdate(update);
+			return zipper;
+		}
+
+		/**
+		 * Sets the size of the blocks the files are split into for parallel compression.
+		 *
+		 * @param blockSize
+		 *            the block size
+		 * @return this builder instance for method chaining
+		 */
+		public ZipperBuilder blockSize(int blockSize)
+		{
+			this.blockSize = blockSize;
+			return this;
+		}
+
+		/**
+		 * Sets the size of the buffer that is reused for copy the file content into the zip
+		 * archive.
+		 *
+		 * @param bufferSize
+		 *            the buffer size
+		 * @return this builder instance for method chaining
+		 */
+		public ZipperBuilder bufferSize(int bufferSize)
+		{
+			this.bufferSize = bufferSize;
+			return this;
+		}
+
+		/**
+		 * Sets the compression method for the ZIP archive being created. The value
+		 * {@link ZipEntry#STORED}, which is 0, stores the entries without compression, any other
+		 * value like the default -1 or {@link ZipEntry#DEFLATED} deflates them. Note that 0 is
+		 * not treated as unset.
+		 *
+		 * @param compressionMethod
+		 *            the compression method
+		 * @return this builder instance for method chaining
+		 */
+		public ZipperBuilder compressionMethod(int compressionMethod)
+		{
+			this.compressionMethod = compressionMethod;
+			return this;
+		}
+
+		/**
+		 * Sets the policy that decides the compression level of every entry.
+		 *
+		 * @param compressionPolicy
+		 *            the compression policy or null for the zip level
+		 * @return this builder instance for method chaining
+		 */
+		public ZipperBuilder compressionPolicy(CompressionPolicy compressionPolicy)
+		{
+			this.compressionPolicy = compressionPolicy;
+			return this;
+		}
+
+		/**
+		 * Sets the directory to be zipped.
 		 *
 		 * @param directoryToZip
 		 *            the directory to zip
@@ -603,6 +1749,19 @@ public class Zipper implements ZipModel
 			return this;
 		}
 
+		/**
+		 * Sets the number of threads that list the directories while the files are zipped.
+		 *
+		 * @param discoveryParallelism
+		 *            the number of threads that discover the files to zip
+		 * @return this builder instance for method chaining
+		 */
+		public ZipperBuilder discoveryParallelism(int discoveryParallelism)
+		{
+			this.discoveryParallelism = discoveryParallelism;
+			return this;
+		}
+
 		/**
 		 * Sets the file counter for tracking the number of files zipped.
 		 *
@@ -642,6 +1801,115 @@ public class Zipper implements ZipModel
 			return this;
 		}
 
+		/**
+		 * Sets the listener that is notified after every zipped entry.
+		 *
+		 * @param listener
+		 *            the listener
+		 * @return this builder instance for method chaining
+		 */
+		public ZipperBuilder listener(ZipListener listener)
+		{
+			this.listener = listener;
+			return this;
+		}
+
+		/**
+		 * Sets the number of threads that compress the files. A value greater than one
+		 * compresses the files in parallel.
+		 *
+		 * @param parallelism
+		 *            the number of threads that compress the files
+		 * @return this builder instance for method chaining
+		 */
+		public ZipperBuilder parallelism(int parallelism)
+		{
+			this.parallelism = parallelism;
+			return this;
+		}
+
+		/**
+		 * Sets the maximum number of bytes the blocks in the pipeline can reserve. A value less
+		 * than one means no limit.
+		 *
+		 * @param memoryBudget
+		 *            the memory budget in bytes
+		 * @return this builder instance for method chaining
+		 */
+		public ZipperBuilder memoryBudget(long memoryBudget)
+		{
+			this.memoryBudget = memoryBudget;
+			return this;
+		}
+
+		/**
+		 * Sets the flag if the files are zipped with the read, compress and write pipeline even
+		 * if the parallelism is one. The entries equal a serial zip file but the compressed
+		 * bytes differ.
+		 *
+		 * @param pipelined
+		 *            the flag if the files are zipped with the pipeline
+		 * @return this builder instance for method chaining
+		 */
+		public ZipperBuilder pipelined(boolean pipelined)
+		{
+			this.pipelined = pipelined;
+			return this;
+		}
+
+		/**
+		 * Sets the maximum number of blocks that are read, compressed or wait for writing in the
+		 * pipeline. A value less than one means twice the number of threads.
+		 *
+		 * @param queueDepth
+		 *            the queue depth
+		 * @return this builder instance for method chaining
+		 */
+		public ZipperBuilder queueDepth(int queueDepth)
+		{
+			this.queueDepth = queueDepth;
+			return this;
+		}
+
+		/**
+		 * Sets the number of threads that read the files in the pipeline.
+		 *
+		 * @param readerParallelism
+		 *            the number of threads that read the files
+		 * @return this builder instance for method chaining
+		 */
+		public ZipperBuilder readerParallelism(int readerParallelism)
+		{
+			this.readerParallelism = readerParallelism;
+			return this;
+		}
+
+		/**
+		 * Sets the registry of file types that are always stored without compression.
+		 *
+		 * @param storedFileTypes
+		 *            the registry of stored file types or null
+		 * @return this builder instance for method chaining
+		 */
+		public ZipperBuilder storedFileTypes(StoredFileTypes storedFileTypes)
+		{
+			this.storedFileTypes = storedFileTypes;
+			return this;
+		}
+
+		/**
+		 * Sets the flag if an existing zip file is updated instead of rewritten.
+		 *
+		 * @param update
+		 *            the flag if an existing zip file is updated
+		 * @return this builder instance for method chaining
+		 */
+		public ZipperBuilder update(boolean update)
+		{
+			this.update = update;
+			return this;
+		}
+
 		/**
 		 * Sets the target ZIP file object.
 		 *
@@ -0,0 +1,154 @@
+/**
+ * The MIT License
+ *
+ * Copyright (C) 2015 Asterios Raptis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.astrapi69.zip.jfr;
+
+import java.io.File;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * The {@code ArchiveFinishedEvent} is emitted when an archive or extract operation finished, the
+ * duration of the event is the duration of the operation.
+ *
+ * @version 1.0
+ * @author Asterios Raptis
+ */
+@Name(ArchiveFinishedEvent.NAME)
+@Label("Archive Finished")
+@Description("An archive or extract operation finished")
+@Category({ "Zip Worker" })
+@Enabled(false)
+@StackTrace(false)
+@Threshold("0 ms")
+public final class ArchiveFinishedEvent extends Event
+{
+
+	/** The name of this event */
+	public static final String NAME = "io.github.astrapi69.zip.ArchiveFinished";
+
+	/** The operation that creates a 7z archive */
+	public static final String SEVEN_Z_COMPRESS = "7z compress";
+
+	/** The operation that extracts a 7z archive */
+	public static final String SEVEN_Z_EXTRACT = "7z extract";
+
+	/** The operation that extracts a zip archive */
+	public static final String UNZIP = "unzip";
+
+	/** The operation that creates a zip archive */
+	public static final String ZIP = "zip";
+
+	/** The path of the archive */
+	@Label("Archive")
+	public String archive;
+
+	/** The length of the archive file */
+	@Label("Archive Size")
+	@DataAmount
+	public long archiveSize;
+
+	/** The number of entries or -1 if it is not known */
+	@Label("Entry Count")
+	public int entryCount;
+
+	/** The compression level or -1 if it is not known */
+	@Label("Level")
+	public int level;
+
+	/** The compression method or -1 if it is not known */
+	@Label("Method")
+	public int method;
+
+	/** The operation */
+	@Label("Operation")
+	public String operation;
+
+	/** The number of uncompressed bytes of all entries or -1 if it is not known */
+	@Label("Size")
+	@DataAmount
+	public long size;
+
+	/**
+	 * Commits an {@link ArchiveStartedEvent} if it is enabled and begins the measurement of the
+	 * duration of the operation
+	 *
+	 * @param operation
+	 *            the operation
+	 * @param archive
+	 *            the path of the archive
+	 * @param method
+	 *            the compression method or -1 if it is not known
+	 * @param level
+	 *            the compression level or -1 if it is not known
+	 * @return the event that has to be finished with {@link #archiveFinished(int, long)}
+	 */
+	public static ArchiveFinishedEvent archiveStarted(final String operation,
+		final String archive, final int method, final int level)
+	{
+		final ArchiveStartedEvent started = new ArchiveStartedEvent();
+		if (started.isEnabled())
+		{
+			started.operation = operation;
+			started.archive = archive;
+			started.method = method;
+			started.level = level;
+			started.commit();
+		}
+		final ArchiveFinishedEvent event = new ArchiveFinishedEvent();
+		event.operation = operation;
+		event.archive = archive;
+		event.method = method;
+		event.level = level;
+		event.begin();
+		return event;
+	}
+
+	/**
+	 * Commits this event if it is enabled and its duration exceeds the threshold
+	 *
+	 * @param entryCount
+	 *            the number of entries or -1 if it is not known
+	 * @param size
+	 *            the number of uncompressed bytes of all entries or -1 if it is not known
+	 */
+	public void archiveFinished(final int entryCount, final long size)
+	{
+		if (shouldCommit())
+		{
+			this.entryCount = entryCount;
+			this.size = size;
+			this.archiveSize = this.archive == null ? -1 : new File(this.archive).length();
+			commit();
+		}
+	}
+}
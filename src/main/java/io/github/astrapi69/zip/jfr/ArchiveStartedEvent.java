@@ -0,0 +1,69 @@
+/**
+ * The MIT License
+ *
+ * Copyright (C) 2015 Asterios Raptis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.astrapi69.zip.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The {@code ArchiveStartedEvent} is emitted when an archive or extract operation starts. The
+ * event is committed from {@link ArchiveFinishedEvent#archiveStarted(String, String, int, int)}.
+ *
+ * @version 1.0
+ * @author Asterios Raptis
+ */
+@Name(ArchiveStartedEvent.NAME)
+@Label("Archive Started")
+@Description("An archive or extract operation started")
+@Category({ "Zip Worker" })
+@Enabled(false)
+@StackTrace(false)
+public final class ArchiveStartedEvent extends Event
+{
+
+	/** The name of this event */
+	public static final String NAME = "io.github.astrapi69.zip.ArchiveStarted";
+
+	/** The path of the archive */
+	@Label("Archive")
+	public String archive;
+
+	/** The compression level or -1 if it is not known */
+	@Label("Level")
+	public int level;
+
+	/** The compression method or -1 if it is not known */
+	@Label("Method")
+	public int method;
+
+	/** The operation */
+	@Label("Operation")
+	public String operation;
+}
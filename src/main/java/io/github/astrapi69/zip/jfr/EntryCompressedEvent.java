@@ -0,0 +1,113 @@
+/**
+ * The MIT License
+ *
+ * Copyright (C) 2015 Asterios Raptis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.astrapi69.zip.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * The {@code EntryCompressedEvent} is emitted when an entry is written to an archive, the
+ * duration of the event is the time from reading the file to writing the compressed entry.
+ *
+ * @version 1.0
+ * @author Asterios Raptis
+ */
+@Name(EntryCompressedEvent.NAME)
+@Label("Entry Compressed")
+@Description("An entry was compressed and written to an archive")
+@Category({ "Zip Worker" })
+@Enabled(false)
+@StackTrace(false)
+@Threshold("20 ms")
+public final class EntryCompressedEvent extends Event
+{
+
+	/** The name of this event */
+	public static final String NAME = "io.github.astrapi69.zip.EntryCompressed";
+
+	/** The path of the archive or null if it is not known */
+	@Label("Archive")
+	public String archive;
+
+	/** The number of compressed bytes of the entry or -1 if it is not known */
+	@Label("Compressed Size")
+	@DataAmount
+	public long compressedSize;
+
+	/** The name of the entry */
+	@Label("Entry")
+	public String entry;
+
+	/** The compression level or -1 if it is not known */
+	@Label("Level")
+	public int level;
+
+	/** The compression method or -1 if it is not known */
+	@Label("Method")
+	public int method;
+
+	/** The number of uncompressed bytes of the entry */
+	@Label("Size")
+	@DataAmount
+	public long size;
+
+	/**
+	 * Commits this event if it is enabled and its duration exceeds the threshold
+	 *
+	 * @param archive
+	 *            the path of the archive or null if it is not known
+	 * @param entry
+	 *            the name of the entry
+	 * @param method
+	 *            the compression method or -1 if it is not known
+	 * @param level
+	 *            the compression level or -1 if it is not known
+	 * @param size
+	 *            the number of uncompressed bytes of the entry
+	 * @param compressedSize
+	 *            the number of compressed bytes of the entry or -1 if it is not known
+	 */
+	public void entryCompressed(final String archive, final String entry, final int method,
+		final int level, final long size, final long compressedSize)
+	{
+		if (shouldCommit())
+		{
+			this.archive = archive;
+			this.entry = entry;
+			this.method = method;
+			this.level = level;
+			this.size = size;
+			this.compressedSize = compressedSize;
+			commit();
+		}
+	}
+}
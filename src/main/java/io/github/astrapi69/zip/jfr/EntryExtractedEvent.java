@@ -0,0 +1,106 @@
+/**
+ * The MIT License
+ *
+ * Copyright (C) 2015 Asterios Raptis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.astrapi69.zip.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * The {@code EntryExtractedEvent} is emitted when an entry of an archive is extracted to a file,
+ * the duration of the event is the time for reading, decompressing and writing the entry.
+ *
+ * @version 1.0
+ * @author Asterios Raptis
+ */
+@Name(EntryExtractedEvent.NAME)
+@Label("Entry Extracted")
+@Description("An entry of an archive was extracted to a file")
+@Category({ "Zip Worker" })
+@Enabled(false)
+@StackTrace(false)
+@Threshold("20 ms")
+public final class EntryExtractedEvent extends Event
+{
+
+	/** The name of this event */
+	public static final String NAME = "io.github.astrapi69.zip.EntryExtracted";
+
+	/** The path of the archive */
+	@Label("Archive")
+	public String archive;
+
+	/** The number of compressed bytes of the entry or -1 if it is not known */
+	@Label("Compressed Size")
+	@DataAmount
+	public long compressedSize;
+
+	/** The name of the entry */
+	@Label("Entry")
+	public String entry;
+
+	/** The compression method or -1 if it is not known */
+	@Label("Method")
+	public int method;
+
+	/** The number of extracted bytes */
+	@Label("Size")
+	@DataAmount
+	public long size;
+
+	/**
+	 * Commits this event if it is enabled and its duration exceeds the threshold
+	 *
+	 * @param archive
+	 *            the path of the archive
+	 * @param entry
+	 *            the name of the entry
+	 * @param method
+	 *            the compression method or -1 if it is not known
+	 * @param size
+	 *            the number of extracted bytes
+	 * @param compressedSize
+	 *            the number of compressed bytes of the entry or -1 if it is not known
+	 */
+	public void entryExtracted(final String archive, final String entry, final int method,
+		final long size, final long compressedSize)
+	{
+		if (shouldCommit())
+		{
+			this.archive = archive;
+			this.entry = entry;
+			this.method = method;
+			this.size = size;
+			this.compressedSize = compressedSize;
+			commit();
+		}
+	}
+}
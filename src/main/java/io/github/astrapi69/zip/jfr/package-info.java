@@ -0,0 +1,5 @@
+/**
+ * Provides the Java Flight Recorder events of archive and extract operations, all events are
+ * disabled by default and have to be enabled in the recording settings
+ */
+package io.github.astrapi69.zip.jfr;
@@ -0,0 +1,316 @@
+/**
+ * The MIT License
+ *
+ * Copyright (C) 2015 Asterios Raptis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.astrapi69.zip.sevenz;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.compress.archivers.sevenz.SevenZArchiveEntry;
+import org.apache.commons.compress.archivers.sevenz.SevenZFile;
+
+import io.github.astrapi69.zip.ZipExtensions;
+import io.github.astrapi69.zip.jfr.ArchiveFinishedEvent;
+import io.github.astrapi69.zip.jfr.EntryExtractedEvent;
+
+/**
+ * The class {@link ParallelSevenZExtractor} extracts the entries of a 7z archive on several
+ * threads. Every thread opens its own {@link SevenZFile} and extracts a contiguous range of
+ * entries in archive order, so that the entries of a folder are decoded in one pass and the
+ * folders of the other ranges are never opened. The ranges are cut by the size of the entries,
+ * so every thread gets about the same amount of work, and all directories are created once
+ * before the extraction starts.
+ */
+final class ParallelSevenZExtractor
+{
+
+	private ParallelSevenZExtractor()
+	{
+	}
+
+	/**
+	 * Partitions the given entries in at most the given number of contiguous ranges with about
+	 * the same size
+	 *
+	 * @param entries
+	 *            the entries to partition
+	 * @param parallelism
+	 *            the maximum number of ranges
+	 * @return the start indexes of the ranges followed by the number of entries
+	 */
+	static int[] partition(final List<SevenZArchiveEntry> entries, final int parallelism)
+	{
+		long total = 0;
+		for (final SevenZArchiveEntry entry : entries)
+		{
+			total += getWeight(entry);
+		}
+		final List<Integer> bounds = new ArrayList<>(parallelism + 1);
+		bounds.add(0);
+		long weight = 0;
+		for (int i = 0; i < entries.size() && bounds.size() < parallelism; i++)
+		{
+			weight += getWeight(entries.get(i));
+			if (total * bounds.size() <= weight * parallelism && i + 1 < entries.size())
+			{
+				bounds.add(i + 1);
+			}
+		}
+		bounds.add(entries.size());
+		return bounds.stream().mapToInt(Integer::intValue).toArray();
+	}
+
+	/**
+	 * Gets the weight of the given entry for the partitioning
+	 *
+	 * @param entry
+	 *            the entry
+	 * @return the weight of the entry
+	 */
+	private static long getWeight(final SevenZArchiveEntry entry)
+	{
+		return (entry.hasStream() ? Math.max(entry.getSize(), 0) : 0) + 1;
+	}
+
+	/**
+	 * Extracts all entries of the given 7z archive to the given directory
+	 *
+	 * @param sevenZipFile
+	 *            the 7z archive to extract
+	 * @param destination
+	 *            the directory to extract entries to
+	 * @param password
+	 *            the password for encrypted 7z files or null
+	 * @param parallelism
+	 *            the number of threads that extract the entries
+	 * @return the number of extracted bytes
+	 * @throws IOException
+	 *             if an I/O error occurs during extraction
+	 */
+	static long extract(final File sevenZipFile, final File destination, final char[] password,
+		final int parallelism) throws IOException
+	{
+		final String archive = sevenZipFile.getAbsolutePath();
+		final ArchiveFinishedEvent event = ArchiveFinishedEvent
+			.archiveStarted(ArchiveFinishedEvent.SEVEN_Z_EXTRACT, archive, -1, -1);
+		final List<SevenZArchiveEntry> entries;
+		try (SevenZFile sevenZFile = open(sevenZipFile, password))
+		{
+			entries = getEntries(sevenZFile);
+		}
+		mkdirs(entries, destination);
+		final int[] bounds = partition(entries, Math.max(1, parallelism));
+		final int ranges = bounds.length - 1;
+		final ExecutorService workers = Executors.newFixedThreadPool(ranges);
+		final List<Future<Long>> futures = new ArrayList<>(ranges);
+		try
+		{
+			for (int i = 0; i < ranges; i++)
+			{
+				final int start = bounds[i];
+				final int end = bounds[i + 1];
+				futures.add(workers.submit(
+					() -> extract(sevenZipFile, password, start, end, destination)));
+			}
+			long extractedLength = 0;
+			for (final Future<Long> future : futures)
+			{
+				extractedLength += await(future);
+			}
+			event.archiveFinished(entries.size(), extractedLength);
+			return extractedLength;
+		}
+		finally
+		{
+			for (final Future<Long> future : futures)
+			{
+				future.cancel(true);
+			}
+			workers.shutdownNow();
+		}
+	}
+
+	/**
+	 * Opens the given 7z archive
+	 *
+	 * @param sevenZipFile
+	 *            the 7z archive
+	 * @param password
+	 *            the password for encrypted 7z files or null
+	 * @return the opened 7z archive
+	 * @throws IOException
+	 *             if the archive can not be opened
+	 */
+	private static SevenZFile open(final File sevenZipFile, final char[] password)
+		throws IOException
+	{
+		return SevenZFile.builder().setFile(sevenZipFile).setPassword(password).get();
+	}
+
+	/**
+	 * Gets the entries of the given 7z archive in archive order
+	 *
+	 * @param sevenZFile
+	 *            the 7z archive
+	 * @return the entries
+	 */
+	private static List<SevenZArchiveEntry> getEntries(final SevenZFile sevenZFile)
+	{
+		final List<SevenZArchiveEntry> entries = new ArrayList<>();
+		for (final SevenZArchiveEntry entry : sevenZFile.getEntries())
+		{
+			entries.add(entry);
+		}
+		return entries;
+	}
+
+	/**
+	 * Creates all directories that are needed for the extraction of the given entries
+	 *
+	 * @param entries
+	 *            the entries to extract
+	 * @param destination
+	 *            the directory to extract entries to
+	 */
+	private static void mkdirs(final List<SevenZArchiveEntry> entries, final File destination)
+	{
+		final Set<File> directories = new LinkedHashSet<>();
+		for (final SevenZArchiveEntry entry : entries)
+		{
+			final File file = new File(destination, entry.getName());
+			directories.add(entry.isDirectory() ? file : file.getParentFile());
+		}
+		for (final File directory : directories)
+		{
+			directory.mkdirs();
+		}
+	}
+
+	/**
+	 * Extracts the given range of entries with an own {@link SevenZFile}, the directories of the
+	 * entries have to exist
+	 *
+	 * @param sevenZipFile
+	 *            the 7z archive to extract entries from
+	 * @param password
+	 *            the password for encrypted 7z files or null
+	 * @param start
+	 *            the index of the first entry to extract
+	 * @param end
+	 *            the index after the last entry to extract
+	 * @param destination
+	 *            the directory to extract entries to
+	 * @return the number of extracted bytes
+	 * @throws IOException
+	 *             if an I/O error occurs during extraction
+	 */
+	private static long extract(final File sevenZipFile, final char[] password, final int start,
+		final int end, final File destination) throws IOException
+	{
+		final String archive = sevenZipFile.getAbsolutePath();
+		final byte[] buffer = new byte[ZipExtensions.DEFAULT_BUFFER_SIZE];
+		long extractedLength = 0;
+		try (SevenZFile sevenZFile = open(sevenZipFile, password))
+		{
+			for (final SevenZArchiveEntry entry : getEntries(sevenZFile).subList(start, end))
+			{
+				if (Thread.currentThread().isInterrupted())
+				{
+					throw new InterruptedIOException("Extraction of " + archive + " interrupted");
+				}
+				if (entry.isDirectory())
+				{
+					continue;
+				}
+				final EntryExtractedEvent event = new EntryExtractedEvent();
+				event.begin();
+				final File file = new File(destination, entry.getName());
+				try (InputStream in = sevenZFile.getInputStream(entry);
+					FileOutputStream out = new FileOutputStream(file))
+				{
+					SevenZFileExtensions.transfer(in, out, entry, buffer);
+				}
+				extractedLength += entry.getSize();
+				event.entryExtracted(archive, entry.getName(), -1, entry.getSize(), -1);
+			}
+		}
+		return extractedLength;
+	}
+
+	/**
+	 * Waits for the result of the given future and unwraps the cause of a failure
+	 *
+	 * @param <T>
+	 *            the type of the result
+	 * @param future
+	 *            the future to wait for
+	 * @return the result
+	 * @throws IOException
+	 *             if the task failed with an I/O error or the waiting was interrupted
+	 */
+	static <T> T await(final Future<T> future) throws IOException
+	{
+		try
+		{
+			return future.get();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			final InterruptedIOException exception = new InterruptedIOException(
+				"Interrupted while waiting for a worker thread");
+			exception.initCause(e);
+			throw exception;
+		}
+		catch (ExecutionException e)
+		{
+			final Throwable cause = e.getCause();
+			if (cause instanceof UncheckedIOException)
+			{
+				throw ((UncheckedIOException)cause).getCause();
+			}
+			if (cause instanceof IOException)
+			{
+				throw (IOException)cause;
+			}
+			if (cause instanceof RuntimeException)
+			{
+				throw (RuntimeException)cause;
+			}
+			throw new IOException(cause);
+		}
+	}
+}
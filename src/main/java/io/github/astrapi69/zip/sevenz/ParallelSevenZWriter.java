@@ -0,0 +1,721 @@
+/**
+ * The MIT License
+ *
+ * Copyright (C) 2015 Asterios Raptis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.astrapi69.zip.sevenz;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+
+import org.tukaani.xz.FinishableOutputStream;
+import org.tukaani.xz.FinishableWrapperOutputStream;
+import org.tukaani.xz.LZMA2Options;
+
+import io.github.astrapi69.zip.jfr.EntryCompressedEvent;
+
+/**
+ * The class {@link ParallelSevenZWriter} writes a 7z archive with LZMA2 content that is encoded
+ * on several threads. The content of every folder is split in chunks that are encoded
+ * independently with the same LZMA2 settings and joined to one LZMA2 stream, every chunk starts
+ * with a reset of the dictionary like the chunks of the multi-threaded LZMA2 encoder of 7-Zip. The
+ * files are read in order on the calling thread and the encoded chunks are written in the same
+ * order, so the archive is the same for every number of threads. Every encoder thread holds one
+ * LZMA2 encoder that is bounded by the memory budget of the options and one chunk of three times
+ * the dictionary size, the number of chunks that are encoded or wait for writing is bounded by
+ * twice the number of threads. The files with content are grouped in folders up to the limits
+ * of the solid blocks, by default every file has its own folder. Empty files are stored without a
+ * folder.
+ */
+final class ParallelSevenZWriter implements Closeable
+{
+
+	/** The minimum size of the chunks the content of a folder is split into */
+	static final int MIN_CHUNK_SIZE = 1024 * 1024;
+
+	/** The difference between the epoch of the NTFS time stamps and the java epoch in millis */
+	private static final long NTFS_EPOCH_OFFSET = 11644473600000L;
+
+	/** The size of the signature header at the start of the archive */
+	private static final int SIGNATURE_HEADER_SIZE = 32;
+
+	/** The signature at the start of every 7z archive */
+	private static final byte[] SIGNATURE = { '7', 'z', (byte)0xBC, (byte)0xAF, 0x27, 0x1C };
+
+	/** The id of the LZMA2 coder */
+	private static final int LZMA2_ID = 0x21;
+
+	private static final int K_END = 0x00;
+	private static final int K_HEADER = 0x01;
+	private static final int K_MAIN_STREAMS_INFO = 0x04;
+	private static final int K_FILES_INFO = 0x05;
+	private static final int K_PACK_INFO = 0x06;
+	private static final int K_UNPACK_INFO = 0x07;
+	private static final int K_SUB_STREAMS_INFO = 0x08;
+	private static final int K_SIZE = 0x09;
+	private static final int K_CRC = 0x0A;
+	private static final int K_FOLDER = 0x0B;
+	private static final int K_CODERS_UNPACK_SIZE = 0x0C;
+	private static final int K_NUM_UNPACK_STREAM = 0x0D;
+	private static final int K_EMPTY_STREAM = 0x0E;
+	private static final int K_EMPTY_FILE = 0x0F;
+	private static final int K_NAME = 0x11;
+	private static final int K_M_TIME = 0x14;
+
+	/** The path of the 7z archive */
+	private final String archive;
+
+	/** The size of the buffer the content of the files is read with */
+	private final int bufferSize;
+
+	/** The channel of the 7z archive */
+	private final FileChannel channel;
+
+	/** The chunk that is filled with the content of the current folder */
+	private byte[] chunk;
+
+	/** The number of bytes in the current chunk */
+	private int chunkLength;
+
+	/** The size of the chunks the content of a folder is split into */
+	private final int chunkSize;
+
+	/** The encoder threads */
+	private final ExecutorService encoders;
+
+	/** The entries in archive order */
+	private final List<Entry> entries = new ArrayList<>();
+
+	/** The current folder or null if no folder is open */
+	private Folder folder;
+
+	/** The folders in archive order */
+	private final List<Folder> folders = new ArrayList<>();
+
+	/** The LZMA2 settings of all chunks */
+	private final LZMA2Options lzma2Options;
+
+	/** The maximum number of chunks that are encoded or wait for writing */
+	private final int maxPendingChunks;
+
+	/** The maximum number of files in one folder */
+	private final int maxFolderFiles;
+
+	/** The maximum number of content bytes in one folder */
+	private final long maxFolderSize;
+
+	/** The chunks in the order they have to be written */
+	private final Deque<Chunk> pendingChunks;
+
+	/**
+	 * Instantiates a new {@link ParallelSevenZWriter} that creates or overwrites the given 7z
+	 * archive
+	 *
+	 * @param sevenZipFile
+	 *            the 7z archive to write
+	 * @param options
+	 *            the options with the LZMA2 settings and the number of encoder threads
+	 * @throws IOException
+	 *             if the archive can not be opened or the LZMA2 settings are not supported
+	 */
+	ParallelSevenZWriter(final File sevenZipFile, final SevenZOutputOptions options)
+		throws IOException
+	{
+		this.archive = sevenZipFile.getAbsolutePath();
+		this.bufferSize = options.getBufferSize();
+		this.lzma2Options = options.newLzma2Options();
+		this.chunkSize = (int)Math.min(Integer.MAX_VALUE - 8,
+			Math.max(3L * this.lzma2Options.getDictSize(), MIN_CHUNK_SIZE));
+		final int threads = Math.max(options.getParallelism(), 1);
+		this.maxPendingChunks = 2 * threads;
+		this.pendingChunks = new ArrayDeque<>(this.maxPendingChunks);
+		this.maxFolderFiles = 0 < options.getSolidBlockFiles()
+			? options.getSolidBlockFiles()
+			: Integer.MAX_VALUE;
+		this.maxFolderSize = 0 < options.getSolidBlockSize()
+			? options.getSolidBlockSize()
+			: Long.MAX_VALUE;
+		this.channel = FileChannel.open(sevenZipFile.toPath(), StandardOpenOption.CREATE,
+			StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		this.channel.position(SIGNATURE_HEADER_SIZE);
+		this.encoders = Executors.newFixedThreadPool(threads, runnable -> {
+			final Thread thread = new Thread(runnable, "7z-worker-encoder");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Gets the LZMA2 property byte of the given dictionary size, the dictionary size is rounded
+	 * up to the next size that the property can express
+	 *
+	 * @param dictionarySize
+	 *            the dictionary size
+	 * @return the property byte
+	 */
+	static int getDictionaryProperty(final int dictionarySize)
+	{
+		for (int property = 0; property < 40; property++)
+		{
+			if (dictionarySize <= (2L | (property & 1)) << (property / 2 + 11))
+			{
+				return property;
+			}
+		}
+		return 40;
+	}
+
+	/**
+	 * Adds the given file to the 7z archive. The content is read on the calling thread and
+	 * encoded on the encoder threads, this method only writes chunks if the number of pending
+	 * chunks is exhausted. The file is added to the current folder if it fits into the solid
+	 * block, otherwise to a new folder.
+	 *
+	 * @param file
+	 *            the file to add
+	 * @param name
+	 *            the name of the entry in the 7z archive
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	void add(final File file, final String name) throws IOException
+	{
+		final EntryCompressedEvent event = new EntryCompressedEvent();
+		event.begin();
+		if (this.folder != null && this.maxFolderSize - this.folder.unpackSize < file.length())
+		{
+			closeFolder();
+		}
+		final Entry entry = new Entry(name, file.lastModified());
+		this.entries.add(entry);
+		final CRC32 crc = new CRC32();
+		try (InputStream inputStream = new FileInputStream(file))
+		{
+			while (true)
+			{
+				if (this.chunk != null && this.chunkLength == this.chunk.length)
+				{
+					nextChunk();
+				}
+				if (this.chunk == null)
+				{
+					this.chunk = new byte[(int)Math.min(this.chunkSize,
+						Math.max(this.bufferSize, file.length() + 1))];
+				}
+				final int count = inputStream.read(this.chunk, this.chunkLength,
+					Math.min(this.bufferSize, this.chunk.length - this.chunkLength));
+				if (count < 0)
+				{
+					break;
+				}
+				if (this.folder == null)
+				{
+					this.folder = new Folder();
+					this.folders.add(this.folder);
+				}
+				crc.update(this.chunk, this.chunkLength, count);
+				this.chunkLength += count;
+				entry.size += count;
+			}
+		}
+		entry.crc = crc.getValue();
+		if (0 < entry.size)
+		{
+			this.folder.entries.add(entry);
+			this.folder.unpackSize += entry.size;
+			if (this.maxFolderFiles <= this.folder.entries.size()
+				|| this.maxFolderSize <= this.folder.unpackSize)
+			{
+				closeFolder();
+			}
+		}
+		event.entryCompressed(this.archive, name, -1, -1, entry.size, -1);
+	}
+
+	/**
+	 * Makes room for more content in the current chunk, a chunk that is smaller than the chunk
+	 * size grows, a full chunk is submitted to the encoder threads
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private void nextChunk() throws IOException
+	{
+		if (this.chunk.length < this.chunkSize)
+		{
+			final byte[] grown = new byte[(int)Math.min(this.chunkSize, 2L * this.chunk.length)];
+			System.arraycopy(this.chunk, 0, grown, 0, this.chunkLength);
+			this.chunk = grown;
+		}
+		else
+		{
+			submit(false);
+		}
+	}
+
+	/**
+	 * Submits the current chunk as the last chunk of the current folder and closes the folder
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private void closeFolder() throws IOException
+	{
+		submit(true);
+		this.folder = null;
+	}
+
+	/**
+	 * Submits the current chunk to the encoder threads, writes the next chunks in order while
+	 * the number of pending chunks is exhausted
+	 *
+	 * @param last
+	 *            the flag if this is the last chunk of the current folder
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private void submit(final boolean last) throws IOException
+	{
+		while (this.maxPendingChunks <= this.pendingChunks.size())
+		{
+			writeNextChunk();
+		}
+		final byte[] data = this.chunk;
+		final int length = this.chunkLength;
+		this.pendingChunks.add(new Chunk(this.folder, last,
+			this.encoders.submit(() -> encode(data, length))));
+		this.chunk = null;
+		this.chunkLength = 0;
+	}
+
+	/**
+	 * Encodes one chunk to a complete LZMA2 stream, runs on an encoder thread
+	 *
+	 * @param data
+	 *            the content of the chunk
+	 * @param length
+	 *            the number of bytes of the content
+	 * @return the LZMA2 stream with the end marker
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private byte[] encode(final byte[] data, final int length) throws IOException
+	{
+		final ByteArrayOutputStream output = new ByteArrayOutputStream(Math.max(length / 2, 64));
+		final FinishableOutputStream encoder = this.lzma2Options
+			.getOutputStream(new FinishableWrapperOutputStream(output));
+		encoder.write(data, 0, length);
+		encoder.finish();
+		return output.toByteArray();
+	}
+
+	/**
+	 * Waits for the next chunk in order and writes it to the 7z archive. The end marker of all
+	 * chunks but the last of a folder is left out, so the next chunk continues the LZMA2 stream.
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private void writeNextChunk() throws IOException
+	{
+		final Chunk chunk = this.pendingChunks.poll();
+		final byte[] encoded = ParallelSevenZExtractor.await(chunk.encoded);
+		int length = encoded.length;
+		if (!chunk.last)
+		{
+			if (length == 0 || encoded[length - 1] != K_END)
+			{
+				throw new IOException("The encoded LZMA2 chunk of " + this.archive
+					+ " has no end marker");
+			}
+			length--;
+		}
+		writeFully(ByteBuffer.wrap(encoded, 0, length));
+		chunk.folder.packSize += length;
+	}
+
+	/**
+	 * Writes the remaining bytes of the given buffer at the current position of the archive
+	 *
+	 * @param buffer
+	 *            the buffer to write
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private void writeFully(final ByteBuffer buffer) throws IOException
+	{
+		while (buffer.hasRemaining())
+		{
+			this.channel.write(buffer);
+		}
+	}
+
+	/**
+	 * Writes all pending chunks, the header and the signature header of the 7z archive
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	void finish() throws IOException
+	{
+		if (this.folder != null)
+		{
+			closeFolder();
+		}
+		while (!this.pendingChunks.isEmpty())
+		{
+			writeNextChunk();
+		}
+		final long headerPosition = this.channel.position();
+		final byte[] header = newHeader();
+		writeFully(ByteBuffer.wrap(header));
+		final CRC32 crc = new CRC32();
+		crc.update(header);
+		final ByteBuffer startHeader = ByteBuffer.allocate(20).order(ByteOrder.LITTLE_ENDIAN);
+		startHeader.putLong(headerPosition - SIGNATURE_HEADER_SIZE).putLong(header.length)
+			.putInt((int)crc.getValue()).flip();
+		crc.reset();
+		crc.update(startHeader.duplicate());
+		final ByteBuffer signatureHeader = ByteBuffer.allocate(SIGNATURE_HEADER_SIZE)
+			.order(ByteOrder.LITTLE_ENDIAN);
+		signatureHeader.put(SIGNATURE).put((byte)0).put((byte)4).putInt((int)crc.getValue())
+			.put(startHeader).flip();
+		this.channel.position(0);
+		writeFully(signatureHeader);
+	}
+
+	/**
+	 * Creates the header of the 7z archive with the streams and the files
+	 *
+	 * @return the header
+	 */
+	private byte[] newHeader()
+	{
+		final ByteArrayOutputStream header = new ByteArrayOutputStream();
+		header.write(K_HEADER);
+		if (!this.folders.isEmpty())
+		{
+			header.write(K_MAIN_STREAMS_INFO);
+			writePackInfo(header);
+			writeUnpackInfo(header);
+			writeSubStreamsInfo(header);
+			header.write(K_END);
+		}
+		writeFilesInfo(header);
+		header.write(K_END);
+		return header.toByteArray();
+	}
+
+	/**
+	 * Writes the sizes of the packed streams, one packed stream per folder
+	 */
+	private void writePackInfo(final ByteArrayOutputStream header)
+	{
+		header.write(K_PACK_INFO);
+		writeNumber(header, 0);
+		writeNumber(header, this.folders.size());
+		header.write(K_SIZE);
+		for (final Folder folder : this.folders)
+		{
+			writeNumber(header, folder.packSize);
+		}
+		header.write(K_END);
+	}
+
+	/**
+	 * Writes the folders with their LZMA2 coder and their unpacked sizes
+	 */
+	private void writeUnpackInfo(final ByteArrayOutputStream header)
+	{
+		header.write(K_UNPACK_INFO);
+		header.write(K_FOLDER);
+		writeNumber(header, this.folders.size());
+		header.write(0);
+		final int property = getDictionaryProperty(this.lzma2Options.getDictSize());
+		for (int i = 0; i < this.folders.size(); i++)
+		{
+			// one simple coder with an id of one byte and one byte of properties
+			writeNumber(header, 1);
+			header.write(0x20 | 1);
+			header.write(LZMA2_ID);
+			writeNumber(header, 1);
+			header.write(property);
+		}
+		header.write(K_CODERS_UNPACK_SIZE);
+		for (final Folder folder : this.folders)
+		{
+			writeNumber(header, folder.unpackSize);
+		}
+		header.write(K_END);
+	}
+
+	/**
+	 * Writes the number, the sizes and the checksums of the entries in the folders
+	 */
+	private void writeSubStreamsInfo(final ByteArrayOutputStream header)
+	{
+		header.write(K_SUB_STREAMS_INFO);
+		boolean solid = false;
+		for (final Folder folder : this.folders)
+		{
+			solid |= 1 < folder.entries.size();
+		}
+		if (solid)
+		{
+			header.write(K_NUM_UNPACK_STREAM);
+			for (final Folder folder : this.folders)
+			{
+				writeNumber(header, folder.entries.size());
+			}
+			header.write(K_SIZE);
+			for (final Folder folder : this.folders)
+			{
+				for (int i = 0; i < folder.entries.size() - 1; i++)
+				{
+					writeNumber(header, folder.entries.get(i).size);
+				}
+			}
+		}
+		header.write(K_CRC);
+		header.write(1);
+		for (final Folder folder : this.folders)
+		{
+			for (final Entry entry : folder.entries)
+			{
+				writeInt(header, (int)entry.crc);
+			}
+		}
+		header.write(K_END);
+	}
+
+	/**
+	 * Writes the entries with their names and modification times, the entries without
+	 * content are marked as empty files
+	 */
+	private void writeFilesInfo(final ByteArrayOutputStream header)
+	{
+		header.write(K_FILES_INFO);
+		writeNumber(header, this.entries.size());
+		int emptyStreams = 0;
+		for (final Entry entry : this.entries)
+		{
+			if (entry.size == 0)
+			{
+				emptyStreams++;
+			}
+		}
+		if (0 < emptyStreams)
+		{
+			header.write(K_EMPTY_STREAM);
+			writeNumber(header, (this.entries.size() + 7) / 8);
+			final boolean[] emptyStream = new boolean[this.entries.size()];
+			for (int i = 0; i < emptyStream.length; i++)
+			{
+				emptyStream[i] = this.entries.get(i).size == 0;
+			}
+			writeBits(header, emptyStream);
+			// all entries without content are files
+			header.write(K_EMPTY_FILE);
+			writeNumber(header, (emptyStreams + 7) / 8);
+			final boolean[] emptyFile = new boolean[emptyStreams];
+			Arrays.fill(emptyFile, true);
+			writeBits(header, emptyFile);
+		}
+		final ByteArrayOutputStream names = new ByteArrayOutputStream();
+		names.write(0);
+		for (final Entry entry : this.entries)
+		{
+			names.writeBytes(entry.name.getBytes(StandardCharsets.UTF_16LE));
+			names.write(0);
+			names.write(0);
+		}
+		header.write(K_NAME);
+		writeNumber(header, names.size());
+		header.writeBytes(names.toByteArray());
+		header.write(K_M_TIME);
+		writeNumber(header, 2 + 8L * this.entries.size());
+		header.write(1);
+		header.write(0);
+		for (final Entry entry : this.entries)
+		{
+			writeLong(header, (entry.time + NTFS_EPOCH_OFFSET) * 10000L);
+		}
+		header.write(K_END);
+	}
+
+	/**
+	 * Writes the given number in the variable length encoding of the 7z format, the count of the
+	 * leading one bits of the first byte is the number of following bytes
+	 *
+	 * @param header
+	 *            the header to write to
+	 * @param value
+	 *            the number to write
+	 */
+	private static void writeNumber(final ByteArrayOutputStream header, long value)
+	{
+		int first = 0;
+		int mask = 0x80;
+		int i;
+		for (i = 0; i < 8; i++)
+		{
+			if (value < 1L << 7 * (i + 1))
+			{
+				first |= (int)(value >>> 8 * i);
+				break;
+			}
+			first |= mask;
+			mask >>>= 1;
+		}
+		header.write(first);
+		for (; 0 < i; i--)
+		{
+			header.write((int)(value & 0xFF));
+			value >>>= 8;
+		}
+	}
+
+	/**
+	 * Writes the given bits with the first bit in the highest bit of the first byte
+	 */
+	private static void writeBits(final ByteArrayOutputStream header, final boolean[] bits)
+	{
+		int cache = 0;
+		int shift = 7;
+		for (final boolean bit : bits)
+		{
+			cache |= (bit ? 1 : 0) << shift;
+			if (--shift < 0)
+			{
+				header.write(cache);
+				shift = 7;
+				cache = 0;
+			}
+		}
+		if (shift != 7)
+		{
+			header.write(cache);
+		}
+	}
+
+	/**
+	 * Writes the given value in little endian byte order
+	 */
+	private static void writeInt(final ByteArrayOutputStream header, final int value)
+	{
+		for (int i = 0; i < 4; i++)
+		{
+			header.write(value >>> 8 * i);
+		}
+	}
+
+	/**
+	 * Writes the given value in little endian byte order
+	 */
+	private static void writeLong(final ByteArrayOutputStream header, final long value)
+	{
+		for (int i = 0; i < 8; i++)
+		{
+			header.write((int)(value >>> 8 * i));
+		}
+	}
+
+	/**
+	 * Cancels all pending chunks, stops the encoder threads and closes the archive
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		for (final Chunk pending : this.pendingChunks)
+		{
+			pending.encoded.cancel(true);
+		}
+		this.pendingChunks.clear();
+		this.encoders.shutdownNow();
+		this.channel.close();
+	}
+
+	/**
+	 * An entry of the 7z archive
+	 */
+	private static final class Entry
+	{
+		final String name;
+		final long time;
+		long crc;
+		long size;
+
+		Entry(final String name, final long time)
+		{
+			this.name = name;
+			this.time = time;
+		}
+	}
+
+	/**
+	 * A folder of the 7z archive with the entries whose content is encoded in it
+	 */
+	private static final class Folder
+	{
+		final List<Entry> entries = new ArrayList<>();
+		long packSize;
+		long unpackSize;
+	}
+
+	/**
+	 * A chunk of a folder that is encoded on an encoder thread
+	 */
+	private static final class Chunk
+	{
+		final Future<byte[]> encoded;
+		final Folder folder;
+		final boolean last;
+
+		Chunk(final Folder folder, final boolean last, final Future<byte[]> encoded)
+		{
+			this.folder = folder;
+			this.last = last;
+			this.encoded = encoded;
+		}
+	}
+}
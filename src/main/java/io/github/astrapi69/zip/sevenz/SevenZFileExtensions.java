@@ -27,11 +27,20 @@ package io.github.astrapi69.zip.sevenz;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
 
 import org.apache.commons.compress.archivers.sevenz.SevenZArchiveEntry;
 import org.apache.commons.compress.archivers.sevenz.SevenZFile;
 import org.apache.commons.compress.archivers.sevenz.SevenZOutputFile;
 
+import io.github.astrapi69.zip.ZipExtensions;
+import io.github.astrapi69.zip.jfr.ArchiveFinishedEvent;
+import io.github.astrapi69.zip.jfr.EntryExtractedEvent;
+
 /**
  * Utility class for handling 7z (7-Zip) file compression and decompression.
  */
@@ -53,6 +62,8 @@ public class SevenZFileExtensions
 	public static void zipFiles(File sevenZipFile, String dirToZip, File... files)
 		throws IOException
 	{
+		ArchiveFinishedEvent event = ArchiveFinishedEvent.archiveStarted(
+			ArchiveFinishedEvent.SEVEN_Z_COMPRESS, sevenZipFile.getAbsolutePath(), -1, -1);
 		try (SevenZOutputFile sevenZOutputFile = new SevenZOutputFile(sevenZipFile))
 		{
 			for (File file : files)
@@ -60,6 +71,7 @@ public class SevenZFileExtensions
 				addFile(sevenZOutputFile, dirToZip, file);
 			}
 		}
+		event.archiveFinished(-1, -1);
 	}
 
 	/**
@@ -74,6 +86,8 @@ public class SevenZFileExtensions
 	 */
 	public static void zipFiles(File sevenZipFile, File... files) throws IOException
 	{
+		ArchiveFinishedEvent event = ArchiveFinishedEvent.archiveStarted(
+			ArchiveFinishedEvent.SEVEN_Z_COMPRESS, sevenZipFile.getAbsolutePath(), -1, -1);
 		try (SevenZOutputFile sevenZOutputFile = new SevenZOutputFile(sevenZipFile))
 		{
 			for (File file : files)
@@ -81,6 +95,60 @@ public class SevenZFileExtensions
 				addFile(sevenZOutputFile, file);
 			}
 		}
+		event.archiveFinished(-1, -1);
+	}
+
+	/**
+	 * Compresses the given files into a 7z archive with the LZMA2 settings, the buffer size and the
+	 * order of the given options. With a parallelism greater than one the content is encoded on
+	 * that number of threads, with solid blocks the files are grouped in folders up to the limits
+	 * of the options.
+	 *
+	 * @param sevenZipFile
+	 *            The destination 7z file.
+	 * @param options
+	 *            The options for the compression.
+	 * @param files
+	 *            The files to be included in the 7z archive.
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public static void zipFiles(File sevenZipFile, SevenZOutputOptions options, File... files)
+		throws IOException
+	{
+		ArchiveFinishedEvent event = ArchiveFinishedEvent.archiveStarted(
+			ArchiveFinishedEvent.SEVEN_Z_COMPRESS, sevenZipFile.getAbsolutePath(), -1, -1);
+		if (1 < options.getParallelism() || options.isSolid())
+		{
+			try (ParallelSevenZWriter writer = new ParallelSevenZWriter(sevenZipFile, options))
+			{
+				for (SevenZOutputFileExtensions.Source source : SevenZOutputFileExtensions
+					.getSources(options.isSorted(), files))
+				{
+					writer.add(source.file, source.name);
+				}
+				writer.finish();
+			}
+			event.archiveFinished(-1, -1);
+			return;
+		}
+		try (SevenZOutputFile sevenZOutputFile = new SevenZOutputFile(sevenZipFile))
+		{
+			sevenZOutputFile.setContentMethods(options.getContentMethods());
+			byte[] buffer = new byte[options.getBufferSize()];
+			if (options.isSorted())
+			{
+				SevenZOutputFileExtensions.addSorted(sevenZOutputFile, buffer, files);
+			}
+			else
+			{
+				for (File file : files)
+				{
+					SevenZOutputFileExtensions.add(sevenZOutputFile, file, buffer);
+				}
+			}
+		}
+		event.archiveFinished(-1, -1);
 	}
 
 	/**
@@ -101,7 +169,7 @@ public class SevenZFileExtensions
 		try (SevenZFile sevenZFile = SevenZFile.builder().setFile(sevenZipFile)
 			.setPassword(password).get())
 		{
-			extract(sevenZFile, destination);
+			extract(sevenZFile, sevenZipFile.getAbsolutePath(), destination);
 		}
 	}
 
@@ -119,30 +187,199 @@ public class SevenZFileExtensions
 	{
 		try (SevenZFile sevenZFile = SevenZFile.builder().setFile(sevenZipFile).get())
 		{
-			extract(sevenZFile, destination);
+			extract(sevenZFile, sevenZipFile.getAbsolutePath(), destination);
 		}
 	}
 
 	/**
-	 * Extracts files from a 7z archive.
+	 * Extracts the contents of a 7z archive to the specified destination directory on the given
+	 * number of threads. Every thread opens the archive on its own and extracts a contiguous range
+	 * of entries, so that archives with many folders extract faster. If a range starts inside a
+	 * solid folder, its thread decodes the preceding part of the folder to reach the first entry.
+	 *
+	 * @param sevenZipFile
+	 *            The source 7z file.
+	 * @param destination
+	 *            The destination directory.
+	 * @param password
+	 *            The password for encrypted 7z files or null.
+	 * @param parallelism
+	 *            The number of threads that extract the entries.
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public static void extract(File sevenZipFile, File destination, char[] password,
+		int parallelism) throws IOException
+	{
+		ParallelSevenZExtractor.extract(sevenZipFile, destination, password, parallelism);
+	}
+
+	/**
+	 * Extracts the entry with the given name from a 7z archive to the given output stream. Only
+	 * the folder of the entry is decoded, and in a solid folder only up to the end of the entry.
+	 * The output stream is not closed.
+	 *
+	 * @param sevenZipFile
+	 *            The source 7z file.
+	 * @param entryName
+	 *            The name of the entry in the archive.
+	 * @param out
+	 *            The output stream to write the content of the entry to.
+	 * @param password
+	 *            The password for encrypted 7z files or null.
+	 * @return true if the entry was found and extracted, otherwise false
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public static boolean extractEntry(File sevenZipFile, String entryName, OutputStream out,
+		char[] password) throws IOException
+	{
+		try (SevenZFile sevenZFile = SevenZFile.builder().setFile(sevenZipFile)
+			.setPassword(password).get())
+		{
+			for (SevenZArchiveEntry entry : sevenZFile.getEntries())
+			{
+				if (!entry.isDirectory() && entry.getName().equals(entryName))
+				{
+					EntryExtractedEvent event = new EntryExtractedEvent();
+					event.begin();
+					try (InputStream in = sevenZFile.getInputStream(entry))
+					{
+						transfer(in, out, entry, new byte[ZipExtensions.DEFAULT_BUFFER_SIZE]);
+					}
+					event.entryExtracted(sevenZipFile.getAbsolutePath(), entryName, -1,
+						entry.getSize(), -1);
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Extracts the entries with the given names from a 7z archive to the specified destination
+	 * directory. The entries are extracted in archive order, so that every needed folder is
+	 * decoded at most once and folders without a requested entry are skipped.
+	 *
+	 * @param sevenZipFile
+	 *            The source 7z file.
+	 * @param destination
+	 *            The destination directory.
+	 * @param entryNames
+	 *            The names of the entries to extract.
+	 * @param password
+	 *            The password for encrypted 7z files or null.
+	 * @return the number of extracted entries
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public static int extractEntries(File sevenZipFile, File destination,
+		Collection<String> entryNames, char[] password) throws IOException
+	{
+		String archive = sevenZipFile.getAbsolutePath();
+		ArchiveFinishedEvent archiveEvent = ArchiveFinishedEvent
+			.archiveStarted(ArchiveFinishedEvent.SEVEN_Z_EXTRACT, archive, -1, -1);
+		Set<String> names = new HashSet<>(entryNames);
+		byte[] buffer = new byte[ZipExtensions.DEFAULT_BUFFER_SIZE];
+		int entryCount = 0;
+		long size = 0;
+		try (SevenZFile sevenZFile = SevenZFile.builder().setFile(sevenZipFile)
+			.setPassword(password).get())
+		{
+			for (SevenZArchiveEntry entry : sevenZFile.getEntries())
+			{
+				if (names.isEmpty())
+					break;
+				if (!names.remove(entry.getName()))
+					continue;
+				entryCount++;
+				File currentFile = new File(destination, entry.getName());
+				if (entry.isDirectory())
+				{
+					currentFile.mkdirs();
+					continue;
+				}
+				EntryExtractedEvent event = new EntryExtractedEvent();
+				event.begin();
+				currentFile.getParentFile().mkdirs();
+				try (InputStream in = sevenZFile.getInputStream(entry);
+					FileOutputStream out = new FileOutputStream(currentFile))
+				{
+					transfer(in, out, entry, buffer);
+				}
+				size += entry.getSize();
+				event.entryExtracted(archive, entry.getName(), -1, entry.getSize(), -1);
+			}
+		}
+		archiveEvent.archiveFinished(entryCount, size);
+		return entryCount;
+	}
+
+	/**
+	 * Copies the content of the given entry from the given input stream to the given output
+	 * stream through the given buffer.
+	 *
+	 * @param in
+	 *            The input stream of the entry.
+	 * @param out
+	 *            The output stream to write the content to.
+	 * @param entry
+	 *            The entry that is copied.
+	 * @param buffer
+	 *            The buffer to copy the content with.
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred or the entry is truncated.
+	 */
+	static void transfer(InputStream in, OutputStream out, SevenZArchiveEntry entry,
+		byte[] buffer) throws IOException
+	{
+		long written = 0;
+		int count;
+		while ((count = in.read(buffer)) != -1)
+		{
+			out.write(buffer, 0, count);
+			written += count;
+		}
+		if (written != entry.getSize())
+		{
+			throw new IOException("Truncated entry " + entry.getName() + ": expected "
+				+ entry.getSize() + " bytes but read " + written);
+		}
+	}
+
+	/**
+	 * Extracts files from a 7z archive. The content of the entries is streamed through one fixed
+	 * buffer, so that the memory does not grow with the size of the entries.
 	 *
 	 * @param sevenZFile
 	 *            The source 7z file.
+	 * @param archive
+	 *            The path of the source 7z file.
 	 * @param destination
 	 *            The destination directory.
 	 * @throws IOException
 	 *             Signals that an I/O exception has occurred.
 	 */
-	private static void extract(SevenZFile sevenZFile, File destination) throws IOException
+	private static void extract(SevenZFile sevenZFile, String archive, File destination)
+		throws IOException
 	{
+		ArchiveFinishedEvent archiveEvent = ArchiveFinishedEvent
+			.archiveStarted(ArchiveFinishedEvent.SEVEN_Z_EXTRACT, archive, -1, -1);
+		byte[] buffer = new byte[ZipExtensions.DEFAULT_BUFFER_SIZE];
+		int entryCount = 0;
+		long size = 0;
 		while (true)
 		{
 			SevenZArchiveEntry entry = sevenZFile.getNextEntry();
 			if (entry == null)
 				break;
+			entryCount++;
 			if (entry.isDirectory())
 				continue;
 
+			EntryExtractedEvent event = new EntryExtractedEvent();
+			event.begin();
+
 			File currentFile = new File(destination, entry.getName());
 			File parent = currentFile.getParentFile();
 			if (!parent.exists())
@@ -151,11 +388,23 @@ public class SevenZFileExtensions
 			}
 			try (FileOutputStream out = new FileOutputStream(currentFile))
 			{
-				byte[] content = new byte[(int)entry.getSize()];
-				sevenZFile.read(content);
-				out.write(content);
+				long written = 0;
+				int count;
+				while ((count = sevenZFile.read(buffer)) != -1)
+				{
+					out.write(buffer, 0, count);
+					written += count;
+				}
+				if (written != entry.getSize())
+				{
+					throw new IOException("Truncated entry " + entry.getName() + ": expected "
+						+ entry.getSize() + " bytes but read " + written);
+				}
 			}
+			size += entry.getSize();
+			event.entryExtracted(archive, entry.getName(), -1, entry.getSize(), -1);
 		}
+		archiveEvent.archiveFinished(entryCount, size);
 	}
 
 	/**
@@ -27,10 +27,17 @@ package io.github.astrapi69.zip.sevenz;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
 
 import org.apache.commons.compress.archivers.sevenz.SevenZArchiveEntry;
 import org.apache.commons.compress.archivers.sevenz.SevenZOutputFile;
 
+import io.github.astrapi69.zip.ZipExtensions;
+import io.github.astrapi69.zip.jfr.EntryCompressedEvent;
+
 /**
  * Extension functions for SevenZOutputFile.
  */
@@ -53,7 +60,7 @@ public class SevenZOutputFileExtensions
 		throws IOException
 	{
 		String name = dirToZip + File.separator + file.getName();
-		addFileWithName(sevenZOutputFile, file, name);
+		addFileWithName(sevenZOutputFile, file, name, new byte[ZipExtensions.DEFAULT_BUFFER_SIZE]);
 	}
 
 	/**
@@ -68,8 +75,114 @@ public class SevenZOutputFileExtensions
 	 */
 	public static void add(SevenZOutputFile sevenZOutputFile, File file) throws IOException
 	{
+		add(sevenZOutputFile, file, new byte[ZipExtensions.DEFAULT_BUFFER_SIZE]);
+	}
+
+	/**
+	 * Adds a file to the 7z archive and reads the content with the given buffer, so that one buffer
+	 * can be reused for all files of an archive.
+	 *
+	 * @param sevenZOutputFile
+	 *            The 7z archive zip file to add the file
+	 * @param file
+	 *            The file to be added.
+	 * @param buffer
+	 *            The buffer to read the content of the files with.
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 * @throws IllegalArgumentException
+	 *             if the buffer is empty
+	 */
+	public static void add(SevenZOutputFile sevenZOutputFile, File file, byte[] buffer)
+		throws IOException
+	{
+		SevenZOutputOptions.checkBufferSize(buffer.length);
 		String name = file.getName();
-		addFileWithName(sevenZOutputFile, file, name);
+		addFileWithName(sevenZOutputFile, file, name, buffer);
+	}
+
+	/**
+	 * Adds the given files to the 7z archive ordered by their extension, then by their size and
+	 * then by their name. The files of the given directories are sorted together with the other
+	 * files. {@link SevenZOutputFile} encodes every file in its own folder, so the order does not
+	 * change the compression, it only makes the order of the entries independent of the directory
+	 * listings. Solid blocks with similar content are written by
+	 * {@link SevenZFileExtensions#zipFiles(File, SevenZOutputOptions, File...)}.
+	 *
+	 * @param sevenZOutputFile
+	 *            The 7z archive zip file to add the files
+	 * @param buffer
+	 *            The buffer to read the content of the files with.
+	 * @param files
+	 *            The files to be added.
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 * @throws IllegalArgumentException
+	 *             if the buffer is empty
+	 */
+	public static void addSorted(SevenZOutputFile sevenZOutputFile, byte[] buffer, File... files)
+		throws IOException
+	{
+		SevenZOutputOptions.checkBufferSize(buffer.length);
+		for (Source source : getSources(true, files))
+		{
+			addFileWithName(sevenZOutputFile, source.file, source.name, buffer);
+		}
+	}
+
+	/**
+	 * Collects the given files and all files of the given directories with their names in the 7z
+	 * archive.
+	 *
+	 * @param sorted
+	 *            true if the files are ordered by their extension, then by their size and then by
+	 *            their name, false for the given order and the order of the directory listings
+	 * @param files
+	 *            The files to be added.
+	 * @return the files with their names in the archive
+	 */
+	static List<Source> getSources(boolean sorted, File... files)
+	{
+		List<Source> sources = new ArrayList<>();
+		for (File file : files)
+		{
+			collect(file, file.getName(), sources);
+		}
+		if (sorted)
+		{
+			sources.sort(Comparator.comparing((Source source) -> source.extension)
+				.thenComparingLong(source -> source.size).thenComparing(source -> source.name));
+		}
+		return sources;
+	}
+
+	/**
+	 * Collects the given file or all files of the given directory with their names in the archive
+	 *
+	 * @param file
+	 *            The file or directory to collect.
+	 * @param name
+	 *            The name of the file in the archive.
+	 * @param sources
+	 *            The list to add the files to.
+	 */
+	private static void collect(File file, String name, List<Source> sources)
+	{
+		if (file.isDirectory())
+		{
+			File[] children = file.listFiles();
+			if (children != null)
+			{
+				for (File child : children)
+				{
+					collect(child, name + File.separator + child.getName(), sources);
+				}
+			}
+		}
+		else
+		{
+			sources.add(new Source(file, name));
+		}
 	}
 
 	/**
@@ -81,11 +194,13 @@ public class SevenZOutputFileExtensions
 	 *            The file to be added.
 	 * @param name
 	 *            The name of the file in the archive.
+	 * @param buffer
+	 *            The buffer to read the content of the files with.
 	 * @throws IOException
 	 *             Signals that an I/O exception has occurred.
 	 */
-	private static void addFileWithName(SevenZOutputFile sevenZOutputFile, File file, String name)
-		throws IOException
+	private static void addFileWithName(SevenZOutputFile sevenZOutputFile, File file, String name,
+		byte[] buffer) throws IOException
 	{
 		if (file.isDirectory())
 		{
@@ -94,17 +209,19 @@ public class SevenZOutputFileExtensions
 			{
 				for (File child : children)
 				{
-					add(sevenZOutputFile, name, child);
+					addFileWithName(sevenZOutputFile, child,
+						name + File.separator + child.getName(), buffer);
 				}
 			}
 		}
 		else
 		{
+			EntryCompressedEvent event = new EntryCompressedEvent();
+			event.begin();
 			SevenZArchiveEntry entry = sevenZOutputFile.createArchiveEntry(file, name);
 			sevenZOutputFile.putArchiveEntry(entry);
 			try (FileInputStream inputStream = new FileInputStream(file))
 			{
-				byte[] buffer = new byte[1024];
 				int count;
 				while ((count = inputStream.read(buffer)) > 0)
 				{
@@ -112,6 +229,34 @@ public class SevenZOutputFileExtensions
 				}
 				sevenZOutputFile.closeArchiveEntry();
 			}
+			event.entryCompressed(null, name, -1, -1, entry.getSize(), -1);
+		}
+	}
+
+	/**
+	 * A file with its name in the archive and the keys it is sorted by.
+	 */
+	static final class Source
+	{
+
+		final String extension;
+
+		final File file;
+
+		final String name;
+
+		final long size;
+
+		Source(File file, String name)
+		{
+			String fileName = file.getName();
+			int index = fileName.lastIndexOf('.');
+			this.extension = 0 <= index
+				? fileName.substring(index + 1).toLowerCase(Locale.ROOT)
+				: "";
+			this.file = file;
+			this.name = name;
+			this.size = file.length();
 		}
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,501 @@
+/**
+ * The MIT License
+ *
+ * Copyright (C) 2015 Asterios Raptis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.astrapi69.zip.sevenz;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.commons.compress.archivers.sevenz.SevenZMethod;
+import org.apache.commons.compress.archivers.sevenz.SevenZMethodConfiguration;
+import org.tukaani.xz.LZMA2Options;
+
+import io.github.astrapi69.zip.ZipExtensions;
+
+/**
+ * The class {@link SevenZOutputOptions} holds the settings for writing 7z archives with the LZMA2
+ * compression method. The preset sets the defaults of the LZMA2 encoder, the dictionary size
+ * overrides the dictionary size of the preset and the memory budget bounds the memory of the
+ * encoder by reducing the dictionary size. With a parallelism greater than one the content is
+ * encoded in independent chunks on that number of threads, every thread with its own encoder. The
+ * solid block size and the files per solid block bound the folders that are encoded as one
+ * stream, by default every file has its own folder. If sorting is enabled the files are added
+ * ordered by their extension and then by their size, so that files with similar content land in
+ * the same solid block.
+ */
+public class SevenZOutputOptions
+{
+
+	/** The size of the buffer the content of the files is read with */
+	private int bufferSize = ZipExtensions.DEFAULT_BUFFER_SIZE;
+
+	/** The dictionary size of the LZMA2 encoder or zero for the dictionary size of the preset */
+	private int dictionarySize;
+
+	/** The maximum memory of the LZMA2 encoder in bytes or zero for no limit */
+	private long memoryBudget;
+
+	/** The number of threads that encode the content */
+	private int parallelism = 1;
+
+	/** The preset of the LZMA2 encoder from 0 to 9 */
+	private int preset = LZMA2Options.PRESET_DEFAULT;
+
+	/** The maximum number of files in one solid block or zero for no limit */
+	private int solidBlockFiles = 1;
+
+	/** The maximum number of content bytes in one solid block or zero for no limit */
+	private long solidBlockSize;
+
+	/** The flag if the files are sorted by extension and size before they are added */
+	private boolean sorted;
+
+	/**
+	 * Default constructor.
+	 */
+	public SevenZOutputOptions()
+	{
+	}
+
+	/**
+	 * Creates a builder for constructing {@link SevenZOutputOptions} objects.
+	 *
+	 * @return a new {@code SevenZOutputOptionsBuilder} instance
+	 */
+	public static SevenZOutputOptionsBuilder builder()
+	{
+		return new SevenZOutputOptionsBuilder();
+	}
+
+	/**
+	 * Gets the size of the buffer the content of the files is read with
+	 *
+	 * @return the buffer size
+	 */
+	public int getBufferSize()
+	{
+		return bufferSize;
+	}
+
+	/**
+	 * Sets the size of the buffer the content of the files is read with
+	 *
+	 * @param bufferSize
+	 *            the buffer size, at least one byte
+	 * @throws IllegalArgumentException
+	 *             if the buffer size is less than one
+	 */
+	public void setBufferSize(int bufferSize)
+	{
+		this.bufferSize = checkBufferSize(bufferSize);
+	}
+
+	/**
+	 * Checks that the given buffer size is at least one byte, an empty buffer would write every
+	 * entry without content
+	 *
+	 * @param bufferSize
+	 *            the buffer size to check
+	 * @return the given buffer size
+	 * @throws IllegalArgumentException
+	 *             if the buffer size is less than one
+	 */
+	static int checkBufferSize(int bufferSize)
+	{
+		if (bufferSize < 1)
+		{
+			throw new IllegalArgumentException(
+				"The buffer size must be at least one byte but was " + bufferSize);
+		}
+		return bufferSize;
+	}
+
+	/**
+	 * Gets the dictionary size of the LZMA2 encoder
+	 *
+	 * @return the dictionary size or zero for the dictionary size of the preset
+	 */
+	public int getDictionarySize()
+	{
+		return dictionarySize;
+	}
+
+	/**
+	 * Sets the dictionary size of the LZMA2 encoder. A bigger dictionary finds matches in a wider
+	 * window of the content but needs more memory for compression and decompression.
+	 *
+	 * @param dictionarySize
+	 *            the dictionary size or zero for the dictionary size of the preset
+	 */
+	public void setDictionarySize(int dictionarySize)
+	{
+		this.dictionarySize = dictionarySize;
+	}
+
+	/**
+	 * Gets the number of threads that encode the content
+	 *
+	 * @return the number of threads
+	 */
+	public int getParallelism()
+	{
+		return parallelism;
+	}
+
+	/**
+	 * Sets the number of threads that encode the content. With more than one thread the content
+	 * of every file is split in chunks of three times the dictionary size, at least 1 MiB, that
+	 * are encoded independently and joined to one LZMA2 stream. Every chunk starts with an empty
+	 * dictionary, which costs a little compression ratio.
+	 *
+	 * @param parallelism
+	 *            the number of threads, one for the single encoder of {@code SevenZOutputFile}
+	 */
+	public void setParallelism(int parallelism)
+	{
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Gets the maximum memory of the LZMA2 encoder
+	 *
+	 * @return the maximum memory in bytes or zero for no limit
+	 */
+	public long getMemoryBudget()
+	{
+		return memoryBudget;
+	}
+
+	/**
+	 * Sets the maximum memory of the LZMA2 encoder. If the encoder needs more memory with the
+	 * preset and the dictionary size, the dictionary size is halved until the encoder fits. With
+	 * a parallelism greater than one the budget applies to the encoder of every thread.
+	 *
+	 * @param memoryBudget
+	 *            the maximum memory in bytes or zero for no limit
+	 */
+	public void setMemoryBudget(long memoryBudget)
+	{
+		this.memoryBudget = memoryBudget;
+	}
+
+	/**
+	 * Gets the preset of the LZMA2 encoder
+	 *
+	 * @return the preset from 0 to 9
+	 */
+	public int getPreset()
+	{
+		return preset;
+	}
+
+	/**
+	 * Sets the preset of the LZMA2 encoder, the lower the preset the faster and the weaker the
+	 * compression
+	 *
+	 * @param preset
+	 *            the preset from 0 to 9
+	 */
+	public void setPreset(int preset)
+	{
+		this.preset = preset;
+	}
+
+	/**
+	 * Gets the maximum number of files in one solid block
+	 *
+	 * @return the maximum number of files or zero for no limit
+	 */
+	public int getSolidBlockFiles()
+	{
+		return solidBlockFiles;
+	}
+
+	/**
+	 * Sets the maximum number of files in one solid block. The files of a solid block are
+	 * encoded as one stream, so later files find matches in the earlier ones, but reading one
+	 * file decodes all files in front of it in its block. With more than one file per block the
+	 * archive is written by the writer of this library also with a parallelism of one.
+	 *
+	 * @param solidBlockFiles
+	 *            the maximum number of files, one for no solid blocks or zero for no limit
+	 */
+	public void setSolidBlockFiles(int solidBlockFiles)
+	{
+		this.solidBlockFiles = solidBlockFiles;
+	}
+
+	/**
+	 * Gets the maximum number of content bytes in one solid block
+	 *
+	 * @return the maximum number of bytes or zero for no limit
+	 */
+	public long getSolidBlockSize()
+	{
+		return solidBlockSize;
+	}
+
+	/**
+	 * Sets the maximum number of content bytes in one solid block. A file that does not fit into
+	 * the current block starts a new block, a file that is bigger than the limit gets a block of
+	 * its own. The limit bounds the number of bytes that are decoded to read a file of the block.
+	 *
+	 * @param solidBlockSize
+	 *            the maximum number of bytes or zero for no limit
+	 */
+	public void setSolidBlockSize(long solidBlockSize)
+	{
+		this.solidBlockSize = solidBlockSize;
+	}
+
+	/**
+	 * Checks if solid blocks with more than one file are written
+	 *
+	 * @return true if a solid block can hold more than one file, otherwise false
+	 */
+	boolean isSolid()
+	{
+		return solidBlockFiles != 1;
+	}
+
+	/**
+	 * Checks if the files are sorted by extension and size before they are added
+	 *
+	 * @return true if the files are sorted, otherwise false
+	 */
+	public boolean isSorted()
+	{
+		return sorted;
+	}
+
+	/**
+	 * Sets the flag if the files are sorted by extension and then by size before they are added.
+	 * Otherwise the files are added in the given order and directories in the order of their
+	 * listing. The order only changes the compression ratio with solid blocks of more than one
+	 * file, without solid blocks it only makes the order of the entries independent of the
+	 * directory listings.
+	 *
+	 * @param sorted
+	 *            true if the files are sorted, otherwise false
+	 */
+	public void setSorted(boolean sorted)
+	{
+		this.sorted = sorted;
+	}
+
+	/**
+	 * Creates the LZMA2 encoder settings from these options
+	 *
+	 * @return the LZMA2 encoder settings
+	 * @throws IOException
+	 *             if the preset or the dictionary size is not supported
+	 */
+	LZMA2Options newLzma2Options() throws IOException
+	{
+		LZMA2Options options = new LZMA2Options(preset);
+		if (0 < dictionarySize)
+		{
+			options.setDictSize(dictionarySize);
+		}
+		while (0 < memoryBudget && memoryBudget < options.getEncoderMemoryUsage() * 1024L
+			&& LZMA2Options.DICT_SIZE_MIN < options.getDictSize())
+		{
+			options.setDictSize(Math.max(options.getDictSize() / 2, LZMA2Options.DICT_SIZE_MIN));
+		}
+		return options;
+	}
+
+	/**
+	 * Creates the content methods for {@code SevenZOutputFile#setContentMethods(Iterable)} from
+	 * these options
+	 *
+	 * @return the content methods
+	 * @throws IOException
+	 *             if the preset or the dictionary size is not supported
+	 */
+	public List<SevenZMethodConfiguration> getContentMethods() throws IOException
+	{
+		return List.of(new SevenZMethodConfiguration(SevenZMethod.LZMA2, newLzma2Options()));
+	}
+
+	/**
+	 * Creates a builder initialized with the properties of this options.
+	 *
+	 * @return a new {@code SevenZOutputOptionsBuilder} initialized with the properties
+	 */
+	public SevenZOutputOptionsBuilder toBuilder()
+	{
+		return new SevenZOutputOptionsBuilder().bufferSize(bufferSize)
+			.dictionarySize(dictionarySize).memoryBudget(memoryBudget).parallelism(parallelism)
+			.preset(preset).solidBlockFiles(solidBlockFiles).solidBlockSize(solidBlockSize)
+			.sorted(sorted);
+	}
+
+	/**
+	 * Builder class for constructing {@link SevenZOutputOptions} objects.
+	 */
+	public static class SevenZOutputOptionsBuilder
+	{
+		private int bufferSize = ZipExtensions.DEFAULT_BUFFER_SIZE;
+		private int dictionarySize;
+		private long memoryBudget;
+		private int parallelism = 1;
+		private int preset = LZMA2Options.PRESET_DEFAULT;
+		private int solidBlockFiles = 1;
+		private long solidBlockSize;
+		private boolean sorted;
+
+		/**
+		 * Default constructor.
+		 */
+		SevenZOutputOptionsBuilder()
+		{
+		}
+
+		/**
+		 * Constructs new {@link SevenZOutputOptions} based on the current builder state.
+		 *
+		 * @return the new {@link SevenZOutputOptions}
+		 */
+		public SevenZOutputOptions build()
+		{
+			SevenZOutputOptions options = new SevenZOutputOptions();
+			options.setBufferSize(bufferSize);
+			options.setDictionarySize(dictionarySize);
+			options.setMemoryBudget(memoryBudget);
+			options.setParallelism(parallelism);
+			options.setPreset(preset);
+			options.setSolidBlockFiles(solidBlockFiles);
+			options.setSolidBlockSize(solidBlockSize);
+			options.setSorted(sorted);
+			return options;
+		}
+
+		/**
+		 * Sets the size of the buffer the content of the files is read with.
+		 *
+		 * @param bufferSize
+		 *            the buffer size, at least one byte
+		 * @return the current {@code SevenZOutputOptionsBuilder} instance
+		 * @throws IllegalArgumentException
+		 *             if the buffer size is less than one
+		 */
+		public SevenZOutputOptionsBuilder bufferSize(int bufferSize)
+		{
+			this.bufferSize = checkBufferSize(bufferSize);
+			return this;
+		}
+
+		/**
+		 * Sets the dictionary size of the LZMA2 encoder.
+		 *
+		 * @param dictionarySize
+		 *            the dictionary size or zero for the dictionary size of the preset
+		 * @return the current {@code SevenZOutputOptionsBuilder} instance
+		 */
+		public SevenZOutputOptionsBuilder dictionarySize(int dictionarySize)
+		{
+			this.dictionarySize = dictionarySize;
+			return this;
+		}
+
+		/**
+		 * Sets the maximum memory of the LZMA2 encoder.
+		 *
+		 * @param memoryBudget
+		 *            the maximum memory in bytes or zero for no limit
+		 * @return the current {@code SevenZOutputOptionsBuilder} instance
+		 */
+		public SevenZOutputOptionsBuilder memoryBudget(long memoryBudget)
+		{
+			this.memoryBudget = memoryBudget;
+			return this;
+		}
+
+		/**
+		 * Sets the number of threads that encode the content.
+		 *
+		 * @param parallelism
+		 *            the number of threads
+		 * @return the current {@code SevenZOutputOptionsBuilder} instance
+		 */
+		public SevenZOutputOptionsBuilder parallelism(int parallelism)
+		{
+			this.parallelism = parallelism;
+			return this;
+		}
+
+		/**
+		 * Sets the preset of the LZMA2 encoder.
+		 *
+		 * @param preset
+		 *            the preset from 0 to 9
+		 * @return the current {@code SevenZOutputOptionsBuilder} instance
+		 */
+		public SevenZOutputOptionsBuilder preset(int preset)
+		{
+			this.preset = preset;
+			return this;
+		}
+
+		/**
+		 * Sets the maximum number of files in one solid block.
+		 *
+		 * @param solidBlockFiles
+		 *            the maximum number of files, one for no solid blocks or zero for no limit
+		 * @return the current {@code SevenZOutputOptionsBuilder} instance
+		 */
+		public SevenZOutputOptionsBuilder solidBlockFiles(int solidBlockFiles)
+		{
+			this.solidBlockFiles = solidBlockFiles;
+			return this;
+		}
+
+		/**
+		 * Sets the maximum number of content bytes in one solid block.
+		 *
+		 * @param solidBlockSize
+		 *            the maximum number of bytes or zero for no limit
+		 * @return the current {@code SevenZOutputOptionsBuilder} instance
+		 */
+		public SevenZOutputOptionsBuilder solidBlockSize(long solidBlockSize)
+		{
+			this.solidBlockSize = solidBlockSize;
+			return this;
+		}
+
+		/**
+		 * Sets the flag if the files are sorted by extension and size before they are added.
+		 *
+		 * @param sorted
+		 *            true if the files are sorted, otherwise false
+		 * @return the current {@code SevenZOutputOptionsBuilder} instance
+		 */
+		public SevenZOutputOptionsBuilder sorted(boolean sorted)
+		{
+			this.sorted = sorted;
+			return this;
+		}
+	}
+}
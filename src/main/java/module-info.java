@@ -26,7 +26,10 @@ module io.github.astrapisixtynine.zip.worker
 	requires file.worker;
 	requires silly.io.main;
 	requires java.logging;
+	requires jdk.jfr;
+	requires org.tukaani.xz;
 
 	exports io.github.astrapi69.zip;
+	exports io.github.astrapi69.zip.jfr;
 	exports io.github.astrapi69.zip.sevenz;
 }
\ No newline at end of file
@@ -0,0 +1,104 @@
+/**
+ * The MIT License
+ *
+ * Copyright (C) 2015 Asterios Raptis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.astrapi69.zip;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.astrapi69.file.write.StoreFileExtensions;
+
+/**
+ * The unit test class for the class {@link ArchiveIndex}
+ */
+public class ArchiveIndexTest extends ZipTestCase
+{
+
+	/**
+	 * Test method for {@link ArchiveIndex#open(File)} and the lookup of entries
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	@Test
+	public void testOpen() throws IOException
+	{
+		final File zipFile = new File(this.zipDir.getAbsoluteFile(), "testArchiveIndex.zip");
+		final File testFile1 = new File(this.testDir.getAbsoluteFile(), "testZip1.txt");
+		final File testFile2 = new File(this.deepDir.getAbsoluteFile(), "testZip2.bin");
+		final File testFile3 = new File(this.deeperDir.getAbsoluteFile(), "testZip3.txt");
+		StoreFileExtensions.toFile(testFile1, "Its a beautifull day!!!");
+		final byte[] expected = new byte[100 * 1024];
+		new Random(42).nextBytes(expected);
+		Files.write(testFile2.toPath(), expected);
+		StoreFileExtensions.toFile(testFile3, "Its a beautifull evening!!!");
+		assertFalse(Zipper.builder().directoryToZip(this.testDir).zipFile(zipFile).build().zip()
+			.isPresent());
+
+		try (ZipFile zf = new ZipFile(zipFile); ArchiveIndex index = ArchiveIndex.open(zipFile))
+		{
+			assertEquals(zf.size(), index.size());
+			for (final ZipEntry entry : Collections.list(zf.entries()))
+			{
+				final int i = index.indexOf(entry.getName());
+				assertTrue(0 <= i);
+				assertEquals(entry.getName(), index.getName(i));
+				assertEquals(entry.getSize(), index.getSize(i));
+				assertEquals(entry.getCompressedSize(), index.getCompressedSize(i));
+				assertEquals(entry.getCrc(), index.getCrc(i));
+				assertEquals(entry.getMethod(), index.getMethod(i));
+				assertEquals(entry.getTime(), index.getTime(i));
+				try (InputStream expectedStream = zf.getInputStream(entry);
+					InputStream actualStream = index.getInputStream(i))
+				{
+					assertArrayEquals(expectedStream.readAllBytes(), actualStream.readAllBytes());
+				}
+			}
+			assertEquals(-1, index.indexOf("testDir/notExisting.txt"));
+			assertEquals(3, index.findByPrefix("testDir").length);
+			assertEquals(2, index.findByGlob("testDir/**.txt").length);
+			assertEquals(1, index.findByGlob("testDir/*.txt").length);
+			assertEquals(1, index.findByGlob("testDir/*/*.{bin,zip}").length);
+
+			final File extracted = new File(this.unzipDir, "testZip2.bin");
+			final int binaryIndex = index.indexOf(
+				"testDir" + File.separator + "deepDir" + File.separator + "testZip2.bin");
+			assertEquals(expected.length, index.extract(binaryIndex, extracted));
+			assertArrayEquals(expected, Files.readAllBytes(extracted.toPath()));
+		}
+	}
+}
@@ -0,0 +1,102 @@
+/**
+ * The MIT License
+ *
+ * Copyright (C) 2015 Asterios Raptis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.astrapi69.zip;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Enumeration;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.astrapi69.file.write.StoreFileExtensions;
+
+/**
+ * The unit test class for the class {@link CentralDirectory}
+ */
+public class CentralDirectoryTest extends ZipTestCase
+{
+
+	/**
+	 * Test method for {@link CentralDirectory#open(File)} and the entry cursor
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	@Test
+	public void testEntries() throws IOException
+	{
+		final File zipFile = new File(this.zipDir.getAbsoluteFile(), "testCentralDirectory.zip");
+		final File testFile1 = new File(this.testDir.getAbsoluteFile(), "testZip1.txt");
+		final File testFile2 = new File(this.deepDir.getAbsoluteFile(), "testZip2.bin");
+		StoreFileExtensions.toFile(testFile1, "Its a beautifull day!!!");
+		final byte[] expected = new byte[100 * 1024];
+		new Random(42).nextBytes(expected);
+		Files.write(testFile2.toPath(), expected);
+		assertFalse(Zipper.builder().directoryToZip(this.testDir).zipFile(zipFile)
+			.zipFileComment("central").build().zip().isPresent());
+
+		try (ZipFile zf = new ZipFile(zipFile);
+			CentralDirectory directory = CentralDirectory.open(zipFile))
+		{
+			assertEquals(zf.size(), directory.size());
+			assertEquals("central", directory.getComment());
+			final Enumeration<? extends ZipEntry> expectedEntries = zf.entries();
+			final CentralDirectory.Entry entry = directory.entries();
+			while (entry.next())
+			{
+				final ZipEntry expectedEntry = expectedEntries.nextElement();
+				assertTrue(expectedEntry.getName().contentEquals(entry.getNameChars()));
+				assertEquals(expectedEntry.getSize(), entry.getSize());
+				assertEquals(expectedEntry.getCompressedSize(), entry.getCompressedSize());
+				assertEquals(expectedEntry.getCrc(), entry.getCrc());
+				assertEquals(expectedEntry.getMethod(), entry.getMethod());
+				assertEquals(expectedEntry.getTime(), entry.getTime());
+			}
+			assertFalse(expectedEntries.hasMoreElements());
+			assertFalse(entry.next());
+
+			assertNull(directory.find("testDir" + File.separator + "notExisting.txt"));
+			final CentralDirectory.Entry found = directory
+				.find("testDir" + File.separator + "deepDir" + File.separator + "testZip2.bin");
+			assertNotNull(found);
+			try (InputStream inputStream = directory.getInputStream(found))
+			{
+				assertArrayEquals(expected, inputStream.readAllBytes());
+			}
+		}
+	}
+}
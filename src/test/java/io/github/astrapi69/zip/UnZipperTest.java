@@ -24,14 +24,40 @@
  */
 package io.github.astrapi69.zip;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipException;
 import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -372,4 +398,486 @@ public class UnZipperTest extends ZipTestCase
 
 	}
 
+	/**
+	 * Test method for {@link UnZipper#unzip()} with parallel extraction
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	@Test
+	public void testUnzipParallel() throws IOException
+	{
+		final File zipFile = new File(this.zipDir.getAbsoluteFile(), "testZip.zip");
+		final List<File> testFiles = new ArrayList<>();
+		for (int i = 0; i < 50; i++)
+		{
+			final File directory = i % 2 == 0 ? this.deepDir : this.deeperDir;
+			final File testFile = new File(directory, "testZip" + i + ".txt");
+			StoreFileExtensions.toFile(testFile, "Its a beautifull day number " + i + "!!!");
+			testFiles.add(testFile);
+		}
+		Zipper.builder().directoryToZip(this.testDir).zipFile(zipFile).build().zip();
+
+		final UnZipper unzipper = UnZipper.builder().zipFile(new ZipFile(zipFile))
+			.toDir(this.unzipDir).parallelism(4).build();
+		unzipper.unzip();
+
+		assertEquals(50, unzipper.getEntryCounter());
+		long expectedLength = 0;
+		for (final File testFile : testFiles)
+		{
+			final File unzippedFile = new File(
+				testFile.getParentFile() == this.deepDir ? this.unzipDirDeepDir
+					: this.unzipDirDeeperDir,
+				testFile.getName());
+			assertArrayEquals(Files.readAllBytes(testFile.toPath()),
+				Files.readAllBytes(unzippedFile.toPath()));
+			expectedLength += testFile.length();
+		}
+		assertEquals(expectedLength, unzipper.getExtractedLength());
+		assertTrue(0 < unzipper.getThroughput());
+	}
+
+	/**
+	 * Test method for {@link UnZipper#unzip()} with an executor and without a parallelism
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	@Test
+	public void testUnzipExecutor() throws IOException
+	{
+		final File zipFile = new File(this.zipDir.getAbsoluteFile(), "testZip.zip");
+		for (int i = 0; i < 50; i++)
+		{
+			StoreFileExtensions.toFile(new File(this.deepDir, "testZip" + i + ".txt"),
+				"Its a beautifull day number " + i + "!!!");
+		}
+		Zipper.builder().directoryToZip(this.testDir).zipFile(zipFile).build().zip();
+
+		final AtomicInteger tasks = new AtomicInteger();
+		final ExecutorService executor = new ThreadPoolExecutor(2, 2, 0, TimeUnit.SECONDS,
+			new LinkedBlockingQueue<>())
+		{
+			@Override
+			public void execute(final Runnable command)
+			{
+				tasks.incrementAndGet();
+				super.execute(command);
+			}
+		};
+		try
+		{
+			final UnZipper unzipper = UnZipper.builder().zipFile(new ZipFile(zipFile))
+				.toDir(this.unzipDir).executor(executor).build();
+			unzipper.unzip();
+
+			assertEquals(50, unzipper.getEntryCounter());
+			assertEquals(Math.min(Runtime.getRuntime().availableProcessors(), 50), tasks.get());
+			assertFalse(executor.isShutdown());
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Test method for {@link UnZipper#unzip()} with an executor that the failure of one worker
+	 * stops the other workers before the zip file is closed
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	@Test
+	public void testUnzipExecutorFailure() throws IOException
+	{
+		final File zipFile = new File(this.zipDir.getAbsoluteFile(), "testZip.zip");
+		final byte[] content = new byte[2 * 1024 * 1024];
+		new Random(42).nextBytes(content);
+		try (ZipOutputStream zipOutputStream = new ZipOutputStream(new FileOutputStream(zipFile)))
+		{
+			// the biggest entry is extracted first and fails while the other entries are read
+			zipOutputStream.putNextEntry(new ZipEntry("broken.bin"));
+			zipOutputStream.write(content);
+			zipOutputStream.write(content);
+			for (int i = 0; i < 3; i++)
+			{
+				zipOutputStream.putNextEntry(new ZipEntry("big" + i + ".bin"));
+				zipOutputStream.write(content);
+			}
+		}
+		// a directory in place of the file lets the extraction of this entry fail
+		new File(this.unzipDir, "broken.bin").mkdirs();
+
+		final AtomicInteger openStreams = new AtomicInteger();
+		final AtomicInteger openStreamsOnClose = new AtomicInteger(-1);
+		final ZipFile countingZipFile = new ZipFile(zipFile)
+		{
+			@Override
+			public InputStream getInputStream(final ZipEntry entry) throws IOException
+			{
+				openStreams.incrementAndGet();
+				return new FilterInputStream(super.getInputStream(entry))
+				{
+					@Override
+					public void close() throws IOException
+					{
+						openStreams.decrementAndGet();
+						super.close();
+					}
+				};
+			}
+
+			@Override
+			public void close() throws IOException
+			{
+				openStreamsOnClose.compareAndSet(-1, openStreams.get());
+				super.close();
+			}
+		};
+		final ExecutorService executor = Executors.newFixedThreadPool(2);
+		try
+		{
+			final UnZipper unzipper = UnZipper.builder().zipFile(countingZipFile)
+				.toDir(this.unzipDir).parallelism(2).executor(executor).build();
+			assertThrows(FileNotFoundException.class, unzipper::unzip);
+			assertEquals(0, openStreamsOnClose.get());
+			assertFalse(executor.isShutdown());
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Test method for {@link UnZipper#unzip()} with an {@link EntryFilter}
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	@Test
+	public void testUnzipFiltered() throws IOException
+	{
+		final File zipFile = new File(this.zipDir.getAbsoluteFile(), "testZip.zip");
+		for (int i = 0; i < 10; i++)
+		{
+			final File directory = i % 2 == 0 ? this.deepDir : this.deeperDir;
+			StoreFileExtensions.toFile(new File(directory, "testZip" + i + ".txt"),
+				"Its a beautifull day number " + i + "!!!");
+			StoreFileExtensions.toFile(new File(directory, "testZip" + i + ".xml"),
+				"<day number=\"" + i + "\"/>");
+		}
+		StoreFileExtensions.toFile(new File(this.deeperDir, "testZip10.xml"),
+			"<day number=\"10\" beautifull=\"true\"/>");
+		Zipper.builder().directoryToZip(this.testDir).zipFile(zipFile).build().zip();
+
+		final EntryFilter filter = new EntryFilter().include("testDir/**.xml")
+			.exclude("**/testZip0.*").where(entry -> entry.getSize() < 20);
+		final UnZipper unzipper = UnZipper.builder().zipFile(new ZipFile(zipFile))
+			.toDir(this.unzipDir).filter(filter).build();
+		unzipper.unzip();
+
+		assertEquals(9, unzipper.getEntryCounter());
+		for (int i = 0; i < 10; i++)
+		{
+			final File directory = i % 2 == 0 ? this.unzipDirDeepDir : this.unzipDirDeeperDir;
+			assertFalse(new File(directory, "testZip" + i + ".txt").exists());
+			assertEquals(i != 0, new File(directory, "testZip" + i + ".xml").exists());
+		}
+		assertFalse(new File(this.unzipDirDeeperDir, "testZip10.xml").exists());
+
+		final File parallelDir = new File(this.unzipDir, "parallel");
+		final UnZipper parallel = unzipper.toBuilder().zipFile(new ZipFile(zipFile))
+			.toDir(parallelDir).filter(new EntryFilter().includeRegex(".*testZip[12]\\.txt"))
+			.parallelism(2).build();
+		parallel.unzip();
+		assertEquals(2, parallel.getEntryCounter());
+		assertEquals(new File(this.deepDir, "testZip2.txt").length()
+			+ new File(this.deeperDir, "testZip1.txt").length(), parallel.getExtractedLength());
+	}
+
+	/**
+	 * Test method for {@link UnZipper#unzip()} with a filter on a zip file whose names are
+	 * encoded in CP437 without the UTF-8 flag
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	@Test
+	public void testUnzipFilteredCharset() throws IOException
+	{
+		final Charset charset = Charset.forName("CP437");
+		final File zipFile = new File(this.zipDir.getAbsoluteFile(), "testZip.zip");
+		try (ZipOutputStream zipOutputStream = new ZipOutputStream(
+			new FileOutputStream(zipFile), charset))
+		{
+			zipOutputStream.putNextEntry(new ZipEntry("M\u00fcller.txt"));
+			zipOutputStream.write("Its a beautifull day!!!".getBytes(StandardCharsets.UTF_8));
+			zipOutputStream.putNextEntry(new ZipEntry("M\u00fcller.xml"));
+			zipOutputStream.write("<day/>".getBytes(StandardCharsets.UTF_8));
+		}
+
+		final UnZipper unzipper = UnZipper.builder().zipFile(new ZipFile(zipFile, charset))
+			.toDir(this.unzipDir).filter(new EntryFilter().include("**.txt")).build();
+		unzipper.unzip();
+
+		assertEquals(1, unzipper.getEntryCounter());
+		assertEquals("Its a beautifull day!!!",
+			Files.readString(new File(this.unzipDir, "M\u00fcller.txt").toPath()));
+		assertFalse(new File(this.unzipDir, "M\u00fcller.xml").exists());
+	}
+
+	/**
+	 * Test method for {@link UnZipper#select(ZipFile, EntryFilter)} that only the zip entry of the
+	 * accepted entry is looked up in a large archive
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	@Test
+	public void testSelectLargeArchive() throws IOException
+	{
+		final File zipFile = new File(this.zipDir.getAbsoluteFile(), "testZip.zip");
+		try (ZipOutputStream zipOutputStream = new ZipOutputStream(new FileOutputStream(zipFile)))
+		{
+			for (int i = 0; i < 20000; i++)
+			{
+				zipOutputStream.putNextEntry(
+					new ZipEntry("dir" + i % 100 + "/entry" + i + (i == 12345 ? ".txt" : ".bin")));
+				zipOutputStream.write(("content " + i).getBytes(StandardCharsets.UTF_8));
+			}
+		}
+		final List<String> lookups = new ArrayList<>();
+		try (ZipFile countingZipFile = new ZipFile(zipFile)
+		{
+			@Override
+			public ZipEntry getEntry(final String name)
+			{
+				lookups.add(name);
+				return super.getEntry(name);
+			}
+
+			@Override
+			public Stream<? extends ZipEntry> stream()
+			{
+				throw new AssertionError("The entries of the zip file are listed");
+			}
+		})
+		{
+			final List<ZipEntry> entries = UnZipper.select(countingZipFile,
+				new EntryFilter().include("**.txt"));
+			assertEquals(1, entries.size());
+			assertEquals("dir45/entry12345.txt", entries.get(0).getName());
+			assertEquals(List.of("dir45/entry12345.txt"), lookups);
+		}
+	}
+
+	/**
+	 * Test method for {@link UnZipper#unzip()} in sync mode
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	@Test
+	public void testUnzipSync() throws IOException
+	{
+		final File zipFile = new File(this.zipDir.getAbsoluteFile(), "testZip.zip");
+		final File syncCache = new File(this.zipDir.getAbsoluteFile(), "testZip.crc");
+		for (int i = 0; i < 5; i++)
+		{
+			StoreFileExtensions.toFile(new File(this.deepDir, "testZip" + i + ".txt"),
+				"Its a beautifull day number " + i + "!!!");
+		}
+		Zipper.builder().directoryToZip(this.testDir).zipFile(zipFile).build().zip();
+		final UnZipper unzipper = UnZipper.builder().toDir(this.unzipDir).sync(true)
+			.syncCache(syncCache).deleteStale(true).build();
+
+		unzipper.unzip(new ZipFile(zipFile), this.unzipDir);
+		assertEquals(5, unzipper.getEntryCounter());
+		assertTrue(syncCache.exists());
+		final SyncCache cache = SyncCache.read(syncCache);
+		try (ZipFile zf = new ZipFile(zipFile))
+		{
+			for (final ZipEntry entry : Collections.list(zf.entries()))
+			{
+				assertEquals(entry.getCrc(),
+					cache.getCrc(entry.getName(), new File(this.unzipDir, entry.getName())));
+			}
+		}
+		unzipper.unzip(new ZipFile(zipFile), this.unzipDir);
+		assertEquals(0, unzipper.getEntryCounter());
+		assertEquals(0, unzipper.getExtractedLength());
+
+		// same length, so only the checksum comparison detects the change
+		final File changedFile = new File(this.deepDir, "testZip1.txt");
+		final File extractedFile = new File(this.unzipDirDeepDir, changedFile.getName());
+		StoreFileExtensions.toFile(changedFile, "Its a wonderfull day number 1!!!");
+		assertEquals(extractedFile.length(), changedFile.length());
+		zipFile.delete();
+		Zipper.builder().directoryToZip(this.testDir).zipFile(zipFile).build().zip();
+		final File staleFile = new File(this.unzipDirDeepDir, "testZipStale.txt");
+		StoreFileExtensions.toFile(staleFile, "Its a stale day!!!");
+
+		unzipper.unzip(new ZipFile(zipFile), this.unzipDir);
+		assertEquals(1, unzipper.getEntryCounter());
+		assertEquals(changedFile.length(), unzipper.getExtractedLength());
+		assertArrayEquals(Files.readAllBytes(changedFile.toPath()),
+			Files.readAllBytes(extractedFile.toPath()));
+		assertFalse(staleFile.exists());
+		for (int i = 0; i < 5; i++)
+		{
+			assertTrue(new File(this.unzipDirDeepDir, "testZip" + i + ".txt").exists());
+		}
+
+		// a same length change that keeps the modification time is not seen with the cache,
+		// which proves that the checksum is read from the cache instead of the file
+		final long lastModified = extractedFile.lastModified();
+		StoreFileExtensions.toFile(extractedFile, "Its a beautifull day number 1!!!");
+		assertTrue(extractedFile.setLastModified(lastModified));
+		unzipper.unzip(new ZipFile(zipFile), this.unzipDir);
+		assertEquals(0, unzipper.getEntryCounter());
+
+		// without the cache the checksum is computed from the file and the change is repaired
+		assertTrue(syncCache.delete());
+		unzipper.unzip(new ZipFile(zipFile), this.unzipDir);
+		assertEquals(1, unzipper.getEntryCounter());
+		assertArrayEquals(Files.readAllBytes(changedFile.toPath()),
+			Files.readAllBytes(extractedFile.toPath()));
+	}
+
+	/**
+	 * Test method for {@link UnZipper#unzip(ZipFile, File)} that deletes the stale files in
+	 * nested directories and keeps the extracted ones
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	@Test
+	public void testUnzipDeleteStaleNested() throws IOException
+	{
+		final File zipFile = new File(this.zipDir.getAbsoluteFile(), "testZip.zip");
+		try (ZipOutputStream zipOutputStream = new ZipOutputStream(new FileOutputStream(zipFile)))
+		{
+			zipOutputStream.putNextEntry(new ZipEntry("outer/"));
+			zipOutputStream.putNextEntry(new ZipEntry("outer/inner/"));
+			zipOutputStream.putNextEntry(new ZipEntry("outer/inner/testZip1.txt"));
+			zipOutputStream.write("Its a beautifull day!!!".getBytes(StandardCharsets.UTF_8));
+			zipOutputStream.putNextEntry(new ZipEntry("outer/inner/deepest/testZip2.txt"));
+			zipOutputStream.write("Its a deep day!!!".getBytes(StandardCharsets.UTF_8));
+		}
+		final File inner = new File(new File(this.unzipDir, "outer"), "inner");
+		final File staleFile = new File(inner, "testZipStale.txt");
+		final File staleDir = new File(new File(inner, "stale"), "staler");
+		StoreFileExtensions.toFile(staleFile, "Its a stale day!!!");
+		assertTrue(staleDir.mkdirs());
+
+		final UnZipper unzipper = UnZipper.builder().toDir(this.unzipDir).sync(true)
+			.deleteStale(true).build();
+		unzipper.unzip(new ZipFile(zipFile), this.unzipDir);
+
+		assertEquals("Its a beautifull day!!!",
+			Files.readString(new File(inner, "testZip1.txt").toPath()));
+		assertEquals("Its a deep day!!!",
+			Files.readString(new File(new File(inner, "deepest"), "testZip2.txt").toPath()));
+		assertFalse(staleFile.exists());
+		assertFalse(staleDir.getParentFile().exists());
+
+		// the second run finds every nested file unchanged and deletes none of them
+		unzipper.unzip(new ZipFile(zipFile), this.unzipDir);
+		assertEquals(0, unzipper.getEntryCounter());
+		assertTrue(new File(inner, "testZip1.txt").exists());
+		assertTrue(new File(new File(inner, "deepest"), "testZip2.txt").exists());
+	}
+
+	/**
+	 * Test method for {@link UnZipper#unzipAsync(java.util.concurrent.Executor)}.
+	 *
+	 * @throws Exception
+	 *             catch all exception
+	 */
+	@Test
+	public void testUnzipAsync() throws Exception
+	{
+		final File zipFile = new File(this.zipDir.getAbsoluteFile(), "testZip.zip");
+		final File testFile = new File(this.deepDir, "testZip1.txt");
+		StoreFileExtensions.toFile(testFile, "Its a beautifull day!!!");
+		Zipper.builder().directoryToZip(this.testDir).zipFile(zipFile).build().zip();
+
+		final UnZipper unzipper = UnZipper.builder().zipFile(new ZipFile(zipFile))
+			.toDir(this.unzipDir).build();
+		final CompletableFuture<Long> future = unzipper.unzipAsync(ForkJoinPool.commonPool());
+		assertEquals(testFile.length(), future.get().longValue());
+		assertArrayEquals(Files.readAllBytes(testFile.toPath()),
+			Files.readAllBytes(new File(this.unzipDirDeepDir, testFile.getName()).toPath()));
+
+		// cancel before the task runs, so the extraction stops before the first entry
+		final File cancelledDir = new File(this.unzipDir, "cancelled");
+		final List<Runnable> tasks = new ArrayList<>();
+		final CompletableFuture<Long> cancelled = unzipper.toBuilder()
+			.zipFile(new ZipFile(zipFile)).toDir(cancelledDir).build().unzipAsync(tasks::add);
+		assertTrue(cancelled.cancel(true));
+		tasks.forEach(Runnable::run);
+		assertTrue(cancelled.isCancelled());
+		assertFalse(new File(cancelledDir, "testDir" + File.separator + "deepDir"
+			+ File.separator + testFile.getName()).exists());
+	}
+
+	/**
+	 * Test method for {@link UnZipper#unzipAsync(java.util.concurrent.Executor)} that is cancelled
+	 * while an entry is extracted
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	@Test
+	public void testUnzipAsyncCancelled() throws IOException
+	{
+		final File zipFile = new File(this.zipDir.getAbsoluteFile(), "testZip.zip");
+		final byte[] content = new byte[1024 * 1024];
+		new Random(42).nextBytes(content);
+		try (ZipOutputStream zipOutputStream = new ZipOutputStream(new FileOutputStream(zipFile)))
+		{
+			zipOutputStream.putNextEntry(new ZipEntry("big.bin"));
+			zipOutputStream.write(content);
+		}
+		final File extractedFile = new File(this.unzipDir, "big.bin");
+
+		// cancel after the first bytes of the entry are read
+		final List<CompletableFuture<Long>> futures = new ArrayList<>();
+		final ZipFile cancellingZipFile = new ZipFile(zipFile)
+		{
+			@Override
+			public InputStream getInputStream(final ZipEntry entry) throws IOException
+			{
+				return new FilterInputStream(super.getInputStream(entry))
+				{
+					@Override
+					public int read(final byte[] b, final int off, final int len)
+						throws IOException
+					{
+						futures.forEach(future -> future.cancel(true));
+						return super.read(b, off, len);
+					}
+				};
+			}
+		};
+		final List<Runnable> tasks = new ArrayList<>();
+		futures.add(UnZipper.builder().zipFile(cancellingZipFile).toDir(this.unzipDir).build()
+			.unzipAsync(tasks::add));
+		tasks.forEach(Runnable::run);
+		assertThrows(CancellationException.class, futures.get(0)::get);
+		assertFalse(extractedFile.exists());
+
+		// cancel after the first bytes of the entry are written
+		try (ZipFile zf = new ZipFile(zipFile))
+		{
+			assertThrows(CancellationException.class,
+				() -> ZipExtensions.extractFile(zf, zf.getEntry("big.bin"), extractedFile,
+					new byte[8192], () -> 0 < extractedFile.length()));
+		}
+		assertFalse(extractedFile.exists());
+	}
+
 }
@@ -24,19 +24,31 @@
  */
 package io.github.astrapi69.zip;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 import java.io.File;
 import java.io.FilenameFilter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Base64;
+import java.util.List;
+import java.util.Random;
 import java.util.Set;
+import java.util.function.UnaryOperator;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
 import java.util.zip.ZipFile;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
 import org.meanbean.test.BeanTester;
 
 import io.github.astrapi69.file.create.DirectoryFactory;
@@ -80,6 +92,61 @@ public class ZipExtensionsTest extends ZipTestCase
 		super.tearDown();
 	}
 
+	/**
+	 * Test method for {@link ZipExtensions#copyEntries(File, List, EntryFilter, UnaryOperator)}
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	@Test
+	public void testCopyEntries() throws IOException
+	{
+		final File shard1 = new File(this.zipDir.getAbsoluteFile(), "testShard1.zip");
+		final File shard2 = new File(this.zipDir.getAbsoluteFile(), "testShard2.zip");
+		final File merged = new File(this.zipDir.getAbsoluteFile(), "testMerged.zip");
+		final File testFile1 = new File(this.testDir.getAbsoluteFile(), "testZip1.txt");
+		final File testFile2 = new File(this.testDir.getAbsoluteFile(), "testZip2.log");
+		final File testFile3 = new File(this.secondTestDir.getAbsoluteFile(), "testZip3.txt");
+		StoreFileExtensions.toFile(testFile1, "Its a beautifull day!!!");
+		StoreFileExtensions.toFile(testFile2, "Its a beautifull log!!!");
+		StoreFileExtensions.toFile(testFile3, "Its a beautifull evening!!!");
+		Zipper.builder().directoryToZip(this.testDir).zipFile(shard1).build().zip();
+		Zipper.builder().directoryToZip(this.secondTestDir).zipFile(shard2).parallelism(2)
+			.build().zip();
+
+		final int count = ZipExtensions.copyEntries(merged, List.of(shard1, shard2),
+			new EntryFilter().include("**.txt"), name -> "merged/" + name);
+		assertEquals(2, count);
+		try (ZipFile source = new ZipFile(shard1); ZipFile zf = new ZipFile(merged))
+		{
+			assertEquals(2, zf.size());
+			final String name = "testDir" + File.separator + testFile1.getName();
+			final ZipEntry sourceEntry = source.getEntry(name);
+			final ZipEntry entry = zf.getEntry("merged/" + name);
+			assertEquals(sourceEntry.getCrc(), entry.getCrc());
+			assertEquals(sourceEntry.getCompressedSize(), entry.getCompressedSize());
+			try (InputStream inputStream = zf.getInputStream(entry))
+			{
+				assertArrayEquals(Files.readAllBytes(testFile1.toPath()),
+					inputStream.readAllBytes());
+			}
+			try (InputStream inputStream = zf.getInputStream(zf.getEntry("merged/"
+				+ "secondTestDir" + File.separator + testFile3.getName())))
+			{
+				assertArrayEquals(Files.readAllBytes(testFile3.toPath()),
+					inputStream.readAllBytes());
+			}
+		}
+		final byte[] mergedBytes = Files.readAllBytes(merged.toPath());
+		assertThrows(ZipException.class,
+			() -> ZipExtensions.copyEntries(merged, List.of(shard1, shard1)));
+		assertArrayEquals(mergedBytes, Files.readAllBytes(merged.toPath()));
+		assertEquals(2, ZipExtensions.copyEntries(merged, List.of(merged)));
+		assertArrayEquals(mergedBytes, Files.readAllBytes(merged.toPath()));
+		assertEquals(0, this.zipDir.getAbsoluteFile().listFiles(
+			(dir, fileName) -> fileName.endsWith(".tmp")).length);
+	}
+
 	/**
 	 * Test method for {@link ZipExtensions#extractZipEntry(ZipFile, ZipEntry, File)}
 	 *
@@ -415,4 +482,69 @@ public class ZipExtensionsTest extends ZipTestCase
 
 	}
 
+	/**
+	 * Benchmark for {@link ZipExtensions#unzip(ZipFile, File)} that compares the throughput with
+	 * the command <code>unzip -q</code>. The benchmark runs only if the system property
+	 * <code>zip.benchmark</code> is set to true and the command <code>unzip</code> is available.
+	 *
+	 * @throws Exception
+	 *             catch all exception and throw
+	 */
+	@Test
+	@EnabledIfSystemProperty(named = "zip.benchmark", matches = "true")
+	public void testUnzipThroughputComparedToUnzipCommand() throws Exception
+	{
+		assumeTrue(execute("unzip", "-v"), "The command unzip is not available");
+		final Random random = new Random(42);
+		for (int i = 0; i < 4000; i++)
+		{
+			final File directory = new File(this.testDir, "dir" + (i % 40));
+			directory.mkdirs();
+			final byte[] content = new byte[256 + random.nextInt(2048)];
+			random.nextBytes(content);
+			Files.write(new File(directory, "small" + i + ".txt").toPath(),
+				Base64.getEncoder().encode(content));
+		}
+		for (int i = 0; i < 4; i++)
+		{
+			final byte[] content = new byte[16 * 1024 * 1024];
+			random.nextBytes(content);
+			Files.write(new File(this.testDir, "big" + i + ".bin").toPath(), content);
+		}
+		final File zipFile = new File(this.zipDir, "testUnzipThroughput.zip");
+		Zipper.builder().directoryToZip(this.testDir).zipFile(zipFile).zipLevel(1).build().zip();
+
+		long javaNanos = Long.MAX_VALUE;
+		long commandNanos = Long.MAX_VALUE;
+		for (int i = 0; i < 3; i++)
+		{
+			final File javaDir = new File(this.unzipDir, "java" + i);
+			long start = System.nanoTime();
+			ZipExtensions.unzip(new ZipFile(zipFile), javaDir);
+			javaNanos = Math.min(javaNanos, System.nanoTime() - start);
+
+			final File commandDir = new File(this.unzipDir, "command" + i);
+			start = System.nanoTime();
+			assertTrue(execute("unzip", "-q", "-o", zipFile.getAbsolutePath(), "-d",
+				commandDir.getAbsolutePath()));
+			commandNanos = Math.min(commandNanos, System.nanoTime() - start);
+		}
+		assertTrue(javaNanos <= 2 * commandNanos, "unzip needs " + javaNanos / 1_000_000
+			+ " ms and unzip -q needs " + commandNanos / 1_000_000 + " ms");
+	}
+
+	private static boolean execute(final String... command) throws InterruptedException
+	{
+		try
+		{
+			final Process process = new ProcessBuilder(command).redirectErrorStream(true)
+				.redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+			return process.waitFor() == 0;
+		}
+		catch (IOException e)
+		{
+			return false;
+		}
+	}
+
 }
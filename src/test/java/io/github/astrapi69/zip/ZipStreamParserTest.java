@@ -0,0 +1,155 @@
+/**
+ * The MIT License
+ *
+ * Copyright (C) 2015 Asterios Raptis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.astrapi69.zip;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * The unit test class for the class {@link ZipStreamParser}
+ */
+public class ZipStreamParserTest extends ZipTestCase
+{
+
+	/**
+	 * Test method for {@link ZipStreamParser#feed(ByteBuffer)} with chunks of random size
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	@Test
+	public void testFeed() throws IOException
+	{
+		final Random random = new Random(5);
+		final Map<String, byte[]> expected = new LinkedHashMap<>();
+		final ByteArrayOutputStream archive = new ByteArrayOutputStream();
+		try (ZipOutputStream zos = new ZipOutputStream(archive))
+		{
+			for (int i = 0; i < 20; i++)
+			{
+				final byte[] content = new byte[random.nextInt(50000)];
+				final ZipEntry entry = new ZipEntry("testDir/testZip" + i + ".bin");
+				if (i % 2 == 0)
+				{
+					random.nextBytes(content);
+					final CRC32 crc = new CRC32();
+					crc.update(content);
+					entry.setMethod(ZipEntry.STORED);
+					entry.setSize(content.length);
+					entry.setCompressedSize(content.length);
+					entry.setCrc(crc.getValue());
+				}
+				else
+				{
+					for (int j = 0; j < content.length; j++)
+					{
+						content[j] = (byte)('a' + random.nextInt(4));
+					}
+				}
+				zos.putNextEntry(entry);
+				zos.write(content);
+				zos.closeEntry();
+				expected.put(entry.getName(), content);
+			}
+		}
+		final byte[] bytes = archive.toByteArray();
+
+		final Map<String, byte[]> actual = new LinkedHashMap<>();
+		final ZipStreamParser parser = new ZipStreamParser(new ZipStreamParser.Listener()
+		{
+			private final ByteArrayOutputStream content = new ByteArrayOutputStream();
+
+			@Override
+			public void entryData(final ZipEntry entry, final ByteBuffer data)
+			{
+				while (data.hasRemaining())
+				{
+					content.write(data.get());
+				}
+			}
+
+			@Override
+			public void entryFinished(final ZipEntry entry)
+			{
+				actual.put(entry.getName(), content.toByteArray());
+				content.reset();
+			}
+		});
+		for (int position = 0; position < bytes.length;)
+		{
+			final int length = Math.min(bytes.length - position, 1 + random.nextInt(1000));
+			parser.feed(ByteBuffer.wrap(bytes, position, length));
+			position += length;
+		}
+		assertTrue(parser.isFinished());
+		parser.finish();
+		assertEquals(expected.keySet(), actual.keySet());
+		for (final Map.Entry<String, byte[]> entry : expected.entrySet())
+		{
+			assertArrayEquals(entry.getValue(), actual.get(entry.getKey()));
+		}
+	}
+
+	/**
+	 * Test method for {@link ZipStreamParser#extractTo(File)}
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	@Test
+	public void testExtractTo() throws IOException
+	{
+		final File zipFile = new File(this.zipDir.getAbsoluteFile(), "testZipStreamParser.zip");
+		final File testFile = new File(this.deepDir.getAbsoluteFile(), "testZip1.bin");
+		final byte[] expected = new byte[100 * 1024];
+		new Random(42).nextBytes(expected);
+		Files.write(testFile.toPath(), expected);
+		assertFalse(Zipper.builder().directoryToZip(this.testDir).zipFile(zipFile).build().zip()
+			.isPresent());
+
+		final ZipStreamParser parser = new ZipStreamParser(
+			ZipStreamParser.extractTo(this.unzipDir));
+		parser.feed(ByteBuffer.wrap(Files.readAllBytes(zipFile.toPath())));
+		parser.finish();
+		assertArrayEquals(expected,
+			Files.readAllBytes(new File(this.unzipDirDeepDir, "testZip1.bin").toPath()));
+	}
+}
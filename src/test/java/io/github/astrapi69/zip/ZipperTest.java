@@ -24,11 +24,29 @@
  */
 package io.github.astrapi69.zip;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.File;
 import java.io.FilenameFilter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
 import org.junit.jupiter.api.AfterEach;
@@ -110,6 +128,15 @@ public class ZipperTest extends ZipTestCase
 					}
 					return zipFile;
 				}
+			}).overrideFactory("listener", new Factory<ZipListener>()
+			{
+
+				@Override
+				public ZipListener create()
+				{
+					return metrics -> {
+					};
+				}
 			}).overrideFactory("zipFile", new FileFactory())
 			.overrideFactory("directoryToZip", new FileFactory()).build();
 		final BeanTester beanTester = new BeanTester();
@@ -248,4 +275,601 @@ public class ZipperTest extends ZipTestCase
 
 	}
 
+	/**
+	 * Test method for {@link Zipper#zip()} that checks that the content of the files is streamed
+	 * into the zip archive
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	@Test
+	public void testZipContent() throws IOException
+	{
+		final File zipFile = new File(this.zipDir.getAbsoluteFile(), "testZipContent.zip");
+		if (!zipFile.exists())
+		{
+			zipFile.createNewFile();
+		}
+		final File testFile1 = new File(this.testDir.getAbsoluteFile(), "testZip1.txt");
+		final File testFile2 = new File(this.deepDir.getAbsoluteFile(), "testZip2.bin");
+		StoreFileExtensions.toFile(testFile1, "Its a beautifull day!!!");
+		final byte[] expected = new byte[3 * ZipExtensions.DEFAULT_BUFFER_SIZE + 17];
+		new Random(42).nextBytes(expected);
+		Files.write(testFile2.toPath(), expected);
+
+		final Zipper zipper = Zipper.builder().directoryToZip(this.testDir).zipFile(zipFile)
+			.bufferSize(1024).build();
+		assertFalse(zipper.zip().isPresent());
+		assertEquals(2, zipper.getFileCounter());
+		assertEquals(testFile1.length() + testFile2.length(), zipper.getFileLength());
+
+		try (ZipFile zf = new ZipFile(zipFile))
+		{
+			final ZipEntry entry = zf.getEntry("testDir" + File.separator + "deepDir"
+				+ File.separator + "testZip2.bin");
+			assertNotNull(entry);
+			try (InputStream inputStream = zf.getInputStream(entry))
+			{
+				assertArrayEquals(expected, inputStream.readAllBytes());
+			}
+		}
+	}
+
+	/**
+	 * Test method for {@link Zipper#zip()} with parallel compression
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	@Test
+	public void testZipParallel() throws IOException
+	{
+		final File zipFile = new File(this.zipDir.getAbsoluteFile(), "testZipParallel.zip");
+		final File otherZipFile = new File(this.zipDir.getAbsoluteFile(),
+			"testZipParallelOther.zip");
+		final File testFile1 = new File(this.testDir.getAbsoluteFile(), "testZip1.txt");
+		final File testFile2 = new File(this.deepDir.getAbsoluteFile(), "testZip2.bin");
+		final File testFile3 = new File(this.deeperDir.getAbsoluteFile(), "testZip3.txt");
+		StoreFileExtensions.toFile(testFile1, "Its a beautifull day!!!");
+		final byte[] expected = new byte[300 * 1024 + 17];
+		new Random(42).nextBytes(expected);
+		Files.write(testFile2.toPath(), expected);
+		final StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 20000; i++)
+		{
+			text.append("Its a beautifull line ").append(i).append("!!!\n");
+		}
+		StoreFileExtensions.toFile(testFile3, text.toString());
+
+		final Zipper zipper = Zipper.builder().directoryToZip(this.testDir).zipFile(zipFile)
+			.parallelism(4).blockSize(64 * 1024).zipFileComment("parallel").build();
+		assertFalse(zipper.zip().isPresent());
+		assertEquals(3, zipper.getFileCounter());
+
+		try (ZipFile zf = new ZipFile(zipFile))
+		{
+			assertEquals("parallel", zf.getComment());
+			assertEquals(3, zf.size());
+			final ZipEntry entry = zf.getEntry("testDir" + File.separator + "deepDir"
+				+ File.separator + "testZip2.bin");
+			try (InputStream inputStream = zf.getInputStream(entry))
+			{
+				assertArrayEquals(expected, inputStream.readAllBytes());
+			}
+			final ZipEntry textEntry = zf.getEntry("testDir" + File.separator + "deepDir"
+				+ File.separator + "deeperDir" + File.separator + "testZip3.txt");
+			try (InputStream inputStream = zf.getInputStream(textEntry))
+			{
+				assertEquals(text.toString(), new String(inputStream.readAllBytes()));
+			}
+		}
+
+		zipper.toBuilder().zipFile(otherZipFile).parallelism(2).build().zip();
+		assertArrayEquals(Files.readAllBytes(zipFile.toPath()),
+			Files.readAllBytes(otherZipFile.toPath()));
+	}
+
+	/**
+	 * Test method for {@link Zipper#zip()} with an {@link AdaptiveCompressionPolicy}
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	@Test
+	public void testZipCompressionPolicy() throws IOException
+	{
+		final File zipFile = new File(this.zipDir.getAbsoluteFile(), "testZipPolicy.zip");
+		final File testFile1 = new File(this.testDir.getAbsoluteFile(), "testZip1.txt");
+		final File testFile2 = new File(this.deepDir.getAbsoluteFile(), "testZip2.bin");
+		final StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 5000; i++)
+		{
+			text.append("Its a beautifull line ").append(i).append("!!!\n");
+		}
+		StoreFileExtensions.toFile(testFile1, text.toString());
+		final byte[] expected = new byte[100 * 1024];
+		new Random(42).nextBytes(expected);
+		Files.write(testFile2.toPath(), expected);
+
+		for (final int parallelism : new int[] { 1, 2, 3 })
+		{
+			// with three threads the blocks are smaller than the sample of the policy
+			final Zipper zipper = Zipper.builder().directoryToZip(this.testDir).zipFile(zipFile)
+				.parallelism(parallelism).compressionPolicy(new AdaptiveCompressionPolicy())
+				.blockSize(parallelism < 3 ? ParallelZipper.DEFAULT_BLOCK_SIZE : 32 * 1024)
+				.build();
+			assertFalse(zipper.zip().isPresent());
+			try (ZipFile zf = new ZipFile(zipFile))
+			{
+				final ZipEntry binaryEntry = zf.getEntry("testDir" + File.separator + "deepDir"
+					+ File.separator + "testZip2.bin");
+				assertEquals(ZipEntry.STORED, binaryEntry.getMethod());
+				try (InputStream inputStream = zf.getInputStream(binaryEntry))
+				{
+					assertArrayEquals(expected, inputStream.readAllBytes());
+				}
+				final ZipEntry textEntry = zf.getEntry("testDir" + File.separator + "testZip1.txt");
+				assertEquals(ZipEntry.DEFLATED, textEntry.getMethod());
+				try (InputStream inputStream = zf.getInputStream(textEntry))
+				{
+					assertEquals(text.toString(), new String(inputStream.readAllBytes()));
+				}
+			}
+		}
+
+		for (final int parallelism : new int[] { 1, 2 })
+		{
+			final Zipper zipper = Zipper.builder().directoryToZip(this.testDir).zipFile(zipFile)
+				.parallelism(parallelism).compressionPolicy((file, sample, length) -> 10)
+				.build();
+			assertEquals(Optional.of(ZipErrorCodes.IO_ERROR), zipper.zip());
+		}
+	}
+
+	/**
+	 * Test method for {@link Zipper#zip()} with the {@link StoredFileTypes#defaults()}
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	@Test
+	public void testZipStoredFileTypes() throws IOException
+	{
+		final File zipFile = new File(this.zipDir.getAbsoluteFile(), "testZipStoredTypes.zip");
+		final File testFile1 = new File(this.testDir.getAbsoluteFile(), "testZip1.txt");
+		final File testFile2 = new File(this.deepDir.getAbsoluteFile(), "testZip2.ZIP");
+		final File testFile3 = new File(this.deepDir.getAbsoluteFile(), "testZip3.bin");
+		final StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 1000; i++)
+		{
+			text.append("Its a beautifull line ").append(i).append("!!!\n");
+		}
+		StoreFileExtensions.toFile(testFile1, text.toString());
+		StoreFileExtensions.toFile(testFile2, text.toString());
+		final byte[] gzipContent = ("  " + text).getBytes();
+		gzipContent[0] = 0x1f;
+		gzipContent[1] = (byte)0x8b;
+		Files.write(testFile3.toPath(), gzipContent);
+		final String directoryName = "testDir" + File.separator + "deepDir" + File.separator;
+
+		for (final int parallelism : new int[] { 1, 2 })
+		{
+			final Zipper zipper = Zipper.builder().directoryToZip(this.testDir).zipFile(zipFile)
+				.parallelism(parallelism).storedFileTypes(StoredFileTypes.defaults()).build();
+			assertFalse(zipper.zip().isPresent());
+			try (ZipFile zf = new ZipFile(zipFile))
+			{
+				assertEquals(ZipEntry.DEFLATED,
+					zf.getEntry("testDir" + File.separator + "testZip1.txt").getMethod());
+				assertEquals(ZipEntry.STORED,
+					zf.getEntry(directoryName + "testZip2.ZIP").getMethod());
+				final ZipEntry entry = zf.getEntry(directoryName + "testZip3.bin");
+				assertEquals(ZipEntry.STORED, entry.getMethod());
+				try (InputStream inputStream = zf.getInputStream(entry))
+				{
+					assertArrayEquals(Files.readAllBytes(testFile3.toPath()),
+						inputStream.readAllBytes());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Test method for {@link Zipper#zip()} in update mode
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	@Test
+	public void testZipUpdate() throws IOException
+	{
+		final File zipFile = new File(this.zipDir.getAbsoluteFile(), "testZipUpdate.zip");
+		final File testFile1 = new File(this.testDir.getAbsoluteFile(), "testZip1.txt");
+		final File testFile2 = new File(this.deepDir.getAbsoluteFile(), "testZip2.txt");
+		final File testFile3 = new File(this.deepDir.getAbsoluteFile(), "testZip3.txt");
+		StoreFileExtensions.toFile(testFile1, "Its a beautifull day!!!");
+		StoreFileExtensions.toFile(testFile2, "Its a beautifull evening!!!");
+		final Zipper zipper = Zipper.builder().directoryToZip(this.testDir).zipFile(zipFile)
+			.update(true).build();
+		assertFalse(zipper.zip().isPresent());
+		assertEquals(2, zipper.getMetrics().getEntryCount());
+		final byte[] zipped = Files.readAllBytes(zipFile.toPath());
+		final int offset;
+		try (CentralDirectory directory = CentralDirectory.open(zipFile))
+		{
+			offset = (int)directory.getOffset();
+		}
+		final String directoryName = "testDir" + File.separator + "deepDir" + File.separator;
+
+		// a new file is appended in place behind the entries of the zip file
+		StoreFileExtensions.toFile(testFile3, "Its a beautifull night!!!");
+		final Zipper appender = zipper.toBuilder().build();
+		assertFalse(appender.zip().isPresent());
+		assertEquals(1, appender.getMetrics().getEntryCount());
+		try (ZipFile zf = new ZipFile(zipFile))
+		{
+			assertEquals(3, zf.size());
+			assertNotNull(zf.getEntry(directoryName + "testZip3.txt"));
+		}
+		assertArrayEquals(Arrays.copyOf(zipped, offset),
+			Arrays.copyOf(Files.readAllBytes(zipFile.toPath()), offset));
+
+		// a changed file replaces its entry, the other entries are copied as they are
+		StoreFileExtensions.toFile(testFile2, "Its a rainy evening!!!");
+		final Zipper replacer = zipper.toBuilder().build();
+		assertFalse(replacer.zip().isPresent());
+		assertEquals(1, replacer.getMetrics().getEntryCount());
+		try (ZipFile zf = new ZipFile(zipFile))
+		{
+			assertEquals(3, zf.size());
+			for (final File testFile : new File[] { testFile1, testFile2, testFile3 })
+			{
+				final String name = testFile == testFile1
+					? "testDir" + File.separator + testFile.getName()
+					: directoryName + testFile.getName();
+				try (InputStream inputStream = zf.getInputStream(zf.getEntry(name)))
+				{
+					assertArrayEquals(Files.readAllBytes(testFile.toPath()),
+						inputStream.readAllBytes());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Test method for {@link Zipper#zip()} with the compression method {@link ZipEntry#STORED}
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	@Test
+	public void testZipStored() throws IOException
+	{
+		final File zipFile = new File(this.zipDir.getAbsoluteFile(), "testZipStored.zip");
+		final File testFile1 = new File(this.testDir.getAbsoluteFile(), "testZip1.txt");
+		final File testFile2 = new File(this.deepDir.getAbsoluteFile(), "testZip2.bin");
+		final File testFile3 = new File(this.deeperDir.getAbsoluteFile(), "testZip3.bin");
+		StoreFileExtensions.toFile(testFile1, "Its a beautifull day!!!");
+		final byte[] expected = new byte[300 * 1024 + 17];
+		new Random(42).nextBytes(expected);
+		Files.write(testFile2.toPath(), expected);
+		Files.write(testFile3.toPath(), new byte[0]);
+
+		final Zipper zipper = Zipper.builder().directoryToZip(this.testDir).zipFile(zipFile)
+			.compressionMethod(ZipEntry.STORED).bufferSize(4096).zipFileComment("stored")
+			.build();
+		assertFalse(zipper.zip().isPresent());
+		assertEquals(3, zipper.getFileCounter());
+		assertEquals(expected.length + 23, zipper.getMetrics().getTotalBytesOut());
+
+		try (ZipFile zf = new ZipFile(zipFile))
+		{
+			assertEquals("stored", zf.getComment());
+			assertEquals(3, zf.size());
+			final ZipEntry entry = zf.getEntry("testDir" + File.separator + "deepDir"
+				+ File.separator + "testZip2.bin");
+			assertEquals(ZipEntry.STORED, entry.getMethod());
+			assertEquals(expected.length, entry.getCompressedSize());
+			try (InputStream inputStream = zf.getInputStream(entry))
+			{
+				assertArrayEquals(expected, inputStream.readAllBytes());
+			}
+		}
+	}
+
+	/**
+	 * Test method for {@link Zipper#zip()} that the compression method 0 is
+	 * {@link ZipEntry#STORED} and not an unset compression method
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	@Test
+	public void testZipCompressionMethod() throws IOException
+	{
+		final File zipFile = new File(this.zipDir.getAbsoluteFile(), "testZipMethod.zip");
+		final File testFile1 = new File(this.testDir.getAbsoluteFile(), "testZip1.txt");
+		StoreFileExtensions.toFile(testFile1, "Its a beautifull day!!!");
+		final String name = "testDir" + File.separator + testFile1.getName();
+
+		final Zipper constructed = new Zipper(0, this.testDir, null, 0, null, 0, zipFile, null,
+			null, null, -1);
+		assertFalse(constructed.zip().isPresent());
+		try (ZipFile zf = new ZipFile(zipFile))
+		{
+			assertEquals(ZipEntry.STORED, zf.getEntry(name).getMethod());
+		}
+
+		final Zipper zipper = Zipper.builder().directoryToZip(this.testDir).zipFile(zipFile)
+			.build();
+		assertEquals(-1, zipper.getCompressionMethod());
+		for (final int compressionMethod : new int[] { -1, ZipEntry.DEFLATED, 0 })
+		{
+			zipper.setCompressionMethod(compressionMethod);
+			assertFalse(zipper.zip().isPresent());
+			try (ZipFile zf = new ZipFile(zipFile))
+			{
+				assertEquals(compressionMethod == 0 ? ZipEntry.STORED : ZipEntry.DEFLATED,
+					zf.getEntry(name).getMethod());
+			}
+		}
+	}
+
+	/**
+	 * Test method for {@link Zipper#zip()} with the read, compress and write pipeline
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	@Test
+	public void testZipPipelined() throws IOException
+	{
+		final File zipFile = new File(this.zipDir.getAbsoluteFile(), "testZipPipelined.zip");
+		final File otherZipFile = new File(this.zipDir.getAbsoluteFile(),
+			"testZipPipelinedOther.zip");
+		final File testFile1 = new File(this.testDir.getAbsoluteFile(), "testZip1.bin");
+		final File testFile2 = new File(this.deepDir.getAbsoluteFile(), "testZip2.txt");
+		final byte[] expected = new byte[500 * 1024 + 3];
+		new Random(7).nextBytes(expected);
+		Files.write(testFile1.toPath(), expected);
+		final StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 30000; i++)
+		{
+			text.append("Its a beautifull line ").append(i).append("!!!\n");
+		}
+		StoreFileExtensions.toFile(testFile2, text.toString());
+
+		final Zipper zipper = Zipper.builder().directoryToZip(this.testDir).zipFile(zipFile)
+			.pipelined(true).blockSize(64 * 1024).build();
+		assertFalse(zipper.zip().isPresent());
+		assertEquals(2, zipper.getFileCounter());
+		try (ZipFile zf = new ZipFile(zipFile))
+		{
+			final ZipEntry entry = zf.getEntry("testDir" + File.separator + "testZip1.bin");
+			try (InputStream inputStream = zf.getInputStream(entry))
+			{
+				assertArrayEquals(expected, inputStream.readAllBytes());
+			}
+		}
+		final byte[] actual = Files.readAllBytes(zipFile.toPath());
+
+		// the blocks are compressed independently, so only the compressed bytes differ from a
+		// serial zip file
+		final File serialZipFile = new File(this.zipDir.getAbsoluteFile(),
+			"testZipPipelinedSerial.zip");
+		assertFalse(
+			zipper.toBuilder().zipFile(serialZipFile).pipelined(false).build().zip().isPresent());
+		try (ZipFile serial = new ZipFile(serialZipFile); ZipFile pipelined = new ZipFile(zipFile))
+		{
+			final List<? extends ZipEntry> serialEntries = Collections.list(serial.entries());
+			final List<? extends ZipEntry> pipelinedEntries = Collections.list(pipelined.entries());
+			assertEquals(serialEntries.size(), pipelinedEntries.size());
+			for (int i = 0; i < serialEntries.size(); i++)
+			{
+				final ZipEntry serialEntry = serialEntries.get(i);
+				final ZipEntry pipelinedEntry = pipelinedEntries.get(i);
+				assertEquals(serialEntry.getName(), pipelinedEntry.getName());
+				assertEquals(serialEntry.getCrc(), pipelinedEntry.getCrc());
+				assertEquals(serialEntry.getSize(), pipelinedEntry.getSize());
+				try (InputStream serialInputStream = serial.getInputStream(serialEntry);
+					InputStream pipelinedInputStream = pipelined.getInputStream(pipelinedEntry))
+				{
+					assertArrayEquals(serialInputStream.readAllBytes(),
+						pipelinedInputStream.readAllBytes());
+				}
+			}
+		}
+
+		zipper.toBuilder().zipFile(otherZipFile).readerParallelism(3).parallelism(2)
+			.queueDepth(1).build().zip();
+		assertArrayEquals(actual, Files.readAllBytes(otherZipFile.toPath()));
+
+		zipper.toBuilder().zipFile(otherZipFile).readerParallelism(2).parallelism(4)
+			.memoryBudget(200 * 1024).build().zip();
+		assertArrayEquals(actual, Files.readAllBytes(otherZipFile.toPath()));
+	}
+
+	/**
+	 * Test method for {@link Zipper#zip()} with different numbers of threads that discover the
+	 * files
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	@Test
+	public void testZipDiscoveryParallelism() throws IOException
+	{
+		final File zipFile = new File(this.zipDir.getAbsoluteFile(), "testZipDiscovery.zip");
+		final File[] directories = { this.testDir, this.deepDir, this.deeperDir, this.deepDir2 };
+		for (int i = 0; i < 200; i++)
+		{
+			StoreFileExtensions.toFile(
+				new File(directories[i % directories.length], "testZip" + i + ".txt"),
+				"Its a beautifull day number " + i + "!!!");
+		}
+
+		List<String> expected = null;
+		for (final int discoveryParallelism : new int[] { 1, 8 })
+		{
+			final Zipper zipper = Zipper.builder().directoryToZip(this.testDir).zipFile(zipFile)
+				.discoveryParallelism(discoveryParallelism).build();
+			assertFalse(zipper.zip().isPresent());
+			assertEquals(200, zipper.getFileCounter());
+			final List<String> names = new ArrayList<>();
+			try (ZipFile zf = new ZipFile(zipFile))
+			{
+				zf.stream().forEach(entry -> names.add(entry.getName()));
+			}
+			if (expected != null)
+			{
+				assertEquals(expected, names);
+			}
+			expected = names;
+		}
+	}
+
+	/**
+	 * Test method for {@link Zipper#zipAsync(java.util.concurrent.Executor)}
+	 *
+	 * @throws Exception
+	 *             catch all exception
+	 */
+	@Test
+	public void testZipAsync() throws Exception
+	{
+		final File zipFile = new File(this.zipDir.getAbsoluteFile(), "testZipAsync.zip");
+		final File testFile1 = new File(this.testDir.getAbsoluteFile(), "testZip1.txt");
+		StoreFileExtensions.toFile(testFile1, "Its a beautifull day!!!");
+
+		final Zipper zipper = Zipper.builder().directoryToZip(this.testDir).zipFile(zipFile)
+			.build();
+		final CompletableFuture<Optional<ZipErrorCodes>> future = zipper
+			.zipAsync(ForkJoinPool.commonPool());
+		assertFalse(future.get().isPresent());
+		assertTrue(zipFile.exists());
+		assertEquals(1, zipper.getMetrics().getEntryCount());
+
+		// cancel before the task runs, so the zipping stops before the first entry
+		for (final int parallelism : new int[] { 1, 2 })
+		{
+			final List<Runnable> tasks = new ArrayList<>();
+			final Zipper cancelledZipper = zipper.toBuilder().parallelism(parallelism).build();
+			final CompletableFuture<Optional<ZipErrorCodes>> cancelled = cancelledZipper
+				.zipAsync(tasks::add);
+			assertTrue(cancelled.cancel(true));
+			tasks.forEach(Runnable::run);
+			assertTrue(cancelled.isCancelled());
+			assertFalse(zipFile.exists());
+			assertEquals(0, cancelledZipper.getMetrics().getEntryCount());
+		}
+	}
+
+	/**
+	 * Test method for {@link Zipper#zipAsync(java.util.concurrent.Executor)} that is cancelled
+	 * while the zip file is written
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	@Test
+	public void testZipAsyncCancelled() throws IOException
+	{
+		final File zipFile = new File(this.zipDir.getAbsoluteFile(), "testZipAsync.zip");
+		final byte[] content = new byte[1024 * 1024];
+		final Random random = new Random(42);
+		for (int i = 0; i < 3; i++)
+		{
+			random.nextBytes(content);
+			Files.write(new File(this.testDir.getAbsoluteFile(), "testZip" + i + ".bin").toPath(),
+				content);
+		}
+
+		for (final int parallelism : new int[] { 1, 2 })
+		{
+			// cancel after the first entry is written, so the zip file has to be deleted
+			final AtomicBoolean cancelled = new AtomicBoolean();
+			final Zipper zipper = Zipper.builder().directoryToZip(this.testDir).zipFile(zipFile)
+				.parallelism(parallelism).listener(metrics -> {
+					assertTrue(zipFile.length() > 0);
+					cancelled.set(true);
+				}).build();
+			assertEquals(Optional.of(ZipErrorCodes.CANCELLED), zipper.zip(cancelled::get));
+			assertFalse(zipFile.exists());
+
+			final List<CompletableFuture<Optional<ZipErrorCodes>>> futures = new ArrayList<>();
+			final List<Runnable> tasks = new ArrayList<>();
+			futures.add(zipper.toBuilder()
+				.listener(metrics -> futures.forEach(future -> future.cancel(true))).build()
+				.zipAsync(tasks::add));
+			tasks.forEach(Runnable::run);
+			assertThrows(CancellationException.class, futures.get(0)::get);
+			assertFalse(zipFile.exists());
+		}
+	}
+
+	/**
+	 * Test method for {@link Zipper#zip()} with a {@link ZipListener}
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	@Test
+	public void testZipListener() throws IOException
+	{
+		final File zipFile = new File(this.zipDir.getAbsoluteFile(), "testZipListener.zip");
+		final File testFile1 = new File(this.testDir.getAbsoluteFile(), "testZip1.txt");
+		final File testFile2 = new File(this.deepDir.getAbsoluteFile(), "testZip2.txt");
+		final StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 20000; i++)
+		{
+			text.append("Its a beautifull line ").append(i).append("!!!\n");
+		}
+		StoreFileExtensions.toFile(testFile1, "Its a beautifull day!!!");
+		StoreFileExtensions.toFile(testFile2, text.toString());
+		final long expectedBytesIn = testFile1.length() + testFile2.length();
+
+		for (final int parallelism : new int[] { 1, 2 })
+		{
+			final List<String> entries = new ArrayList<>();
+			final ZipMetrics[] finished = new ZipMetrics[1];
+			final Zipper zipper = Zipper.builder().directoryToZip(this.testDir).zipFile(zipFile)
+				.parallelism(parallelism).listener(new ZipListener()
+				{
+					@Override
+					public void entryZipped(ZipMetrics metrics)
+					{
+						entries.add(metrics.getEntryName());
+						assertTrue(metrics.getEntryBytesOut() > 0);
+						assertTrue(metrics.getEntryReadNanos() >= 0);
+						assertTrue(metrics.getEntryWriteNanos() >= 0);
+					}
+
+					@Override
+					public void zipFinished(ZipMetrics metrics)
+					{
+						finished[0] = metrics;
+					}
+				}).build();
+			assertFalse(zipper.zip().isPresent());
+
+			final ZipMetrics metrics = zipper.getMetrics();
+			assertEquals(2, entries.size());
+			assertEquals(metrics, finished[0]);
+			assertEquals(2, metrics.getEntryCount());
+			assertEquals(expectedBytesIn, metrics.getTotalBytesIn());
+			assertTrue(metrics.getTotalBytesOut() < metrics.getTotalBytesIn());
+			assertTrue(metrics.getTotalCompressionRatio() < 1.0);
+			assertTrue(metrics.getElapsedNanos() > 0);
+			try (ZipFile zf = new ZipFile(zipFile))
+			{
+				long compressedSize = 0;
+				for (final String name : entries)
+				{
+					compressedSize += zf.getEntry(name).getCompressedSize();
+				}
+				assertEquals(compressedSize, metrics.getTotalBytesOut());
+			}
+		}
+	}
+
 }
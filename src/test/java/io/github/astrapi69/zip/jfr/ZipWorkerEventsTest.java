@@ -0,0 +1,175 @@
+/**
+ * The MIT License
+ *
+ * Copyright (C) 2015 Asterios Raptis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.astrapi69.zip.jfr;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipFile;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.github.astrapi69.file.write.StoreFileExtensions;
+import io.github.astrapi69.zip.ZipExtensions;
+import io.github.astrapi69.zip.Zipper;
+import io.github.astrapi69.zip.sevenz.SevenZFileExtensions;
+
+/**
+ * The unit test class for the Java Flight Recorder events of the zip worker
+ */
+class ZipWorkerEventsTest
+{
+
+	private File tempDir;
+
+	/**
+	 * Sets up a temporary directory with two files to archive
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	@BeforeEach
+	void setup() throws IOException
+	{
+		tempDir = Files.createTempDirectory("testDir").toFile();
+		File sourceDir = new File(tempDir, "source");
+		sourceDir.mkdirs();
+		StoreFileExtensions.toFile(new File(sourceDir, "file1.txt"), "Its a beautifull day!!!");
+		StoreFileExtensions.toFile(new File(sourceDir, "file2.txt"),
+			"Its a beautifull evening!!!");
+	}
+
+	/**
+	 * Deletes the temporary directory
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	@AfterEach
+	void teardown() throws IOException
+	{
+		try (Stream<Path> paths = Files.walk(tempDir.toPath()))
+		{
+			paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+		}
+	}
+
+	/**
+	 * Archives and extracts the source directory as zip and 7z archive while the given recording
+	 * is running
+	 *
+	 * @param recording
+	 *            the recording
+	 * @return the recorded events
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private List<RecordedEvent> record(Recording recording) throws IOException
+	{
+		File sourceDir = new File(tempDir, "source");
+		File zipFile = new File(tempDir, "test.zip");
+		File sevenZipFile = new File(tempDir, "test.7z");
+		recording.start();
+		Zipper.builder().directoryToZip(sourceDir).zipFile(zipFile).build().zip();
+		ZipExtensions.unzip(new ZipFile(zipFile), new File(tempDir, "unzip"));
+		SevenZFileExtensions.zipFiles(sevenZipFile, sourceDir);
+		SevenZFileExtensions.extract(sevenZipFile, new File(tempDir, "extract"));
+		recording.stop();
+		Path dump = new File(tempDir, "recording.jfr").toPath();
+		recording.dump(dump);
+		return RecordingFile.readAllEvents(dump).stream()
+			.filter(event -> event.getEventType().getName().startsWith("io.github.astrapi69"))
+			.collect(Collectors.toList());
+	}
+
+	/**
+	 * Tests that the events are emitted if they are enabled
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	@Test
+	void testEventsEnabled() throws IOException
+	{
+		try (Recording recording = new Recording())
+		{
+			recording.enable(ArchiveStartedEvent.NAME);
+			recording.enable(ArchiveFinishedEvent.NAME).withThreshold(Duration.ZERO);
+			recording.enable(EntryCompressedEvent.NAME).withThreshold(Duration.ZERO);
+			recording.enable(EntryExtractedEvent.NAME).withThreshold(Duration.ZERO);
+			List<RecordedEvent> events = record(recording);
+			Map<String, List<RecordedEvent>> eventsByName = events.stream().collect(
+				Collectors.groupingBy(event -> event.getEventType().getName()));
+
+			assertEquals(4, eventsByName.get(ArchiveStartedEvent.NAME).size());
+			assertEquals(4, eventsByName.get(EntryCompressedEvent.NAME).size());
+			assertEquals(4, eventsByName.get(EntryExtractedEvent.NAME).size());
+			Map<String, RecordedEvent> finished = eventsByName.get(ArchiveFinishedEvent.NAME)
+				.stream().collect(
+					Collectors.toMap(event -> event.getString("operation"), Function.identity()));
+			assertEquals(4, finished.size());
+			RecordedEvent zip = finished.get(ArchiveFinishedEvent.ZIP);
+			assertEquals(2, zip.getInt("entryCount"));
+			assertEquals(50, zip.getLong("size"));
+			assertEquals(new File(tempDir, "test.zip").length(), zip.getLong("archiveSize"));
+			assertEquals(50, finished.get(ArchiveFinishedEvent.UNZIP).getLong("size"));
+			assertEquals(50, finished.get(ArchiveFinishedEvent.SEVEN_Z_EXTRACT).getLong("size"));
+			assertTrue(finished.get(ArchiveFinishedEvent.SEVEN_Z_COMPRESS)
+				.getLong("archiveSize") > 0);
+		}
+	}
+
+	/**
+	 * Tests that no events are emitted if they are not enabled
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	@Test
+	void testEventsDisabledByDefault() throws IOException
+	{
+		try (Recording recording = new Recording())
+		{
+			assertTrue(record(recording).isEmpty());
+		}
+	}
+}
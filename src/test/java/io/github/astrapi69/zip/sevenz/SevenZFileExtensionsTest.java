@@ -24,11 +24,20 @@
  */
 package io.github.astrapi69.zip.sevenz;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
 
+import org.apache.commons.compress.archivers.sevenz.SevenZArchiveEntry;
+import org.apache.commons.compress.archivers.sevenz.SevenZFile;
 import org.junit.jupiter.api.*;
+import org.tukaani.xz.LZMA2Options;
 
 import io.github.astrapi69.file.write.StoreFileExtensions;
 
@@ -112,4 +121,357 @@ class SevenZFileExtensionsTest
 
 		extractDir.delete();
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Tests the {@link SevenZFileExtensions#extract(File, File)} method with an entry bigger than
+	 * the extraction buffer.
+	 * <p>
+	 * Compresses a file of several buffer sizes and an empty file into a 7z archive, and then
+	 * extracts them. Asserts that the extracted files have the original content.
+	 * </p>
+	 */
+	@Test
+	void testExtractLargeEntry() throws IOException
+	{
+		File file1 = new File(tempDir, "large.bin");
+		File file2 = new File(tempDir, "empty.txt");
+		byte[] content = new byte[5 * 64 * 1024 + 17];
+		new Random(42).nextBytes(content);
+		Files.write(file1.toPath(), content);
+		Files.write(file2.toPath(), new byte[0]);
+
+		SevenZFileExtensions.zipFiles(tempZipFile, file1, file2);
+
+		File extractDir = Files.createTempDirectory("extractDir").toFile();
+		SevenZFileExtensions.extract(tempZipFile, extractDir);
+
+		Assertions.assertArrayEquals(content,
+			Files.readAllBytes(new File(extractDir, "large.bin").toPath()));
+		Assertions.assertEquals(0, new File(extractDir, "empty.txt").length());
+
+		new File(extractDir, "large.bin").delete();
+		new File(extractDir, "empty.txt").delete();
+		extractDir.delete();
+	}
+
+	/**
+	 * Tests the {@link SevenZFileExtensions#extract(File, File, char[], int)} method.
+	 * <p>
+	 * Compresses several files of different sizes into a 7z archive, and then extracts them on
+	 * three threads. Asserts that the extracted files have the original content.
+	 * </p>
+	 */
+	@Test
+	void testExtractParallel() throws IOException
+	{
+		Random random = new Random(7);
+		File[] files = new File[10];
+		byte[][] contents = new byte[files.length][];
+		for (int i = 0; i < files.length; i++)
+		{
+			files[i] = new File(tempDir, "file" + i + ".bin");
+			contents[i] = new byte[random.nextInt(i % 3 == 0 ? 200_000 : 2_000)];
+			random.nextBytes(contents[i]);
+			Files.write(files[i].toPath(), contents[i]);
+		}
+
+		SevenZFileExtensions.zipFiles(tempZipFile, files);
+
+		File extractDir = Files.createTempDirectory("extractDir").toFile();
+		SevenZFileExtensions.extract(tempZipFile, extractDir, null, 3);
+
+		for (int i = 0; i < files.length; i++)
+		{
+			File extracted = new File(extractDir, files[i].getName());
+			Assertions.assertArrayEquals(contents[i], Files.readAllBytes(extracted.toPath()));
+			extracted.delete();
+			files[i].delete();
+		}
+		extractDir.delete();
+	}
+
+	/**
+	 * Tests the {@link SevenZFileExtensions#extractEntry(File, String, OutputStream, char[])} and
+	 * the {@link SevenZFileExtensions#extractEntries(File, File, Collection, char[])} methods.
+	 * <p>
+	 * Compresses three text files into a 7z archive, extracts one of them into a stream and two of
+	 * them into a directory. Asserts that only the requested entries are extracted.
+	 * </p>
+	 */
+	@Test
+	void testExtractEntries() throws IOException
+	{
+		File file1 = new File(tempDir, "file1.txt");
+		File file2 = new File(tempDir, "file2.txt");
+		File file3 = new File(tempDir, "file3.txt");
+
+		StoreFileExtensions.toFile(file1, "Its a beautifull day!!!");
+		StoreFileExtensions.toFile(file2, "Its a beautifull evening!!!");
+		StoreFileExtensions.toFile(file3, "Its a beautifull night!!!");
+
+		SevenZFileExtensions.zipFiles(tempZipFile, file1, file2, file3);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		Assertions.assertTrue(
+			SevenZFileExtensions.extractEntry(tempZipFile, "file2.txt", out, null));
+		Assertions.assertEquals("Its a beautifull evening!!!", out.toString());
+		Assertions.assertFalse(
+			SevenZFileExtensions.extractEntry(tempZipFile, "missing.txt", out, null));
+
+		File extractDir = Files.createTempDirectory("extractDir").toFile();
+		int count = SevenZFileExtensions.extractEntries(tempZipFile, extractDir,
+			List.of("file1.txt", "file3.txt", "missing.txt"), null);
+
+		Assertions.assertEquals(2, count);
+		Assertions.assertEquals("Its a beautifull day!!!",
+			Files.readString(new File(extractDir, "file1.txt").toPath()));
+		Assertions.assertEquals("Its a beautifull night!!!",
+			Files.readString(new File(extractDir, "file3.txt").toPath()));
+		Assertions.assertFalse(new File(extractDir, "file2.txt").exists());
+
+		new File(extractDir, "file1.txt").delete();
+		new File(extractDir, "file3.txt").delete();
+		extractDir.delete();
+	}
+
+	/**
+	 * Tests the {@link SevenZFileExtensions#zipFiles(File, SevenZOutputOptions, File...)} method.
+	 * <p>
+	 * Compresses two text files with a fast preset and a memory budget and extracts them again.
+	 * Asserts that the extracted files have the original content.
+	 * </p>
+	 */
+	@Test
+	void testZipFilesWithOptions() throws IOException
+	{
+		File file1 = new File(tempDir, "file1.txt");
+		File file2 = new File(tempDir, "file2.txt");
+
+		StoreFileExtensions.toFile(file1, "Its a beautifull day!!!");
+		StoreFileExtensions.toFile(file2, "Its a beautifull evening!!!");
+
+		SevenZOutputOptions options = SevenZOutputOptions.builder().preset(1)
+			.memoryBudget(16 * 1024 * 1024).bufferSize(4096).build();
+		SevenZFileExtensions.zipFiles(tempZipFile, options, file1, file2);
+
+		File extractDir = Files.createTempDirectory("extractDir").toFile();
+		SevenZFileExtensions.extract(tempZipFile, extractDir);
+
+		Assertions.assertEquals("Its a beautifull day!!!",
+			Files.readString(new File(extractDir, "file1.txt").toPath()));
+		Assertions.assertEquals("Its a beautifull evening!!!",
+			Files.readString(new File(extractDir, "file2.txt").toPath()));
+
+		new File(extractDir, "file1.txt").delete();
+		new File(extractDir, "file2.txt").delete();
+		extractDir.delete();
+	}
+
+	/**
+	 * Tests the {@link SevenZFileExtensions#zipFiles(File, SevenZOutputOptions, File...)} method
+	 * with several encoder threads.
+	 * <p>
+	 * Compresses a directory with an empty file, a small file and two files of several chunks on
+	 * two and four threads. Asserts that both archives are identical and that all files are
+	 * extracted with their content.
+	 * </p>
+	 */
+	@Test
+	void testZipFilesParallel() throws IOException
+	{
+		File directory = new File(tempDir, "dir");
+		directory.mkdir();
+		File empty = new File(directory, "empty.txt");
+		File small = new File(directory, "small.txt");
+		File text = new File(directory, "text.txt");
+		File binary = new File(tempDir, "binary.bin");
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < 200_000; i++)
+		{
+			builder.append("Its a beautifull line ").append(i % 1000).append("!!!\n");
+		}
+		byte[] content = new byte[3 * ParallelSevenZWriter.MIN_CHUNK_SIZE + 17];
+		new Random(42).nextBytes(content);
+		StoreFileExtensions.toFile(empty, "");
+		StoreFileExtensions.toFile(small, "Its a beautifull day!!!");
+		StoreFileExtensions.toFile(text, builder.toString());
+		Files.write(binary.toPath(), content);
+
+		File otherZipFile = Files.createTempFile("other", ".7z").toFile();
+		SevenZOutputOptions options = SevenZOutputOptions.builder().preset(0).parallelism(2)
+			.build();
+		SevenZFileExtensions.zipFiles(tempZipFile, options, directory, binary);
+		SevenZFileExtensions.zipFiles(otherZipFile, options.toBuilder().parallelism(4).build(),
+			directory, binary);
+		Assertions.assertArrayEquals(Files.readAllBytes(tempZipFile.toPath()),
+			Files.readAllBytes(otherZipFile.toPath()));
+
+		File extractDir = Files.createTempDirectory("extractDir").toFile();
+		SevenZFileExtensions.extract(tempZipFile, extractDir);
+		File extracted = new File(extractDir, "dir");
+		Assertions.assertTrue(new File(extracted, "empty.txt").exists());
+		Assertions.assertEquals(0, new File(extracted, "empty.txt").length());
+		Assertions.assertEquals("Its a beautifull day!!!",
+			Files.readString(new File(extracted, "small.txt").toPath()));
+		Assertions.assertEquals(builder.toString(),
+			Files.readString(new File(extracted, "text.txt").toPath()));
+		Assertions.assertArrayEquals(content,
+			Files.readAllBytes(new File(extractDir, "binary.bin").toPath()));
+
+		Assertions.assertEquals(0, ParallelSevenZWriter.getDictionaryProperty(4096));
+		Assertions.assertEquals(19, ParallelSevenZWriter.getDictionaryProperty(3 << 20));
+		Assertions.assertEquals(22, ParallelSevenZWriter.getDictionaryProperty(1 << 23));
+		Assertions.assertEquals(22, ParallelSevenZWriter.getDictionaryProperty((1 << 23) - 1));
+
+		for (File file : new File[] { new File(extracted, "empty.txt"),
+				new File(extracted, "small.txt"), new File(extracted, "text.txt"), extracted,
+				new File(extractDir, "binary.bin"), extractDir, empty, small, text, directory,
+				binary, otherZipFile })
+		{
+			file.delete();
+		}
+	}
+
+	/**
+	 * Tests that the {@link SevenZOutputOptions} reject a buffer size less than one, that would
+	 * write every entry without content, and that a buffer of one byte writes the whole content.
+	 */
+	@Test
+	void testBufferSize() throws IOException
+	{
+		Assertions.assertThrows(IllegalArgumentException.class,
+			() -> SevenZOutputOptions.builder().bufferSize(0));
+		Assertions.assertThrows(IllegalArgumentException.class,
+			() -> new SevenZOutputOptions().setBufferSize(-1));
+
+		File file1 = new File(tempDir, "file1.txt");
+		StoreFileExtensions.toFile(file1, "Its a beautifull day!!!");
+		SevenZOutputOptions options = SevenZOutputOptions.builder().bufferSize(1).build();
+		SevenZFileExtensions.zipFiles(tempZipFile, options, file1);
+
+		File extractDir = Files.createTempDirectory("extractDir").toFile();
+		SevenZFileExtensions.extract(tempZipFile, extractDir);
+		Assertions.assertEquals("Its a beautifull day!!!",
+			Files.readString(new File(extractDir, "file1.txt").toPath()));
+
+		new File(extractDir, "file1.txt").delete();
+		extractDir.delete();
+	}
+
+	/**
+	 * Tests that the memory budget of the {@link SevenZOutputOptions} reduces the dictionary size
+	 * until the LZMA2 encoder fits into the budget.
+	 */
+	@Test
+	void testMemoryBudget() throws IOException
+	{
+		long memoryBudget = 32 * 1024 * 1024;
+		LZMA2Options unlimited = SevenZOutputOptions.builder().build().newLzma2Options();
+		LZMA2Options limited = SevenZOutputOptions.builder().memoryBudget(memoryBudget).build()
+			.newLzma2Options();
+
+		Assertions.assertTrue(memoryBudget < unlimited.getEncoderMemoryUsage() * 1024L);
+		Assertions.assertTrue(limited.getEncoderMemoryUsage() * 1024L <= memoryBudget);
+		Assertions.assertTrue(limited.getDictSize() < unlimited.getDictSize());
+	}
+
+	/**
+	 * Tests the {@link SevenZFileExtensions#zipFiles(File, SevenZOutputOptions, File...)} method
+	 * with sorting enabled.
+	 * <p>
+	 * Compresses files with different extensions and sizes and asserts that the entries are
+	 * ordered by their extension and then by their size.
+	 * </p>
+	 */
+	@Test
+	void testZipFilesSorted() throws IOException
+	{
+		File file1 = new File(tempDir, "file1.xml");
+		File file2 = new File(tempDir, "file2.txt");
+		File file3 = new File(tempDir, "file3.txt");
+
+		StoreFileExtensions.toFile(file1, "<day/>");
+		StoreFileExtensions.toFile(file2, "Its a beautifull evening!!!");
+		StoreFileExtensions.toFile(file3, "Its a beautifull day!!!");
+
+		SevenZOutputOptions options = SevenZOutputOptions.builder().sorted(true).build();
+		SevenZFileExtensions.zipFiles(tempZipFile, options, file1, file2, file3);
+
+		List<String> names = new ArrayList<>();
+		try (SevenZFile sevenZFile = SevenZFile.builder().setFile(tempZipFile).get())
+		{
+			for (SevenZArchiveEntry entry : sevenZFile.getEntries())
+			{
+				names.add(entry.getName());
+			}
+		}
+		Assertions.assertEquals(List.of("file3.txt", "file2.txt", "file1.xml"), names);
+
+		file1.delete();
+		file2.delete();
+		file3.delete();
+	}
+
+	/**
+	 * Tests the {@link SevenZFileExtensions#zipFiles(File, SevenZOutputOptions, File...)} method
+	 * with solid blocks.
+	 * <p>
+	 * Compresses text and binary files with two different contents in alternating order. Asserts
+	 * that solid blocks of two sorted files find the repeated content, that a solid block size of
+	 * two files writes the same archive as two files per block, that one unlimited block is the
+	 * smallest and that all archives extract the same files.
+	 * </p>
+	 */
+	@Test
+	void testZipFilesSolid() throws IOException
+	{
+		Random random = new Random(42);
+		byte[] text = new byte[32 * 1024];
+		byte[] binary = new byte[32 * 1024];
+		random.nextBytes(text);
+		random.nextBytes(binary);
+		File[] files = new File[9];
+		for (int i = 0; i < 4; i++)
+		{
+			files[2 * i] = new File(tempDir, "file" + i + ".txt");
+			files[2 * i + 1] = new File(tempDir, "file" + i + ".bin");
+			Files.write(files[2 * i].toPath(), text);
+			Files.write(files[2 * i + 1].toPath(), binary);
+		}
+		files[8] = new File(tempDir, "empty.txt");
+		StoreFileExtensions.toFile(files[8], "");
+
+		SevenZOutputOptions options = SevenZOutputOptions.builder().preset(0).build();
+		SevenZOutputOptions[] solidOptions = { options.toBuilder().parallelism(2).build(),
+				options.toBuilder().solidBlockFiles(2).build(),
+				options.toBuilder().solidBlockFiles(2).sorted(true).build(),
+				options.toBuilder().solidBlockFiles(0).solidBlockSize(2 * text.length)
+					.sorted(true).build(),
+				options.toBuilder().solidBlockFiles(0).sorted(true).parallelism(2).build() };
+		byte[][] archives = new byte[solidOptions.length][];
+		for (int i = 0; i < solidOptions.length; i++)
+		{
+			SevenZFileExtensions.zipFiles(tempZipFile, solidOptions[i], files);
+			archives[i] = Files.readAllBytes(tempZipFile.toPath());
+
+			File extractDir = Files.createTempDirectory("extractDir").toFile();
+			SevenZFileExtensions.extract(tempZipFile, extractDir);
+			for (File file : files)
+			{
+				File extracted = new File(extractDir, file.getName());
+				Assertions.assertArrayEquals(Files.readAllBytes(file.toPath()),
+					Files.readAllBytes(extracted.toPath()));
+				extracted.delete();
+			}
+			extractDir.delete();
+		}
+		Assertions.assertTrue(archives[2].length * 4 < archives[1].length * 3);
+		Assertions.assertArrayEquals(archives[2], archives[3]);
+		Assertions.assertTrue(archives[4].length * 4 < archives[2].length * 3);
+
+		for (File file : files)
+		{
+			file.delete();
+		}
+	}
+}